@@ -47,8 +47,8 @@ public class Camera {
 		if (toFollow != null) {
 			// on startup position camera that toFollow is in the center of the
 			// screen
-			this.cameraX = follow.x - (this.renderWidth / 2);
-			this.cameraY = follow.y - (this.renderHeight / 2);
+			this.cameraX = follow.getRenderX() - (this.renderWidth / 2);
+			this.cameraY = follow.getRenderY() - (this.renderHeight / 2);
 		}
 		this.myWorld = world;
 		this.visibleRect = new Rectangle(cameraX - horBorderPixel, cameraY
@@ -66,13 +66,15 @@ public class Camera {
 	}
 
 	private void setCamera() {
-		// position camera so that follow is on the center of the screen
-
+		// position camera so that follow is on the center of the screen,
+		// where it is drawn when the world interpolates between steps
+		float followX = follow == null ? 0 : follow.getRenderX();
+		float followY = follow == null ? 0 : follow.getRenderY();
 		if (follow != null
-				&& !moveRect.contains(follow.x + follow.width / 2, follow.y
+				&& !moveRect.contains(followX + follow.width / 2, followY
 						+ follow.height / 2)) {
-			float targetCX = follow.x - (this.renderWidth / 2);
-			float targetCY = follow.y - (this.renderHeight / 2);
+			float targetCX = followX - (this.renderWidth / 2);
+			float targetCY = followY - (this.renderHeight / 2);
 			// now smoothly move camera on position cameraX, cameraY to position
 			// targetCX, targetCY, using
 			// maxSpeed
@@ -122,9 +124,16 @@ public class Camera {
 						+ follow.speed.x, renderHeight - vertBorderPixel);
 	}
 
+	/**
+	 * @return true if the rectangle of the entity overlaps or touches the
+	 *         visible area
+	 */
 	public boolean contains(Entity e) {
-		Rectangle entity = new Rectangle(e.x, e.y, e.width, e.height);
-		return visibleRect.intersects(entity);
+		float left = visibleRect.getX();
+		float top = visibleRect.getY();
+		return e.x <= left + visibleRect.getWidth() && e.x + e.width >= left
+				&& e.y <= top + visibleRect.getHeight()
+				&& e.y + e.height >= top;
 	}
 
 	public World getMyWorld() {
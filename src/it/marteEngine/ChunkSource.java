@@ -0,0 +1,24 @@
+package it.marteEngine;
+
+import it.marteEngine.entity.Entity;
+
+import java.util.List;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * Creates the entities of a chunk of a level the first time the chunk is
+ * loaded by a {@link ChunkStreamer}. Later loads of the same chunk reuse the
+ * entities that were stored when it was unloaded.
+ */
+public interface ChunkSource {
+
+	/**
+	 * Called on the loading thread of the streamer, so it must not create
+	 * images or anything else that needs the OpenGL context. Use images that
+	 * were loaded up front, eg. from the ResourceManager or a TiledMap.
+	 *
+	 * @return the entities of the chunk in the given column and row
+	 */
+	List<Entity> load(int column, int row) throws SlickException;
+}
@@ -0,0 +1,26 @@
+package it.marteEngine;
+
+import it.marteEngine.entity.Entity;
+
+import java.util.List;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * A {@link ChunkSource} that also keeps the entities of unloaded chunks, eg.
+ * by writing their state to disk. Without a store a {@link ChunkStreamer}
+ * keeps the entities of the last unloaded chunks in memory and creates older
+ * chunks again, see {@link ChunkStreamer#setCachedChunks(int)}.
+ */
+public interface ChunkStore extends ChunkSource {
+
+	/**
+	 * Called on the thread that updates the world when a chunk is unloaded.
+	 * The next {@link #load(int, int)} of the chunk must return these
+	 * entities, or entities with the same state. Can be called more than once
+	 * for the same chunk before it is loaded again, the entities of every
+	 * call belong to the chunk.
+	 */
+	void store(int column, int row, List<Entity> entities)
+			throws SlickException;
+}
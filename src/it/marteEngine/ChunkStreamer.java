@@ -0,0 +1,450 @@
+package it.marteEngine;
+
+import it.marteEngine.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.geom.Rectangle;
+
+/**
+ * Keeps only the part of a large level near the camera in the world. The
+ * level is divided into chunks of a fixed size. Chunks that come near the
+ * camera are created by a {@link ChunkSource} on a background thread and
+ * added to the world, chunks far away are taken out of the world again.
+ *
+ * The entities of an unloaded chunk are stored as they are, and added again
+ * when the chunk comes back, so a killed enemy stays dead and a pushed block
+ * stays where it was pushed. An entity that walked into another chunk is
+ * stored with that chunk. A source that is a {@link ChunkStore} persists
+ * them itself. Otherwise the entities of the last unloaded chunks are kept in
+ * memory, see {@link #setCachedChunks(int)}, and older chunks are created by
+ * the source again, which forgets what happened in them. Keeping every chunk
+ * makes the memory grow with the area visited. Unloading and loading call
+ * {@link Entity#removedFromWorld()} and {@link Entity#addedToWorld()}.
+ * Streamed entities must not be taken from an EntityPool, since removing them
+ * would hand them back to their pool.
+ *
+ * <pre>
+ * world.setChunkStreamer(new ChunkStreamer(world, source, 1024, 1024, 64, 64));
+ * </pre>
+ */
+public class ChunkStreamer {
+
+	private static final int UNLOADED = 0;
+	private static final int LOADING = 1;
+	private static final int LOADED = 2;
+
+	/** unloaded chunks kept in memory unless set otherwise */
+	public static final int DEFAULT_CACHED_CHUNKS = 64;
+
+	private final World world;
+	private final ChunkSource source;
+	/** size of a chunk in pixels */
+	private final int chunkWidth, chunkHeight;
+	private final int columns, rows;
+	/** created when first needed */
+	private final Chunk[] chunks;
+
+	/** pixels around the camera in which chunks are loaded */
+	private int loadMargin;
+	/** pixels around the camera outside of which chunks are unloaded */
+	private int unloadMargin;
+
+	private final Executor executor;
+	/** the executor created by this streamer, null if one was given */
+	private final ExecutorService ownExecutor;
+	/** chunks created on the loading thread, waiting to be added */
+	private final ConcurrentLinkedQueue<Chunk> created = new ConcurrentLinkedQueue<Chunk>();
+	/** chunks that are loading or loaded */
+	private final List<Chunk> live = new ArrayList<Chunk>();
+	/** unloaded chunks with their entities in memory, oldest first */
+	private final List<Chunk> cached = new ArrayList<Chunk>();
+	private int maxCachedChunks = DEFAULT_CACHED_CHUNKS;
+
+	private int loads, restores, unloads, evictions;
+
+	/**
+	 * Stream chunks with a thread of its own
+	 *
+	 * @param chunkWidth
+	 *            width of a chunk in pixels
+	 * @param chunkHeight
+	 *            height of a chunk in pixels
+	 * @param columns
+	 *            number of chunks in a row of the level
+	 * @param rows
+	 *            number of chunks in a column of the level
+	 */
+	public ChunkStreamer(World world, ChunkSource source, int chunkWidth,
+			int chunkHeight, int columns, int rows) {
+		this(world, source, chunkWidth, chunkHeight, columns, rows, null);
+	}
+
+	/**
+	 * @param executor
+	 *            runs the {@link ChunkSource}, null to create a thread for
+	 *            this streamer
+	 */
+	public ChunkStreamer(World world, ChunkSource source, int chunkWidth,
+			int chunkHeight, int columns, int rows, Executor executor) {
+		if (chunkWidth <= 0 || chunkHeight <= 0)
+			throw new IllegalArgumentException("Chunk size must be > 0, was "
+					+ chunkWidth + "x" + chunkHeight);
+		if (columns <= 0 || rows <= 0)
+			throw new IllegalArgumentException(
+					"A level needs at least one chunk, was " + columns + "x"
+							+ rows);
+		this.world = world;
+		this.source = source;
+		this.chunkWidth = chunkWidth;
+		this.chunkHeight = chunkHeight;
+		this.columns = columns;
+		this.rows = rows;
+		this.chunks = new Chunk[columns * rows];
+		this.loadMargin = Math.max(chunkWidth, chunkHeight) / 2;
+		this.unloadMargin = Math.max(chunkWidth, chunkHeight) * 3 / 2;
+		if (executor == null) {
+			ownExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "ChunkStreamer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			this.executor = ownExecutor;
+		} else {
+			ownExecutor = null;
+			this.executor = executor;
+		}
+	}
+
+	/**
+	 * this method is called automatically by the World and must not be called
+	 * by your game code.
+	 *
+	 * @param camera
+	 *            the camera of the world, nothing is streamed without one
+	 */
+	public void update(Camera camera) throws SlickException {
+		if (camera == null)
+			return;
+		Rectangle visible = camera.getVisibleRect();
+		update(visible.getX(), visible.getY(),
+				visible.getX() + visible.getWidth(), visible.getY()
+						+ visible.getHeight());
+	}
+
+	/**
+	 * Add the chunks that finished loading, start loading the chunks near the
+	 * given area and unload the chunks far away from it.
+	 */
+	public void update(float left, float top, float right, float bottom)
+			throws SlickException {
+		for (Chunk chunk = created.poll(); chunk != null; chunk = created
+				.poll()) {
+			addCreated(chunk, left, top, right, bottom);
+		}
+
+		int minColumn = column(left - loadMargin);
+		int maxColumn = column(right + loadMargin);
+		int minRow = row(top - loadMargin);
+		int maxRow = row(bottom + loadMargin);
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				Chunk chunk = chunk(column, row);
+				if (chunk.state == UNLOADED)
+					load(chunk);
+			}
+		}
+
+		for (int i = live.size() - 1; i >= 0; i--) {
+			Chunk chunk = live.get(i);
+			if (chunk.state == LOADED
+					&& !isNear(chunk, left, top, right, bottom, unloadMargin)) {
+				unload(chunk);
+				live.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Load every chunk near the given area on the calling thread, eg. around
+	 * the player at the start of a level.
+	 */
+	public void loadNow(float left, float top, float right, float bottom)
+			throws SlickException {
+		int minColumn = column(left - loadMargin);
+		int maxColumn = column(right + loadMargin);
+		int minRow = row(top - loadMargin);
+		int maxRow = row(bottom + loadMargin);
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				Chunk chunk = chunk(column, row);
+				if (chunk.state != UNLOADED)
+					continue;
+				if (!chunk.generated) {
+					chunk.entities.addAll(source.load(column, row));
+					chunk.generated = true;
+					loads++;
+				} else {
+					restores++;
+				}
+				addToWorld(chunk);
+			}
+		}
+	}
+
+	private void load(final Chunk chunk) {
+		if (chunk.generated) {
+			restores++;
+			addToWorld(chunk);
+			return;
+		}
+		chunk.state = LOADING;
+		live.add(chunk);
+		executor.execute(new Runnable() {
+			public void run() {
+				try {
+					chunk.loaded = source.load(chunk.column, chunk.row);
+				} catch (SlickException e) {
+					chunk.failure = e;
+				} catch (RuntimeException e) {
+					chunk.failure = new SlickException("Unable to load chunk "
+							+ chunk.column + "," + chunk.row, e);
+				}
+				created.add(chunk);
+			}
+		});
+	}
+
+	/**
+	 * Add a chunk created on the loading thread to the world, or store it
+	 * right away when the camera moved away in the meantime
+	 */
+	private void addCreated(Chunk chunk, float left, float top, float right,
+			float bottom) throws SlickException {
+		List<Entity> loaded = chunk.loaded;
+		SlickException failure = chunk.failure;
+		chunk.loaded = null;
+		chunk.failure = null;
+		if (failure != null) {
+			chunk.state = UNLOADED;
+			live.remove(chunk);
+			throw failure;
+		}
+		chunk.entities.addAll(loaded);
+		chunk.generated = true;
+		loads++;
+		if (isNear(chunk, left, top, right, bottom, unloadMargin)) {
+			chunk.state = LOADED;
+			for (Entity entity : chunk.entities)
+				world.add(entity);
+		} else {
+			chunk.state = UNLOADED;
+			live.remove(chunk);
+		}
+	}
+
+	private void addToWorld(Chunk chunk) {
+		cached.remove(chunk);
+		chunk.state = LOADED;
+		if (!live.contains(chunk))
+			live.add(chunk);
+		for (Entity entity : chunk.entities)
+			world.add(entity);
+	}
+
+	/**
+	 * Take the entities of a chunk out of the world. Entities that moved into
+	 * another chunk are handed to that chunk, entities that left the world
+	 * are forgotten.
+	 */
+	private void unload(Chunk chunk) throws SlickException {
+		List<Entity> entities = chunk.entities;
+		int kept = 0;
+		for (int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			if (entity.world != world || entity.isRemovalPending()
+					|| !world.getEntities().contains(entity))
+				continue;
+			Chunk home = chunkAt(entity);
+			if (home != chunk && home.state == LOADED) {
+				home.entities.add(entity);
+				continue;
+			}
+			world.remove(entity);
+			if (home == chunk)
+				entities.set(kept++, entity);
+			else
+				home.entities.add(entity);
+		}
+		entities.subList(kept, entities.size()).clear();
+		chunk.state = UNLOADED;
+		unloads++;
+		if (source instanceof ChunkStore) {
+			((ChunkStore) source).store(chunk.column, chunk.row,
+					new ArrayList<Entity>(entities));
+			forget(chunk);
+		} else {
+			cached.add(chunk);
+			evict();
+		}
+	}
+
+	/**
+	 * Forget the entities of the oldest unloaded chunks until no more than
+	 * the maximum are kept
+	 */
+	private void evict() {
+		int excess = cached.size() - maxCachedChunks;
+		if (excess <= 0)
+			return;
+		for (int i = 0; i < excess; i++) {
+			forget(cached.get(i));
+			evictions++;
+		}
+		cached.subList(0, excess).clear();
+	}
+
+	/**
+	 * Forget the entities of an unloaded chunk, the source creates them again
+	 * when it is loaded
+	 */
+	private void forget(Chunk chunk) {
+		chunk.entities.clear();
+		chunk.generated = false;
+	}
+
+	private Chunk chunkAt(Entity entity) {
+		return chunk(column(entity.x + entity.width / 2), row(entity.y
+				+ entity.height / 2));
+	}
+
+	private Chunk chunk(int column, int row) {
+		int index = row * columns + column;
+		Chunk chunk = chunks[index];
+		if (chunk == null)
+			chunk = chunks[index] = new Chunk(column, row);
+		return chunk;
+	}
+
+	private int column(float x) {
+		return Math.max(0, Math.min(columns - 1, (int) Math.floor(x
+				/ chunkWidth)));
+	}
+
+	private int row(float y) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor(y
+				/ chunkHeight)));
+	}
+
+	private boolean isNear(Chunk chunk, float left, float top, float right,
+			float bottom, int margin) {
+		float chunkLeft = chunk.column * chunkWidth;
+		float chunkTop = chunk.row * chunkHeight;
+		return chunkLeft < right + margin
+				&& chunkLeft + chunkWidth > left - margin
+				&& chunkTop < bottom + margin
+				&& chunkTop + chunkHeight > top - margin;
+	}
+
+	/**
+	 * @param loadMargin
+	 *            pixels around the camera in which chunks are loaded
+	 * @param unloadMargin
+	 *            pixels around the camera outside of which chunks are
+	 *            unloaded, at least the load margin so a chunk at the border
+	 *            is not loaded and unloaded all the time
+	 */
+	public void setMargins(int loadMargin, int unloadMargin) {
+		if (loadMargin < 0 || unloadMargin < loadMargin)
+			throw new IllegalArgumentException(
+					"Margins must be 0 <= load <= unload, were " + loadMargin
+							+ " and " + unloadMargin);
+		this.loadMargin = loadMargin;
+		this.unloadMargin = unloadMargin;
+	}
+
+	public int getLoadMargin() {
+		return loadMargin;
+	}
+
+	public int getUnloadMargin() {
+		return unloadMargin;
+	}
+
+	/**
+	 * @param maxCachedChunks
+	 *            unloaded chunks whose entities are kept in memory when the
+	 *            source is not a {@link ChunkStore}. A chunk that is loaded
+	 *            again after more chunks were unloaded is created by the
+	 *            source again. Integer.MAX_VALUE keeps every chunk, at the
+	 *            cost of memory that grows with the area visited.
+	 */
+	public void setCachedChunks(int maxCachedChunks) {
+		if (maxCachedChunks < 0)
+			throw new IllegalArgumentException(
+					"Cached chunks must be >= 0, was " + maxCachedChunks);
+		this.maxCachedChunks = maxCachedChunks;
+		evict();
+	}
+
+	public int getCachedChunks() {
+		return maxCachedChunks;
+	}
+
+	/**
+	 * @return true while chunks are being created on the loading thread
+	 */
+	public boolean isLoading() {
+		for (Chunk chunk : live) {
+			if (chunk.state == LOADING)
+				return true;
+		}
+		return false;
+	}
+
+	/** @return number of chunks in the world or being loaded */
+	public int getLiveChunks() {
+		return live.size();
+	}
+
+	/**
+	 * Stop the loading thread created by this streamer
+	 */
+	public void shutdown() {
+		if (ownExecutor != null)
+			ownExecutor.shutdown();
+	}
+
+	public String toString() {
+		return "live chunks: " + live.size() + ", loaded: " + loads
+				+ ", restored: " + restores + ", unloaded: " + unloads
+				+ ", evicted: " + evictions;
+	}
+
+	private static final class Chunk {
+		final int column, row;
+		/** only changed on the thread that updates the world */
+		int state = UNLOADED;
+		/** true once the source created the entities of this chunk */
+		boolean generated;
+		/** the entities of this chunk, in the world while it is loaded */
+		final List<Entity> entities = new ArrayList<Entity>();
+		/** handed over from the loading thread through the queue */
+		List<Entity> loaded;
+		SlickException failure;
+
+		Chunk(int column, int row) {
+			this.column = column;
+			this.row = row;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package it.marteEngine;
+
+import it.marteEngine.entity.Entity;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Changes to a world that are recorded while it is updated and applied by
+ * the world at a defined point, so no list of the world is changed while it
+ * is iterated. Commands recorded by the thread that updates the world go
+ * into a list whose records are reused. Commands recorded by any other
+ * thread go into a lock free queue. Draining applies the commands of the
+ * updating thread in the order they were recorded, then the commands of the
+ * other threads.
+ */
+final class CommandBuffer {
+
+	static final int ADD = 0;
+	static final int REMOVE = 1;
+	static final int DEPTH = 2;
+	static final int LAYER = 3;
+	static final int TYPES = 4;
+	/** only recorded by entities updated in parallel */
+	static final int COLLISION = 5;
+
+	/** a single change to the world */
+	static final class Command {
+		int kind;
+		Entity entity;
+		/** the other entity of a collision */
+		Entity other;
+		/** the layer or depth */
+		int value;
+		String[] types;
+
+		void set(int kind, Entity entity, Entity other, int value,
+				String[] types) {
+			this.kind = kind;
+			this.entity = entity;
+			this.other = other;
+			this.value = value;
+			this.types = types;
+		}
+
+		void clear() {
+			entity = null;
+			other = null;
+			types = null;
+		}
+	}
+
+	/**
+	 * Commands in the order they were recorded by a single thread. The
+	 * records are reused once the list is cleared.
+	 */
+	static final class CommandList {
+		private Command[] commands = new Command[16];
+		private int size;
+
+		void record(int kind, Entity entity, Entity other, int value,
+				String[] types) {
+			if (size == commands.length)
+				commands = Arrays.copyOf(commands, size * 2);
+			Command command = commands[size];
+			if (command == null)
+				command = commands[size] = new Command();
+			command.set(kind, entity, other, value, types);
+			size++;
+		}
+
+		int size() {
+			return size;
+		}
+
+		Command get(int index) {
+			return commands[index];
+		}
+
+		void clear() {
+			removeFirst(size);
+		}
+
+		/**
+		 * Forget the first n commands, the others keep their order
+		 */
+		void removeFirst(int n) {
+			for (int i = 0; i < n; i++)
+				commands[i].clear();
+			int kept = size - n;
+			if (kept > 0) {
+				// move the cleared records behind the kept ones for reuse
+				Command[] cleared = Arrays.copyOf(commands, n);
+				System.arraycopy(commands, n, commands, 0, kept);
+				System.arraycopy(cleared, 0, commands, kept, n);
+			}
+			size = kept;
+		}
+	}
+
+	/** commands of the thread that updates the world */
+	private final CommandList local = new CommandList();
+	/** commands of all other threads */
+	private final ConcurrentLinkedQueue<Command> shared = new ConcurrentLinkedQueue<Command>();
+	/** the thread that updates the world */
+	private volatile Thread owner = Thread.currentThread();
+	/** number of local commands taken by the current drain */
+	private int drained;
+
+	/**
+	 * @param owner
+	 *            the thread that updates the world from now on
+	 */
+	void setOwner(Thread owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * Record a command. Can be called from any thread.
+	 */
+	void record(int kind, Entity entity, Entity other, int value,
+			String[] types) {
+		if (Thread.currentThread() == owner) {
+			local.record(kind, entity, other, value, types);
+		} else {
+			Command command = new Command();
+			command.set(kind, entity, other, value, types);
+			shared.add(command);
+		}
+	}
+
+	boolean isEmpty() {
+		return local.size() == 0 && shared.isEmpty();
+	}
+
+	/**
+	 * Take the next command. Commands recorded while draining are taken by
+	 * the same drain. Must only be called by the thread that updates the
+	 * world, and must be followed by {@link #finishDrain()}.
+	 *
+	 * @return the command, or null if there are no more commands
+	 */
+	Command next() {
+		if (drained < local.size())
+			return local.get(drained++);
+		return shared.poll();
+	}
+
+	/**
+	 * Forget the commands taken by {@link #next()}. Commands that were not
+	 * taken, because applying a command failed, are kept for the next drain.
+	 */
+	void finishDrain() {
+		local.removeFirst(drained);
+		drained = 0;
+	}
+
+	/**
+	 * @return a pending entity with the given name, or null
+	 */
+	Entity findAdded(String name) {
+		for (int i = 0; i < local.size(); i++) {
+			if (isAddOf(local.get(i), name))
+				return local.get(i).entity;
+		}
+		for (Command command : shared) {
+			if (isAddOf(command, name))
+				return command.entity;
+		}
+		return null;
+	}
+
+	private static boolean isAddOf(Command command, String name) {
+		return command.kind == ADD && command.entity.name != null
+				&& command.entity.name.equalsIgnoreCase(name);
+	}
+}
@@ -0,0 +1,113 @@
+package it.marteEngine;
+
+import java.util.Hashtable;
+
+import org.newdawn.slick.particles.ParticleSystem;
+
+/**
+ * The state ME gives access to: the current world, the delta of the current
+ * update, the particle system and the game attributes. Every World carries a
+ * context and makes it current for its thread while it is updated or
+ * rendered, so ME always reads the context of the world in progress.
+ *
+ * A world uses the context that is current when it is created. In a normal
+ * game that is the global context, shared by all worlds. To run independent
+ * worlds at the same time, for example one per thread, give each of them its
+ * own context:
+ *
+ * <pre>
+ * World world = new World(0, new EngineContext());
+ * </pre>
+ */
+public class EngineContext {
+
+	/** used on threads that are not updating or rendering a world */
+	private static final EngineContext GLOBAL = new EngineContext();
+	private static final ThreadLocal<EngineContext> CURRENT = new ThreadLocal<EngineContext>();
+
+	private World world;
+	private int delta;
+	private ParticleSystem ps;
+	private boolean renderParticle = false;
+	private final Hashtable<String, Object> attributes = new Hashtable<String, Object>();
+
+	/**
+	 * @return the context of the world updated or rendered by this thread, or
+	 *         the global context
+	 */
+	public static EngineContext current() {
+		EngineContext context = CURRENT.get();
+		return context == null ? GLOBAL : context;
+	}
+
+	/**
+	 * @return the context shared by all worlds that were not given their own
+	 */
+	public static EngineContext global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * Make this context current for the calling thread
+	 *
+	 * @return the context that was current before, to be passed to
+	 *         {@link #restore(EngineContext)}
+	 */
+	public EngineContext makeCurrent() {
+		EngineContext previous = CURRENT.get();
+		CURRENT.set(this);
+		return previous;
+	}
+
+	/**
+	 * Make a context returned by {@link #makeCurrent()} current again
+	 */
+	public static void restore(EngineContext previous) {
+		if (previous == null)
+			CURRENT.remove();
+		else
+			CURRENT.set(previous);
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	public void setWorld(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * @return delta of the current update call
+	 */
+	public int getDelta() {
+		return delta;
+	}
+
+	public void setDelta(int delta) {
+		this.delta = delta;
+	}
+
+	public ParticleSystem getParticleSystem() {
+		return ps;
+	}
+
+	public void setParticleSystem(ParticleSystem ps) {
+		this.ps = ps;
+	}
+
+	public boolean isRenderParticle() {
+		return renderParticle;
+	}
+
+	public void setRenderParticle(boolean renderParticle) {
+		this.renderParticle = renderParticle;
+	}
+
+	/**
+	 * @return utility hashtable for game attributes
+	 */
+	public Hashtable<String, Object> getAttributes() {
+		return attributes;
+	}
+}
@@ -0,0 +1,118 @@
+package it.marteEngine;
+
+import org.newdawn.slick.Input;
+
+/**
+ * Input that is not read from a keyboard or mouse but set by code. Used by
+ * the {@link HeadlessRunner} to script the input of a world that runs without
+ * a display. A pressed key is down until it is released, and reported once by
+ * {@link #isKeyPressed(int)}.
+ */
+public class HeadlessInput extends Input {
+
+	private static final int KEY_COUNT = 256;
+	private static final int BUTTON_COUNT = 10;
+
+	private final boolean[] keysDown = new boolean[KEY_COUNT];
+	private final boolean[] keysPressed = new boolean[KEY_COUNT];
+	private final boolean[] buttonsDown = new boolean[BUTTON_COUNT];
+	private final boolean[] buttonsPressed = new boolean[BUTTON_COUNT];
+	private int mouseX, mouseY;
+
+	/**
+	 * @param height
+	 *            height of the simulated display
+	 */
+	public HeadlessInput(int height) {
+		super(height);
+	}
+
+	/**
+	 * Hold a key down until {@link #release(int)} is called
+	 */
+	public void press(int key) {
+		if (!keysDown[key])
+			keysPressed[key] = true;
+		keysDown[key] = true;
+	}
+
+	public void release(int key) {
+		keysDown[key] = false;
+		keysPressed[key] = false;
+	}
+
+	/**
+	 * Hold a mouse button down until {@link #releaseMouse(int)} is called
+	 */
+	public void pressMouse(int button) {
+		if (!buttonsDown[button])
+			buttonsPressed[button] = true;
+		buttonsDown[button] = true;
+	}
+
+	public void releaseMouse(int button) {
+		buttonsDown[button] = false;
+		buttonsPressed[button] = false;
+	}
+
+	public void setMousePosition(int x, int y) {
+		this.mouseX = x;
+		this.mouseY = y;
+	}
+
+	/**
+	 * Release every key and mouse button
+	 */
+	public void releaseAll() {
+		for (int i = 0; i < KEY_COUNT; i++)
+			release(i);
+		for (int i = 0; i < BUTTON_COUNT; i++)
+			releaseMouse(i);
+	}
+
+	@Override
+	public boolean isKeyDown(int key) {
+		return key >= 0 && key < KEY_COUNT && keysDown[key];
+	}
+
+	@Override
+	public boolean isKeyPressed(int key) {
+		if (key < 0 || key >= KEY_COUNT || !keysPressed[key])
+			return false;
+		keysPressed[key] = false;
+		return true;
+	}
+
+	@Override
+	public boolean isMouseButtonDown(int button) {
+		return button >= 0 && button < BUTTON_COUNT && buttonsDown[button];
+	}
+
+	@Override
+	public boolean isMousePressed(int button) {
+		if (button < 0 || button >= BUTTON_COUNT || !buttonsPressed[button])
+			return false;
+		buttonsPressed[button] = false;
+		return true;
+	}
+
+	@Override
+	public int getMouseX() {
+		return mouseX;
+	}
+
+	@Override
+	public int getMouseY() {
+		return mouseY;
+	}
+
+	@Override
+	public int getAbsoluteMouseX() {
+		return mouseX;
+	}
+
+	@Override
+	public int getAbsoluteMouseY() {
+		return mouseY;
+	}
+}
@@ -0,0 +1,151 @@
+package it.marteEngine;
+
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Steps a World as fast as possible without a display, for example to
+ * simulate a game on a server, for soak tests or for benchmarks. The world
+ * gets no game container, its input is a {@link HeadlessInput} that can be
+ * scripted and nothing is rendered, since drawing needs an OpenGL context.
+ * Images used by entities can be replaced by {@link #placeholder(int, int)}.
+ *
+ * <pre>
+ * HeadlessRunner runner = new HeadlessRunner(world, 800, 600);
+ * runner.init();
+ * runner.getInput().press(Input.KEY_RIGHT);
+ * runner.run(10000);
+ * System.out.println(runner);
+ * </pre>
+ */
+public class HeadlessRunner {
+
+	/** delta passed to every update, in ms */
+	public static final int DEFAULT_DELTA = 16;
+
+	private final World world;
+	private final HeadlessInput input;
+	private int delta = DEFAULT_DELTA;
+
+	private long ticks;
+	private long nanos;
+
+	/**
+	 * @param width
+	 *            width of the world, used when the world has no width yet
+	 * @param height
+	 *            height of the world and of the simulated display
+	 */
+	public HeadlessRunner(World world, int width, int height) {
+		this.world = world;
+		if (world.width == 0)
+			world.width = width;
+		if (world.height == 0)
+			world.height = height;
+		input = new HeadlessInput(height);
+		world.setInput(input);
+	}
+
+	/**
+	 * Initialise the world without a container, with the context of the world
+	 * current
+	 */
+	public void init() throws SlickException {
+		EngineContext previous = world.getContext().makeCurrent();
+		try {
+			world.getContext().setWorld(world);
+			world.init(null, null);
+		} finally {
+			EngineContext.restore(previous);
+		}
+	}
+
+	/**
+	 * Update the world once
+	 */
+	public void tick() throws SlickException {
+		long start = System.nanoTime();
+		world.update(null, null, delta);
+		nanos += System.nanoTime() - start;
+		ticks++;
+	}
+
+	/**
+	 * Update the world the given number of times
+	 */
+	public void run(int ticks) throws SlickException {
+		for (int i = 0; i < ticks; i++)
+			tick();
+	}
+
+	/**
+	 * Update the world until the given time has passed
+	 */
+	public void runFor(long millis) throws SlickException {
+		long end = System.nanoTime() + millis * 1000000L;
+		while (System.nanoTime() < end)
+			tick();
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	public HeadlessInput getInput() {
+		return input;
+	}
+
+	public int getDelta() {
+		return delta;
+	}
+
+	/**
+	 * @param delta
+	 *            simulated time passed to every update in ms
+	 */
+	public void setDelta(int delta) {
+		this.delta = delta;
+	}
+
+	/** @return number of updates run so far */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/** @return time spent in updates so far, in ns */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/** @return updates per second of real time spent updating */
+	public double getTicksPerSecond() {
+		return nanos == 0 ? 0 : ticks * 1e9 / nanos;
+	}
+
+	/**
+	 * Forget the ticks and time counted so far
+	 */
+	public void resetStatistics() {
+		ticks = 0;
+		nanos = 0;
+	}
+
+	public String toString() {
+		return String.format("%d ticks in %.1f ms, %.0f ticks/s, %d entities",
+				ticks, nanos / 1e6, getTicksPerSecond(), world.getCount());
+	}
+
+	/**
+	 * @return an image of the given size without a texture. Its size can be
+	 *         read, but it can't be drawn.
+	 */
+	public static Image placeholder(final int imageWidth,
+			final int imageHeight) {
+		return new Image() {
+			{
+				width = imageWidth;
+				height = imageHeight;
+			}
+		};
+	}
+}
@@ -0,0 +1,127 @@
+package it.marteEngine;
+
+import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.Solid;
+import it.marteEngine.entity.TileLayer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.geom.Rectangle;
+import org.newdawn.slick.tiled.TiledMap;
+
+/**
+ * Turns the solid tiles of a level into a few large colliders. Adjacent solid
+ * tiles are merged into rectangles, so a wall of 100 tiles becomes a single
+ * entity. The tiles themselves are drawn by a {@link TileLayer} straight
+ * from the map.
+ *
+ * <pre>
+ * for (Entity e : LevelCompiler.compile(map, map.getLayerIndex(&quot;BLOCKS&quot;)))
+ * 	world.add(e);
+ * </pre>
+ */
+public class LevelCompiler {
+
+	/** tile property that marks a tile as solid */
+	public static final String SOLID_PROPERTY = "solid";
+
+	/**
+	 * @return a TileLayer rendering the layer and one {@link Solid} for every
+	 *         rectangle of tiles with the property solid=true
+	 */
+	public static List<Entity> compile(TiledMap map, int layer)
+			throws SlickException {
+		List<Entity> entities = new ArrayList<Entity>();
+		entities.add(new TileLayer(0, 0, map, layer));
+		int tileWidth = map.getTileWidth();
+		int tileHeight = map.getTileHeight();
+		for (Rectangle r : merge(solidTiles(map, layer, SOLID_PROPERTY))) {
+			Solid solid = new Solid(r.getX() * tileWidth,
+					r.getY() * tileHeight, (int) r.getWidth() * tileWidth,
+					(int) r.getHeight() * tileHeight);
+			solid.visible = false;
+			entities.add(solid);
+		}
+		return entities;
+	}
+
+	/**
+	 * @return for every tile of the layer if its tile has the given property
+	 *         set to true, indexed [x][y]
+	 */
+	public static boolean[][] solidTiles(TiledMap map, int layer,
+			String property) {
+		boolean[][] solid = new boolean[map.getWidth()][map.getHeight()];
+		// a map has far fewer tile ids than tiles
+		HashMap<Integer, Boolean> solidIds = new HashMap<Integer, Boolean>();
+		for (int x = 0; x < map.getWidth(); x++) {
+			for (int y = 0; y < map.getHeight(); y++) {
+				int tileId = map.getTileId(x, y, layer);
+				if (tileId == 0)
+					continue;
+				Boolean isSolid = solidIds.get(tileId);
+				if (isSolid == null) {
+					isSolid = Boolean.valueOf(map.getTileProperty(tileId,
+							property, "false"));
+					solidIds.put(tileId, isSolid);
+				}
+				solid[x][y] = isSolid;
+			}
+		}
+		return solid;
+	}
+
+	/**
+	 * Cover the solid cells with as few rectangles as a greedy search finds:
+	 * starting at the top left, every rectangle is made as wide as possible
+	 * and then as high as possible. Every solid cell is covered by exactly one
+	 * rectangle.
+	 *
+	 * @param solid
+	 *            solid cells, indexed [x][y]
+	 * @return rectangles in cells
+	 */
+	public static List<Rectangle> merge(boolean[][] solid) {
+		List<Rectangle> rectangles = new ArrayList<Rectangle>();
+		int width = solid.length;
+		if (width == 0)
+			return rectangles;
+		int height = solid[0].length;
+		boolean[][] covered = new boolean[width][height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (!solid[x][y] || covered[x][y])
+					continue;
+				int right = x + 1;
+				while (right < width && solid[right][y] && !covered[right][y])
+					right++;
+				int bottom = y + 1;
+				while (bottom < height
+						&& isFree(solid, covered, x, right, bottom))
+					bottom++;
+				for (int cx = x; cx < right; cx++) {
+					for (int cy = y; cy < bottom; cy++)
+						covered[cx][cy] = true;
+				}
+				rectangles.add(new Rectangle(x, y, right - x, bottom - y));
+			}
+		}
+		return rectangles;
+	}
+
+	/**
+	 * @return true if the cells from left to right in the row are solid and
+	 *         not covered yet
+	 */
+	private static boolean isFree(boolean[][] solid, boolean[][] covered,
+			int left, int right, int row) {
+		for (int x = left; x < right; x++) {
+			if (!solid[x][row] || covered[x][row])
+				return false;
+		}
+		return true;
+	}
+}
@@ -49,20 +49,55 @@ public class ME {
 	public static final String WALK_UP = "walk_Up";
 	public static final String WALK_DOWN = "walk_Down";
 
-	/** utility hashtable for game attributes **/
-	public static Hashtable<String, Object> attributes = new Hashtable<String, Object>();
-
-	public static World world;
-
 	/** do we base time calculations on delta timing or on frames per second? */
 	public static boolean useDeltaTiming = false;
-	/** value of current delta of update call. might be helpful here */
-	public static int delta;
+	/** look up sine and cosine in a table, see Trig */
+	public static boolean useTrigTable = false;
 	/** the frames per seconds we targeted in our main class */
 	public static int targetFrameRate;
 
-	public static ParticleSystem ps;
-	public static boolean renderParticle = false;
+	/**
+	 * @return the world updated or rendered right now, or else the world set
+	 *         by {@link #setWorld(World)}
+	 * @see EngineContext
+	 */
+	public static World getWorld() {
+		return EngineContext.current().getWorld();
+	}
+
+	public static void setWorld(World world) {
+		EngineContext.current().setWorld(world);
+	}
+
+	/**
+	 * @return value of current delta of update call. might be helpful here
+	 */
+	public static int getDelta() {
+		return EngineContext.current().getDelta();
+	}
+
+	public static ParticleSystem getParticleSystem() {
+		return EngineContext.current().getParticleSystem();
+	}
+
+	public static void setParticleSystem(ParticleSystem ps) {
+		EngineContext.current().setParticleSystem(ps);
+	}
+
+	public static boolean isRenderParticle() {
+		return EngineContext.current().isRenderParticle();
+	}
+
+	public static void setRenderParticle(boolean renderParticle) {
+		EngineContext.current().setRenderParticle(renderParticle);
+	}
+
+	/**
+	 * @return utility hashtable for game attributes
+	 */
+	public static Hashtable<String, Object> getAttributes() {
+		return EngineContext.current().getAttributes();
+	}
 
 	public static void setTargetFrameRate(GameContainer container,
 			int targetframerate) {
@@ -80,12 +115,18 @@ public class ME {
 	 */
 	public static void update(GameContainer container, StateBasedGame game,
 			int delta) throws SlickException {
-		if (container == null)
-			throw new SlickException("no container set");
+		World world = getWorld();
 		if (world == null)
 			throw new SlickException("no world set");
+		ParticleSystem ps = getParticleSystem();
 
-		// special key handling
+		// special key handling, not available without a container
+		if (container == null) {
+			if (ps != null) {
+				ps.update(delta);
+			}
+			return;
+		}
 		if (keyToggleDebug != -1) {
 			if (container.getInput().isKeyPressed(keyToggleDebug)) {
 				debugEnabled = !debugEnabled;
@@ -93,8 +134,8 @@ public class ME {
 		}
 		if (keyRestart != -1) {
 			if (container.getInput().isKeyPressed(keyRestart)) {
-				ME.world.clear();
-				ME.world.init(container, game);
+				world.clear();
+				world.init(container, game);
 				// TODO: go to first state?
 			}
 		}
@@ -111,8 +152,8 @@ public class ME {
 			}
 		}
 
-		if (ME.ps != null) {
-			ME.ps.update(delta);
+		if (ps != null) {
+			ps.update(delta);
 		}
 
 	}
@@ -128,6 +169,7 @@ public class ME {
 			Graphics g) throws SlickException {
 		if (container == null)
 			throw new SlickException("no container set");
+		World world = getWorld();
 		if (world == null)
 			throw new SlickException("no world set");
 
@@ -180,6 +222,7 @@ public class ME {
 	}
 
 	public static void remove(Entity entity) {
+		World world = getWorld();
 		if (world != null) {
 			world.remove(entity);
 		}
@@ -1,10 +1,19 @@
 package it.marteEngine;
 
 import it.marteEngine.actor.StaticActor;
+import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.Solid;
 
 import org.newdawn.slick.SlickException;
 import org.newdawn.slick.tiled.TiledMap;
 
+/**
+ * A TiledMap whose BLOCKS layer is added to the current world: the layer is
+ * rendered from the map, every tile of it, and its solid tiles are merged
+ * into a few colliders, see {@link LevelCompiler}. The colliders have the
+ * name and type {@link StaticActor#NAME} besides SOLID, like the block per
+ * tile they replace.
+ */
 public class Map extends TiledMap {
 	private static final String BLOCKS = "BLOCKS";
 	private int blocksIndex;
@@ -13,17 +22,12 @@ public class Map extends TiledMap {
 		super(ref);
 		blocksIndex = getLayerIndex(BLOCKS);
 
-		for (int i = 0; i < getWidth(); i++) {
-			for (int j = 0; j < getHeight(); j++) {
-				int tileID = getTileId(i, j, blocksIndex);
-				if (Boolean.valueOf(getTileProperty(tileID, "solid", "false"))) {
-
-					StaticActor block = new StaticActor(i * 32, j * 32, 32, 32,
-							"data/block.png");
-					ME.world.add(block);
-				}
+		for (Entity entity : LevelCompiler.compile(this, blocksIndex)) {
+			if (entity instanceof Solid) {
+				entity.name = StaticActor.NAME;
+				entity.addType(StaticActor.NAME);
 			}
+			ME.getWorld().add(entity);
 		}
-
 	}
 }
@@ -1,13 +1,14 @@
 package it.marteEngine;
 
+import it.marteEngine.entity.AnimationClip;
 import org.newdawn.slick.*;
 import org.newdawn.slick.tiled.TiledMap;
 import org.newdawn.slick.util.ResourceLoader;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A single instance to all resources used in a game.
@@ -15,16 +16,20 @@ import java.util.Map;
  *
  * If an attempt is made to overwrite an existing resource an IllegalArgumentException is thrown.
  * An exception is the user defined parameters. These values can be overwritten.
+ *
+ * The resources are shared by all worlds, also by worlds with their own
+ * {@link EngineContext}, and can be read from any thread.
  */
 public class ResourceManager {
-    private static final Map<String, Music> songs = new HashMap<String, Music>();
-    private static final Map<String, Sound> sounds = new HashMap<String, Sound>();
-    private static final Map<String, Image> images = new HashMap<String, Image>();
-    private static final Map<String, SpriteSheet> sheets = new HashMap<String, SpriteSheet>();
-    private static final Map<String, Animation> animations = new HashMap<String, Animation>();
-    private static final Map<String, Font> fonts = new HashMap<String, Font>();
-    private static final Map<String, String> parameters = new HashMap<String, String>();
-    private static final Map<String, TiledMap> tiledMaps = new HashMap<String, TiledMap>();
+    private static final Map<String, Music> songs = new ConcurrentHashMap<String, Music>();
+    private static final Map<String, Sound> sounds = new ConcurrentHashMap<String, Sound>();
+    private static final Map<String, Image> images = new ConcurrentHashMap<String, Image>();
+    private static final Map<String, SpriteSheet> sheets = new ConcurrentHashMap<String, SpriteSheet>();
+    private static final Map<String, Animation> animations = new ConcurrentHashMap<String, Animation>();
+    private static final Map<String, AnimationClip> clips = new ConcurrentHashMap<String, AnimationClip>();
+    private static final Map<String, Font> fonts = new ConcurrentHashMap<String, Font>();
+    private static final Map<String, String> parameters = new ConcurrentHashMap<String, String>();
+    private static final Map<String, TiledMap> tiledMaps = new ConcurrentHashMap<String, TiledMap>();
 
     private ResourceManager() {
     }
@@ -65,6 +70,13 @@ public class ResourceManager {
         animations.put(key, anim);
     }
 
+    public static void addClip(String key, AnimationClip clip) {
+        if (hasClip(key)) {
+            throw new IllegalArgumentException("Clip for key " + key + " already exist!");
+        }
+        clips.put(key, clip);
+    }
+
     public static void addFont(String key, Font font) {
         if (hasFont(key)) {
             throw new IllegalArgumentException("Font for key " + key + " already exist!");
@@ -109,6 +121,10 @@ public class ResourceManager {
         return animations.containsKey(key);
     }
 
+    public static boolean hasClip(String key) {
+        return clips.containsKey(key);
+    }
+
     public static boolean hasFont(String key) {
         return fonts.containsKey(key);
     }
@@ -150,6 +166,18 @@ public class ResourceManager {
         return anim;
     }
 
+    /**
+     * @return the clip with the frames of the animation with the same key,
+     *         every animation loaded by the XMLResourceLoader has one. Unlike
+     *         the animation it can be shared by many entities.
+     */
+    public static AnimationClip getClip(String key) {
+        AnimationClip clip = clips.get(key);
+        if (clip == null)
+            throw new IllegalArgumentException("No clip for key " + key + " " + clips.keySet());
+        return clip;
+    }
+
     public static Font getFont(String key) {
         Font font = fonts.get(key);
         if (font == null)
@@ -196,4 +224,4 @@ public class ResourceManager {
             throw new IllegalArgumentException("No tilemap for key " + key + " " + tiledMaps.keySet());
         return map;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
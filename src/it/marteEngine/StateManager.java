@@ -11,11 +11,10 @@ public class StateManager {
 	private State currentState;
 
 	public StateManager() {
-		states = new LinkedList<State>();
 	}
 
 	public void add(State s) {
-		states.add(s);
+		states().add(s);
 		if (currentState == null) {
 			currentState = s;
 			currentState.init();
@@ -24,7 +23,7 @@ public class StateManager {
 
 	public void addAll(State... st) {
 		if (st != null && st.length > 0) {
-			Collections.addAll(states, st);
+			Collections.addAll(states(), st);
 			if (currentState == null) {
 				currentState = st[0];
 				currentState.init();
@@ -34,6 +33,8 @@ public class StateManager {
 
 	/** Transition to the designated state. */
 	public void enter(Class<?> c) {
+		if (states == null)
+			return;
 		for (State s : states) {
 			if (s.getClass().getCanonicalName()
 					.equalsIgnoreCase(c.getCanonicalName())) {
@@ -49,6 +50,13 @@ public class StateManager {
 		return currentState;
 	}
 
+	/** the list of states is created when the first state is added */
+	private LinkedList<State> states() {
+		if (states == null)
+			states = new LinkedList<State>();
+		return states;
+	}
+
 	public void update(GameContainer container, int delta) {
 		currentState.update(container, delta);
 	}
@@ -56,4 +64,4 @@ public class StateManager {
 	public void render(Graphics g) {
 		currentState.render(g);
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package it.marteEngine;
+
+import it.marteEngine.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.tiled.TiledMap;
+
+/**
+ * Creates the entities of a chunk from the tiles of a TiledMap, one tile at a
+ * time, instead of creating the entities of the whole map when it is loaded.
+ *
+ * <pre>
+ * TiledChunkSource source = new TiledChunkSource(map, 32, factory, layer);
+ * world.setChunkStreamer(source.createStreamer(world));
+ * </pre>
+ */
+public class TiledChunkSource implements ChunkSource {
+
+	/**
+	 * Creates the entity of a single tile. Called on the loading thread, so
+	 * it must not create images. The images of the map can be used.
+	 */
+	public interface TileFactory {
+		/**
+		 * @return the entity for the tile at tileX,tileY or null if the tile
+		 *         needs no entity
+		 */
+		Entity create(TiledMap map, int layer, int tileX, int tileY,
+				int tileId) throws SlickException;
+	}
+
+	private final TiledMap map;
+	/** width and height of a chunk in tiles */
+	private final int chunkTiles;
+	private final TileFactory factory;
+	private final int[] layers;
+
+	/**
+	 * @param chunkTiles
+	 *            width and height of a chunk in tiles
+	 * @param layers
+	 *            indexes of the layers to create entities for
+	 */
+	public TiledChunkSource(TiledMap map, int chunkTiles, TileFactory factory,
+			int... layers) {
+		if (chunkTiles <= 0)
+			throw new IllegalArgumentException("Chunk size must be > 0, was "
+					+ chunkTiles);
+		this.map = map;
+		this.chunkTiles = chunkTiles;
+		this.factory = factory;
+		this.layers = layers;
+	}
+
+	public List<Entity> load(int column, int row) throws SlickException {
+		List<Entity> entities = new ArrayList<Entity>();
+		int minX = column * chunkTiles;
+		int minY = row * chunkTiles;
+		int maxX = Math.min(minX + chunkTiles, map.getWidth());
+		int maxY = Math.min(minY + chunkTiles, map.getHeight());
+		for (int layer : layers) {
+			for (int y = minY; y < maxY; y++) {
+				for (int x = minX; x < maxX; x++) {
+					int tileId = map.getTileId(x, y, layer);
+					if (tileId == 0)
+						continue;
+					Entity entity = factory.create(map, layer, x, y, tileId);
+					if (entity != null)
+						entities.add(entity);
+				}
+			}
+		}
+		return entities;
+	}
+
+	/**
+	 * @return a streamer for the whole map with chunks of the size of this
+	 *         source
+	 */
+	public ChunkStreamer createStreamer(World world) {
+		int columns = (map.getWidth() + chunkTiles - 1) / chunkTiles;
+		int rows = (map.getHeight() + chunkTiles - 1) / chunkTiles;
+		return new ChunkStreamer(world, this, chunkTiles * map.getTileWidth(),
+				chunkTiles * map.getTileHeight(), columns, rows);
+	}
+}
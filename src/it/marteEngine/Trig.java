@@ -0,0 +1,48 @@
+package it.marteEngine;
+
+/**
+ * Sine and cosine of angles in degrees. When {@link ME#useTrigTable} is set
+ * they are looked up in a table with a value for every eighth of a degree
+ * instead of computed, which is exact for whole degrees and off by at most
+ * 0.0011 in between.
+ */
+public final class Trig {
+
+	/** table entries per degree */
+	private static final int STEPS = 8;
+	private static final int SIZE = 360 * STEPS;
+	private static final int QUARTER = SIZE / 4;
+
+	private static final float[] SIN = new float[SIZE];
+
+	static {
+		for (int i = 0; i < SIZE; i++)
+			SIN[i] = (float) Math.sin(Math.toRadians(i / (double) STEPS));
+		// exact zeros and ones on the axes
+		for (int i = 0; i < SIZE; i += QUARTER)
+			SIN[i] = Math.round(SIN[i]);
+	}
+
+	private Trig() {
+	}
+
+	public static float sin(float degrees) {
+		if (ME.useTrigTable)
+			return SIN[index(degrees)];
+		return (float) Math.sin(Math.toRadians(degrees));
+	}
+
+	public static float cos(float degrees) {
+		if (ME.useTrigTable)
+			return SIN[(index(degrees) + QUARTER) % SIZE];
+		return (float) Math.cos(Math.toRadians(degrees));
+	}
+
+	/**
+	 * @return the table entry nearest to the angle
+	 */
+	private static int index(float degrees) {
+		int index = Math.round(degrees * STEPS) % SIZE;
+		return index < 0 ? index + SIZE : index;
+	}
+}
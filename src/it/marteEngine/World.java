@@ -1,16 +1,33 @@
 package it.marteEngine;
 
+import it.marteEngine.CommandBuffer.Command;
+import it.marteEngine.CommandBuffer.CommandList;
+import it.marteEngine.entity.AABBTree;
+import it.marteEngine.entity.ActivationRegion;
+import it.marteEngine.entity.DepthList;
 import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.EntityConsumer;
+import it.marteEngine.entity.EntityPool;
+import it.marteEngine.entity.NameIndex;
+import it.marteEngine.entity.RayHit;
+import it.marteEngine.entity.SpatialHash;
+import it.marteEngine.entity.SweepAndPrune;
+import it.marteEngine.entity.TileCollisionLayer;
+import it.marteEngine.entity.TypeIndex;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import it.marteEngine.entity.InputManager;
 import org.newdawn.slick.Color;
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Input;
 import org.newdawn.slick.SlickException;
 import org.newdawn.slick.geom.Rectangle;
 import org.newdawn.slick.state.BasicGameState;
@@ -35,10 +52,14 @@ public class World extends BasicGameState {
 	/** height of the world, useful for vertical wrapping entities */
 	public int height = 0;
 
-	/** internal list for entities **/
-	private List<Entity> entities = new ArrayList<Entity>();
+	/** internal list for entities, ordered by depth **/
+	private DepthList entities = new DepthList();
+	/** entities whose depth changed during this update */
+	private List<Entity> reordered = new ArrayList<Entity>();
+	/** entities to remove at the end of this update, in order of removal */
 	private List<Entity> removable = new ArrayList<Entity>();
-	private List<Entity> addable = new ArrayList<Entity>();
+	/** changes to this world that wait for the end of the current step */
+	private final CommandBuffer commands = new CommandBuffer();
 
 	/**
 	 * two lists to contain objects that are rendered before and after camera
@@ -47,28 +68,102 @@ public class World extends BasicGameState {
 	private List<Entity> belowCamera = new ArrayList<Entity>();
 	private List<Entity> aboveCamera = new ArrayList<Entity>();
 
+	/** broadphase for collision checks against the entities in the game layer */
+	private SpatialHash spatialHash = new SpatialHash();
+	/** entities of the game layer by collision type */
+	private TypeIndex typeIndex = new TypeIndex();
+	/** entities of every layer by name */
+	private final NameIndex nameIndex = new NameIndex();
+	/** bounds of the entities in the game layer for shape and camera queries */
+	private final AABBTree tree = new AABBTree();
+	/** entities in view of the camera, reused by every render */
+	private final List<Entity> visible = new ArrayList<Entity>();
+	/** result of nearest, one per thread for parallel updates */
+	private final ThreadLocal<Entity[]> nearestHits = new ThreadLocal<Entity[]>() {
+		@Override
+		protected Entity[] initialValue() {
+			return new Entity[1];
+		}
+	};
+	/** hits of lineOfSight, one per thread for parallel updates */
+	private final ThreadLocal<RayHit> sightHits = new ThreadLocal<RayHit>() {
+		@Override
+		protected RayHit initialValue() {
+			return new RayHit();
+		}
+	};
+
 	/** current camera **/
 	public Camera camera;
+	/** area around the camera updated every step, null to update everything */
+	private ActivationRegion activation;
+	/** loads the part of the level near the camera, can be null */
+	private ChunkStreamer streamer;
+	/** static solid tiles tested by every collide call, can be null */
+	private TileCollisionLayer tiles;
+	/** pairs of overlapping entities, null if collision events are off */
+	private SweepAndPrune contacts;
 
 	public int renderedEntities;
 
 	/** available commands for world **/
 	protected InputManager input;
+	/** input used instead of the input of the container, can be null */
+	private Input inputProvider;
+
+	/** length of a fixed update step in ms, 0 to pass delta through */
+	private int fixedTimestep = 0;
+	/** maximum number of fixed steps run by a single update */
+	private int maxStepsPerUpdate = 5;
+	/** time in ms not yet simulated by a fixed step */
+	private int accumulator;
+	/** how far the current frame is between the last two fixed steps */
+	private float interpolationAlpha = 1;
+
+	/** state read through ME while this world is updated or rendered */
+	private EngineContext context;
+
+	/** pool thread safe entities are updated on, null to update serially */
+	private ForkJoinPool parallelPool;
+	/** number of thread safe entities updated by a single task */
+	private int parallelChunkSize = 256;
+	/** thread safe entities of the game layer, in depth order */
+	private Entity[] parallelBatch = new Entity[64];
+	private int parallelCount;
+	/** changes made by every chunk of thread safe entities */
+	private List<CommandList> chunkCommands = new ArrayList<CommandList>();
+	/** first exception thrown by every chunk of thread safe entities */
+	private SlickException[] chunkFailures = new SlickException[0];
+	/** changes of the chunk updated by the current thread */
+	private final ThreadLocal<CommandList> deferred = new ThreadLocal<CommandList>();
+	/** true while thread safe entities are updated */
+	private volatile boolean parallelPhase;
 
 	public World(int id) {
-		this.id = id;
+		this(id, EngineContext.current());
 	}
 
 	public World(int id, GameContainer container) {
-		this.id = id;
+		this(id);
 		this.container = container;
 	}
 
+	/**
+	 * Create a world with its own context. Worlds with different contexts can
+	 * be updated at the same time on different threads.
+	 */
+	public World(int id, EngineContext context) {
+		this.id = id;
+		this.context = context;
+	}
+
 	public void init(GameContainer container, StateBasedGame game)
 			throws SlickException {
 		this.container = container;
-		input = new InputManager(container.getInput());
+		input = new InputManager(getInput());
 
+		if (container == null)
+			return;
 		if (width == 0)
 			width = container.getWidth();
 		if (height == 0)
@@ -78,11 +173,21 @@ public class World extends BasicGameState {
 	@Override
 	public void enter(GameContainer container, StateBasedGame game)
 			throws SlickException {
-		ME.world = this;
+		context.setWorld(this);
 	}
 
 	public void render(GameContainer container, StateBasedGame game, Graphics g)
 			throws SlickException {
+		EngineContext previous = context.makeCurrent();
+		try {
+			renderWorld(container, game, g);
+		} finally {
+			EngineContext.restore(previous);
+		}
+	}
+
+	private void renderWorld(GameContainer container, StateBasedGame game,
+			Graphics g) throws SlickException {
 
 		renderedEntities = 0;
 		// first render entities below camera
@@ -96,21 +201,22 @@ public class World extends BasicGameState {
 			g.translate(-camera.cameraX, -camera.cameraY);
 
 		// render entities
-		for (Entity e : entities) {
-			if (!e.visible)
-				continue; // next entity. this one stays invisible
-			if (camera != null) {
-				if (camera.contains(e)) {
-					renderEntity(e, g, container);
-				}
-			} else {
+		if (camera != null) {
+			collectVisible();
+			for (int i = 0; i < visible.size(); i++)
+				renderEntity(visible.get(i), g, container);
+			visible.clear();
+		} else {
+			for (Entity e : entities) {
+				if (!e.visible)
+					continue; // next entity. this one stays invisible
 				renderEntity(e, g, container);
 			}
 		}
 
 		// render particle system
-		if (ME.ps != null && ME.renderParticle) {
-			ME.ps.render();
+		if (context.getParticleSystem() != null && context.isRenderParticle()) {
+			context.getParticleSystem().render();
 		}
 
 		if (ME.debugEnabled && camera != null) {
@@ -131,6 +237,26 @@ public class World extends BasicGameState {
 		ME.render(container, game, g);
 	}
 
+	/**
+	 * Find the visible entities in view of the camera, in the order of the
+	 * game layer, without walking the whole layer.
+	 */
+	private void collectVisible() {
+		visible.clear();
+		Rectangle view = camera.getVisibleRect();
+		tree.query(view.getX(), view.getY(), view.getX() + view.getWidth(),
+				view.getY() + view.getHeight(), visible);
+		int count = 0;
+		for (int i = 0; i < visible.size(); i++) {
+			Entity e = visible.get(i);
+			if (e.visible && camera.contains(e))
+				visible.set(count++, e);
+		}
+		while (visible.size() > count)
+			visible.remove(visible.size() - 1);
+		entities.sort(visible);
+	}
+
 	private void renderEntity(Entity e, Graphics g, GameContainer container)
 			throws SlickException {
 		renderedEntities++;
@@ -146,36 +272,89 @@ public class World extends BasicGameState {
 
 	public void update(GameContainer container, StateBasedGame game, int delta)
 			throws SlickException {
-		if (container == null)
-			throw new SlickException("no container set");
-
-		// store the current delta in ME for anyone who's interested in it.
-		ME.delta = delta;
+		EngineContext previous = context.makeCurrent();
+		try {
+			context.setWorld(this);
+			commands.setOwner(Thread.currentThread());
+			updateWorld(container, game, delta);
+		} finally {
+			EngineContext.restore(previous);
+		}
+	}
 
-		// add new entities
-		if (addable.size() > 0) {
-			for (Entity entity : addable) {
-				entities.add(entity);
-				entity.addedToWorld();
+	private void updateWorld(GameContainer container, StateBasedGame game,
+			int delta) throws SlickException {
+		if (fixedTimestep > 0) {
+			accumulator += delta;
+			int steps = 0;
+			while (accumulator >= fixedTimestep && steps < maxStepsPerUpdate) {
+				step(container, delta);
+				accumulator -= fixedTimestep;
+				steps++;
+			}
+			if (accumulator >= fixedTimestep) {
+				// too far behind, drop the time we can't catch up with
+				accumulator %= fixedTimestep;
 			}
-			addable.clear();
-			Collections.sort(entities);
+			interpolationAlpha = (float) accumulator / fixedTimestep;
+		} else {
+			step(container, delta);
+			interpolationAlpha = 1;
 		}
 
+		// update camera
+		if (camera != null) {
+			camera.update(container, delta);
+		}
+		if (streamer != null)
+			streamer.update(camera);
+
+		ME.update(container, game, delta);
+	}
+
+	/**
+	 * Advance the simulation by a single step. With a fixed timestep the
+	 * entities always get the step length as delta.
+	 */
+	private void step(GameContainer container, int frameDelta)
+			throws SlickException {
+		int delta = fixedTimestep > 0 ? fixedTimestep : frameDelta;
+		// store the current delta in ME for anyone who's interested in it.
+		context.setDelta(delta);
+
+		// changes made since the last step, eg. entities added by the game
+		applyCommands();
+		if (activation != null)
+			activation.startStep(camera);
+
 		// update entities
 		for (Entity e : belowCamera) {
+			e.stepStarted();
 			e.updateAlarms(delta);
 			if (e.active)
 				e.update(container, delta);
 		}
-		for (Entity e : entities) {
-			e.updateAlarms(delta);
-			if (e.active)
-				e.update(container, delta);
-			// check for wrapping or out of world entities
-			e.checkWorldBoundaries();
+		if (parallelPool != null) {
+			updateParallel(container, delta);
+		} else {
+			for (Entity e : entities) {
+				if (activation == null || activation.isDue(e, delta)) {
+					updateEntity(e, container, delta);
+					spatialHash.update(e);
+					tree.update(e);
+				}
+				if (entities.isOutOfOrder(e))
+					reordered.add(e);
+			}
+		}
+		if (!reordered.isEmpty()) {
+			for (Entity e : reordered) {
+				entities.reorder(e);
+			}
+			reordered.clear();
 		}
 		for (Entity e : aboveCamera) {
+			e.stepStarted();
 			e.updateAlarms(delta);
 			if (e.active)
 				e.update(container, delta);
@@ -185,25 +364,418 @@ public class World extends BasicGameState {
 		}
 
 		// update particle system
-		if (ME.ps != null) {
-			ME.ps.update(delta);
+		if (context.getParticleSystem() != null) {
+			context.getParticleSystem().update(delta);
+		}
+
+		// changes made by the entities during this step
+		applyCommands();
+		refreshAll();
+		if (contacts != null)
+			contacts.update();
+	}
+
+	/**
+	 * Bring the grid and the bounds tree up to date for entities that were
+	 * moved by other entities without a call to {@link #refresh(Entity)}, or
+	 * that were not updated in this step. Cheap for entities that did not
+	 * leave their cells and boxes.
+	 */
+	private void refreshAll() {
+		for (Entity e : entities) {
+			spatialHash.update(e);
+			tree.update(e);
+		}
+	}
+
+	/**
+	 * Update an entity of the game layer. An entity updated at a reduced rate
+	 * catches up on the steps it skipped.
+	 */
+	private void updateEntity(Entity e, GameContainer container, int delta)
+			throws SlickException {
+		int steps = 1 + ActivationRegion.takeSkippedSteps(e);
+		delta += ActivationRegion.takeSkippedDelta(e);
+		e.stepStarted();
+		e.updateAlarms(delta, steps);
+		if (e.active)
+			e.update(container, delta);
+		// check for wrapping or out of world entities
+		e.checkWorldBoundaries();
+	}
+
+	/**
+	 * Apply the recorded commands in the order they were recorded, then
+	 * remove the entities signed for removal. If a command fails the commands
+	 * after it are applied by the next update.
+	 */
+	private void applyCommands() throws SlickException {
+		if (commands.isEmpty())
+			return;
+		try {
+			for (Command command = commands.next(); command != null; command = commands
+					.next()) {
+				apply(command);
+			}
+		} finally {
+			commands.finishDrain();
 		}
 
 		// remove signed entities
-		for (Entity entity : removable) {
-			entities.remove(entity);
-			belowCamera.remove(entity);
-			aboveCamera.remove(entity);
-			entity.removedFromWorld();
+		if (!removable.isEmpty()) {
+			// a single pass over every list instead of one lookup per entity
+			for (Entity entity : removable) {
+				entities.delete(entity);
+			}
+			removeSigned(belowCamera);
+			removeSigned(aboveCamera);
+			typeIndex.removeAll(removable);
+			nameIndex.removeAll(removable);
+			spatialHash.removeAll(removable);
+			tree.removeAll(removable);
+			if (contacts != null)
+				contacts.removeAll(removable);
+			for (Entity entity : removable) {
+				entity.setRemovalPending(false);
+				entity.removedFromWorld();
+				EntityPool.release(entity);
+			}
+			removable.clear();
 		}
-		removable.clear();
+		entities.compact();
+	}
 
-		// update camera
-		if (camera != null) {
-			camera.update(container, delta);
+	private void apply(Command command) throws SlickException {
+		Entity e = command.entity;
+		switch (command.kind) {
+			case CommandBuffer.ADD :
+				if (e.isRemovalPending() && removable.remove(e)) {
+					// removed and added back in the same step, it stays
+					e.setRemovalPending(false);
+					if (isInWorld(e)) {
+						if (command.value != layerOf(e)) {
+							removeFromLayer(e);
+							addToLayer(e, command.value);
+						}
+						break;
+					}
+				}
+				// drawn where it was added until its first step
+				e.stepStarted();
+				addToLayer(e, command.value);
+				if (command.value == GAME)
+					e.addedToWorld();
+				break;
+			case CommandBuffer.REMOVE :
+				removable.add(e);
+				break;
+			case CommandBuffer.DEPTH :
+				e.depth = command.value;
+				entities.reorder(e);
+				break;
+			case CommandBuffer.LAYER :
+				if (e.isRemovalPending() || command.value == layerOf(e))
+					break;
+				removeFromLayer(e);
+				addToLayer(e, command.value);
+				break;
+			case CommandBuffer.TYPES :
+				e.clearTypes();
+				e.addType(command.types);
+				break;
 		}
+	}
 
-		ME.update(container, game, delta);
+	private void addToLayer(Entity e, int layer) {
+		nameIndex.insert(e);
+		switch (layer) {
+			case BELOW :
+				belowCamera.add(e);
+				break;
+			case ABOVE :
+				aboveCamera.add(e);
+				break;
+			default :
+				entities.insert(e);
+				spatialHash.insert(e);
+				tree.insert(e);
+				typeIndex.insert(e);
+				if (contacts != null)
+					contacts.insert(e);
+		}
+	}
+
+	private void removeFromLayer(Entity e) {
+		nameIndex.remove(e);
+		if (entities.contains(e)) {
+			entities.delete(e);
+			typeIndex.remove(e);
+			spatialHash.remove(e);
+			tree.remove(e);
+			if (contacts != null)
+				contacts.remove(e);
+		} else {
+			belowCamera.remove(e);
+			aboveCamera.remove(e);
+		}
+	}
+
+	private boolean isInWorld(Entity e) {
+		return entities.contains(e) || belowCamera.contains(e)
+				|| aboveCamera.contains(e);
+	}
+
+	/**
+	 * @return the layer the entity is in, or GAME if it is not in this world
+	 *         yet
+	 */
+	private int layerOf(Entity e) {
+		if (belowCamera.contains(e))
+			return BELOW;
+		if (aboveCamera.contains(e))
+			return ABOVE;
+		return GAME;
+	}
+
+	/**
+	 * Update the game layer with the thread safe entities on the parallel
+	 * pool. The other entities are updated first, in depth order, on the
+	 * calling thread. Then the thread safe entities are split into chunks of
+	 * consecutive entities that are updated in parallel. Finally the changes
+	 * the chunks made to the world are applied in the order of the chunks,
+	 * so the outcome does not depend on the number of threads.
+	 */
+	private void updateParallel(GameContainer container, int delta)
+			throws SlickException {
+		parallelCount = 0;
+		for (Entity e : entities) {
+			if (activation != null && !activation.isDue(e, delta)) {
+				if (entities.isOutOfOrder(e))
+					reordered.add(e);
+				continue;
+			}
+			if (e.threadSafe) {
+				if (parallelCount == parallelBatch.length)
+					parallelBatch = Arrays.copyOf(parallelBatch,
+							parallelCount * 2);
+				parallelBatch[parallelCount++] = e;
+				continue;
+			}
+			updateEntity(e, container, delta);
+			spatialHash.update(e);
+			tree.update(e);
+			if (entities.isOutOfOrder(e))
+				reordered.add(e);
+		}
+		if (parallelCount == 0)
+			return;
+
+		int chunks = (parallelCount + parallelChunkSize - 1)
+				/ parallelChunkSize;
+		while (chunkCommands.size() < chunks)
+			chunkCommands.add(new CommandList());
+		if (chunkFailures.length < chunks)
+			chunkFailures = new SlickException[chunks];
+		parallelPhase = true;
+		try {
+			if (chunks == 1)
+				updateChunk(container, delta, 0);
+			else
+				parallelPool.invoke(new UpdateTask(container, delta, 0,
+						chunks));
+		} finally {
+			parallelPhase = false;
+		}
+
+		SlickException failure = null;
+		for (int i = 0; i < chunks; i++) {
+			if (failure == null)
+				failure = chunkFailures[i];
+			chunkFailures[i] = null;
+			replay(chunkCommands.get(i));
+		}
+		for (int i = 0; i < parallelCount; i++) {
+			Entity e = parallelBatch[i];
+			parallelBatch[i] = null;
+			spatialHash.update(e);
+			tree.update(e);
+			if (entities.isOutOfOrder(e))
+				reordered.add(e);
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Update a chunk of the thread safe entities, collecting the changes they
+	 * make to the world.
+	 */
+	private void updateChunk(GameContainer container, int delta, int chunk) {
+		CommandList changes = chunkCommands.get(chunk);
+		int from = chunk * parallelChunkSize;
+		int to = Math.min(from + parallelChunkSize, parallelCount);
+		EngineContext previous = context.makeCurrent();
+		deferred.set(changes);
+		try {
+			for (int i = from; i < to; i++) {
+				updateEntity(parallelBatch[i], container, delta);
+			}
+		} catch (SlickException e) {
+			chunkFailures[chunk] = e;
+		} finally {
+			deferred.remove();
+			EngineContext.restore(previous);
+		}
+	}
+
+	/**
+	 * Update the thread safe entities in parallel, either by splitting the
+	 * chunks in two halves or by updating a single chunk.
+	 */
+	private class UpdateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final GameContainer container;
+		private final int delta;
+		private final int fromChunk, toChunk;
+
+		UpdateTask(GameContainer container, int delta, int fromChunk,
+				int toChunk) {
+			this.container = container;
+			this.delta = delta;
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (toChunk - fromChunk == 1) {
+				updateChunk(container, delta, fromChunk);
+			} else {
+				int middle = (fromChunk + toChunk) >>> 1;
+				invokeAll(new UpdateTask(container, delta, fromChunk, middle),
+						new UpdateTask(container, delta, middle, toChunk));
+			}
+		}
+	}
+
+	/**
+	 * Call the collision responses found by a chunk of thread safe entities
+	 * and record its other commands, in the order they happened.
+	 */
+	private void replay(CommandList changes) {
+		for (int i = 0; i < changes.size(); i++) {
+			Command command = changes.get(i);
+			if (command.kind == CommandBuffer.COLLISION) {
+				command.entity.collisionResponse(command.other);
+				command.other.collisionResponse(command.entity);
+			} else {
+				commands.record(command.kind, command.entity, null,
+						command.value, command.types);
+			}
+		}
+		changes.clear();
+	}
+
+	/**
+	 * Run the simulation in steps of a fixed length instead of once per frame
+	 * with a varying delta. Every update runs as many steps as fit into the
+	 * elapsed time, time left over is carried to the next update. Use
+	 * {@link #getInterpolationAlpha()} to render between the last two steps.
+	 * The camera and ME are still updated once per frame.
+	 * 
+	 * @param stepMillis
+	 *            length of a step in ms, for example 16 for about 60 steps
+	 *            per second. 0 turns fixed steps off.
+	 * @param maxStepsPerUpdate
+	 *            maximum number of steps run by a single update. When the
+	 *            game falls further behind the remaining time is dropped, so
+	 *            the simulation slows down instead of the frame rate
+	 *            collapsing.
+	 */
+	public void setFixedTimestep(int stepMillis, int maxStepsPerUpdate) {
+		if (stepMillis < 0)
+			throw new IllegalArgumentException("Step must be >= 0, was "
+					+ stepMillis);
+		if (maxStepsPerUpdate < 1)
+			throw new IllegalArgumentException(
+					"Max steps per update must be > 0, was "
+							+ maxStepsPerUpdate);
+		this.fixedTimestep = stepMillis;
+		this.maxStepsPerUpdate = maxStepsPerUpdate;
+		accumulator = 0;
+		interpolationAlpha = 1;
+	}
+
+	/**
+	 * @see #setFixedTimestep(int, int)
+	 */
+	public void setFixedTimestep(int stepMillis) {
+		setFixedTimestep(stepMillis, maxStepsPerUpdate);
+	}
+
+	/**
+	 * @return length of a fixed step in ms, 0 if the world is updated once
+	 *         per frame
+	 */
+	public int getFixedTimestep() {
+		return fixedTimestep;
+	}
+
+	public int getMaxStepsPerUpdate() {
+		return maxStepsPerUpdate;
+	}
+
+	/**
+	 * @return how far the current frame is between the previous and the last
+	 *         fixed step, from 0 to 1. Always 1 without a fixed timestep.
+	 */
+	public float getInterpolationAlpha() {
+		return interpolationAlpha;
+	}
+
+	/**
+	 * Update the entities of the game layer that are marked as
+	 * {@link Entity#threadSafe} in parallel on the given pool. The other
+	 * entities are updated first, on the thread that updates the world.
+	 * Entities added or removed and collision responses triggered by thread
+	 * safe entities take effect after all of them have been updated, in the
+	 * depth order of the entities that caused them. The result is the same
+	 * for any number of threads.
+	 *
+	 * @param pool
+	 *            pool to run the updates on, for example
+	 *            <code>new ForkJoinPool()</code> for one thread per core.
+	 *            null updates every entity on the calling thread again.
+	 * @param chunkSize
+	 *            number of consecutive entities updated by one task. Fewer
+	 *            thread safe entities than this are updated on the calling
+	 *            thread.
+	 */
+	public void setParallelUpdate(ForkJoinPool pool, int chunkSize) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be > 0, was "
+					+ chunkSize);
+		this.parallelPool = pool;
+		this.parallelChunkSize = chunkSize;
+	}
+
+	/**
+	 * @see #setParallelUpdate(ForkJoinPool, int)
+	 */
+	public void setParallelUpdate(ForkJoinPool pool) {
+		setParallelUpdate(pool, parallelChunkSize);
+	}
+
+	/**
+	 * @return the pool thread safe entities are updated on, null if every
+	 *         entity is updated on the calling thread
+	 */
+	public ForkJoinPool getParallelPool() {
+		return parallelPool;
+	}
+
+	public int getParallelChunkSize() {
+		return parallelChunkSize;
 	}
 
 	@Override
@@ -212,27 +784,69 @@ public class World extends BasicGameState {
 	}
 
 	/**
-	 * Add entity to world and sort entity in z order
+	 * Add entity to world. Entities of the game layer are kept in z order, see
+	 * {@link Entity#depth}. The entity is added at the end of the current
+	 * update step, or at the start of the next step when the world is not
+	 * being updated. Can be called from any thread.
 	 * 
 	 * @param e
 	 *            entity to add
+	 * @param flags
+	 *            optional layer: {@link #BELOW}, {@link #GAME} or
+	 *            {@link #ABOVE}
 	 */
 	public void add(Entity e, int... flags) {
 		e.setWorld(this);
-		if (flags.length == 1) {
-			switch (flags[0]) {
-				case BELOW :
-					belowCamera.add(e);
-					break;
-				case GAME :
-					addable.add(e);
-					break;
-				case ABOVE :
-					aboveCamera.add(e);
-					break;
+		int layer = flags.length == 1 ? flags[0] : GAME;
+		if (layer != BELOW && layer != ABOVE)
+			layer = GAME;
+		record(CommandBuffer.ADD, e, null, layer, null);
+	}
+
+	/**
+	 * Change the depth of an entity at the end of the current update step.
+	 * Can be called from any thread.
+	 */
+	public void setDepth(Entity e, int depth) {
+		record(CommandBuffer.DEPTH, e, null, depth, null);
+	}
+
+	/**
+	 * Move an entity to another layer at the end of the current update step.
+	 * Can be called from any thread.
+	 * 
+	 * @param layer
+	 *            {@link #BELOW}, {@link #GAME} or {@link #ABOVE}
+	 */
+	public void setLayer(Entity e, int layer) {
+		if (layer != BELOW && layer != GAME && layer != ABOVE)
+			throw new IllegalArgumentException("Unknown layer " + layer);
+		record(CommandBuffer.LAYER, e, null, layer, null);
+	}
+
+	/**
+	 * Replace the collision types of an entity at the end of the current
+	 * update step. Can be called from any thread.
+	 */
+	public void setTypes(Entity e, String... types) {
+		record(CommandBuffer.TYPES, e, null, 0, types);
+	}
+
+	/**
+	 * Record a change for the end of the current step. Entities updated in
+	 * parallel record into the list of their chunk, which keeps the order of
+	 * their changes independent of the threads.
+	 */
+	private void record(int kind, Entity e, Entity other, int value,
+			String[] types) {
+		if (parallelPhase) {
+			CommandList changes = deferred.get();
+			if (changes != null) {
+				changes.record(kind, e, other, value, types);
+				return;
 			}
-		} else
-			addable.add(e);
+		}
+		commands.record(kind, e, other, value, types);
 	}
 
 	public void addAll(Collection<Entity> e, int... flags) {
@@ -242,7 +856,8 @@ public class World extends BasicGameState {
 	}
 
 	/**
-	 * @return List of entities currently in this world
+	 * @return read only list of entities currently in this world, ordered by
+	 *         depth
 	 */
 	public List<Entity> getEntities() {
 		return entities;
@@ -255,42 +870,53 @@ public class World extends BasicGameState {
 	 * @return number of entities of the given type in this world
 	 */
 	public int getNrOfEntities(String type) {
-		if (entities.size() > 0) {
-			int number = 0;
-			for (Entity entity : entities) {
-				if (entity.isType(type))
-					number++;
-			}
-			return number;
-		}
-		return 0;
+		return typeIndex.count(type);
 	}
 
+	/**
+	 * @return read only view of the entities of the given type in this world
+	 */
 	public List<Entity> getEntities(String type) {
-		if (entities.size() > 0) {
-			List<Entity> res = new ArrayList<Entity>();
-			for (Entity entity : entities) {
-				if (entity.isType(type))
-					res.add(entity);
-			}
-			return res;
-		}
-		return new ArrayList<Entity>();
+		return typeIndex.get(type);
 	}
 
 	/**
+	 * Remove an entity at the end of the current update step. Can be called
+	 * from any thread.
+	 * 
 	 * @param entity
 	 *            to remove from game
 	 * @return false if entity is already set to be remove
 	 */
 	public boolean remove(Entity entity) {
-		if (!removable.contains(entity)) {
-			return removable.add(entity);
+		if (!entity.signForRemoval())
+			return false;
+		record(CommandBuffer.REMOVE, entity, null, 0, null);
+		return true;
+	}
+
+	/**
+	 * Drop every entity that is signed for removal from the list, keeping the
+	 * order of the other entities.
+	 */
+	private static void removeSigned(List<Entity> list) {
+		int size = list.size();
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			Entity entity = list.get(i);
+			if (!entity.isRemovalPending()) {
+				list.set(kept++, entity);
+			}
 		}
-		return false;
+		if (kept < size)
+			list.subList(kept, size).clear();
 	}
 
 	/**
+	 * Look up an entity by name, ignoring case. Entities of the game layer
+	 * come first, in depth order, then the entities waiting to be added, then
+	 * the entities above and finally below the camera.
+	 * 
 	 * @param name
 	 * @return null if name is null or if no entity is found in game, entity
 	 *         otherwise
@@ -298,45 +924,260 @@ public class World extends BasicGameState {
 	public Entity find(String name) {
 		if (name == null)
 			return null;
-		for (Entity entity : entities) {
-			if (entity.name != null && entity.name.equalsIgnoreCase(name)) {
-				return entity;
-			}
-		}
-		// also look in addable list
-		for (Entity entity : addable) {
-			if (entity.name != null && entity.name.equalsIgnoreCase(name)) {
-				return entity;
+		List<Entity> named = nameIndex.get(name);
+		Entity first = null;
+		Entity outside = null;
+		int outsideCount = 0;
+		for (int i = 0; i < named.size(); i++) {
+			Entity entity = named.get(i);
+			if (entities.contains(entity)) {
+				if (first == null || entities.isBefore(entity, first))
+					first = entity;
+			} else {
+				outside = entity;
+				outsideCount++;
 			}
 		}
-		// and look in aboveCamera and belowCamera list
-		for (Entity entity : aboveCamera) {
-			if (entity.name != null && entity.name.equalsIgnoreCase(name)) {
-				return entity;
-			}
+		if (first != null)
+			return first;
+		// also look in the entities waiting to be added
+		Entity added = commands.findAdded(name);
+		if (added != null)
+			return added;
+		if (outsideCount > 1) {
+			// the index does not know the order of the camera layers
+			outside = firstNamed(aboveCamera, name);
+			if (outside == null)
+				outside = firstNamed(belowCamera, name);
 		}
-		for (Entity entity : belowCamera) {
-			if (entity.name != null && entity.name.equalsIgnoreCase(name)) {
+		return outside;
+	}
+
+	private static Entity firstNamed(List<Entity> list, String name) {
+		for (Entity entity : list) {
+			if (entity.name != null && entity.name.equalsIgnoreCase(name))
 				return entity;
-			}
 		}
 		return null;
 	}
 
+	/**
+	 * @return read only view of the entities of every layer with the given
+	 *         name, ignoring case. Entities waiting to be added are not
+	 *         included.
+	 */
+	public List<Entity> findAll(String name) {
+		return nameIndex.get(name);
+	}
+
 	/**
 	 * Remove all entities
 	 */
 	public void clear() {
+		nameIndex.removeAll(entities);
+		nameIndex.removeAll(belowCamera);
+		nameIndex.removeAll(aboveCamera);
 		for (Entity entity : entities) {
+			spatialHash.remove(entity);
+			typeIndex.remove(entity);
 			entity.removedFromWorld();
+			EntityPool.release(entity);
 		}
+		nameIndex.clear();
+		spatialHash.clear();
+		tree.clear();
+		typeIndex.clear();
+		if (contacts != null)
+			contacts.clear();
 		belowCamera.clear();
 		aboveCamera.clear();
 		entities.clear();
-		addable.clear();
+		for (Command command = commands.next(); command != null; command = commands
+				.next()) {
+			if (command.kind == CommandBuffer.REMOVE)
+				command.entity.setRemovalPending(false);
+		}
+		commands.finishDrain();
+		for (Entity entity : removable) {
+			entity.setRemovalPending(false);
+		}
 		removable.clear();
 	}
 
+	/**
+	 * Update the collision grid, the bounds tree and the hit shape for an
+	 * entity that was moved, turned or scaled outside of its own update call,
+	 * for example by another entity. Without this call collision checks and
+	 * queries only find the entity at its new position after its next update
+	 * or at the end of the current step.
+	 */
+	public void refresh(Entity entity) {
+		// thread safe entities are refreshed after the parallel update
+		if (parallelPhase && deferred.get() != null)
+			return;
+		spatialHash.update(entity);
+		tree.update(entity);
+	}
+
+	/**
+	 * this method is called automatically by the collide methods of Entity
+	 * and must not be called by your game code.
+	 * 
+	 * @return true if the collision responses are called later, because the
+	 *         colliding entity is updated in parallel
+	 */
+	public boolean deferCollision(Entity entity, Entity other) {
+		if (!parallelPhase)
+			return false;
+		CommandList changes = deferred.get();
+		if (changes == null)
+			return false;
+		changes.record(CommandBuffer.COLLISION, entity, other, 0, null);
+		return true;
+	}
+
+	/**
+	 * @return the broadphase used for collision checks in the game layer
+	 */
+	public SpatialHash getSpatialHash() {
+		return spatialHash;
+	}
+
+	/**
+	 * @return the bounds of the entities in the game layer, used for shape
+	 *         and point queries and to find the entities in view of the camera
+	 */
+	public AABBTree getAABBTree() {
+		return tree;
+	}
+
+	/**
+	 * @return the entities of the game layer by collision type
+	 */
+	public TypeIndex getTypeIndex() {
+		return typeIndex;
+	}
+
+	/**
+	 * @return the entities of every layer by name
+	 */
+	public NameIndex getNameIndex() {
+		return nameIndex;
+	}
+
+	/**
+	 * @return width and height in pixels of a single cell of the collision
+	 *         grid
+	 */
+	public int getCellSize() {
+		return spatialHash.getCellSize();
+	}
+
+	/**
+	 * Change the width and height of the cells of the collision grid. A good
+	 * cell size is about the size of the most common hitbox, eg. one or two
+	 * tiles.
+	 * 
+	 * @param cellSize
+	 *            width and height of a cell in pixels
+	 */
+	public void setCellSize(int cellSize) {
+		if (cellSize == spatialHash.getCellSize())
+			return;
+		SpatialHash resized = new SpatialHash(cellSize);
+		for (Entity entity : entities) {
+			spatialHash.remove(entity);
+			resized.insert(entity);
+		}
+		spatialHash = resized;
+	}
+
+	/**
+	 * Only update the entities of the game layer near the camera every step.
+	 * Entities further away are suspended or updated at a reduced rate,
+	 * depending on their {@link Entity#updatePolicy}, so the cost of an
+	 * update grows with the screen instead of with the level.
+	 * 
+	 * @param region
+	 *            the region around the camera, null to update every entity
+	 *            every step
+	 */
+	public void setActivationRegion(ActivationRegion region) {
+		this.activation = region;
+	}
+
+	public ActivationRegion getActivationRegion() {
+		return activation;
+	}
+
+	/**
+	 * Stream a large level into this world around the camera. The streamer
+	 * is updated after the camera in every update.
+	 * 
+	 * @param streamer
+	 *            the streamer, null to stop streaming. The chunks already in
+	 *            the world stay.
+	 */
+	public void setChunkStreamer(ChunkStreamer streamer) {
+		this.streamer = streamer;
+	}
+
+	public ChunkStreamer getChunkStreamer() {
+		return streamer;
+	}
+
+	/**
+	 * Collide the entities with the solid tiles of a level. The tiles are
+	 * tested by every collide call, before the entities in the world.
+	 * 
+	 * @param tiles
+	 *            the tiles, null to remove them
+	 */
+	public void setTileCollisionLayer(TileCollisionLayer tiles) {
+		this.tiles = tiles;
+		if (tiles != null)
+			tiles.setWorld(this);
+	}
+
+	public TileCollisionLayer getTileCollisionLayer() {
+		return tiles;
+	}
+
+	/**
+	 * Find the overlapping entities of the game layer once at the end of
+	 * every step and notify them with {@link Entity#collisionEnter(Entity)},
+	 * {@link Entity#collisionStay(Entity)} and
+	 * {@link Entity#collisionExit(Entity)}. Every overlapping pair is
+	 * notified once, instead of on every collide call. Calling collide still
+	 * notifies {@link Entity#collisionResponse(Entity)} as before.
+	 * 
+	 * @param enabled
+	 *            true to find the pairs in every step
+	 */
+	public void setCollisionEvents(boolean enabled) {
+		if (enabled && contacts == null) {
+			contacts = new SweepAndPrune();
+			for (Entity entity : entities) {
+				contacts.insert(entity);
+			}
+		} else if (!enabled && contacts != null) {
+			contacts.clear();
+			contacts = null;
+		}
+	}
+
+	public boolean hasCollisionEvents() {
+		return contacts != null;
+	}
+
+	/**
+	 * @return the pairs of overlapping entities, null if collision events are
+	 *         not enabled
+	 */
+	public SweepAndPrune getSweepAndPrune() {
+		return contacts;
+	}
+
 	public void setCamera(Camera camera) {
 		this.camera = camera;
 		this.camera.setMyWorld(this);
@@ -350,6 +1191,48 @@ public class World extends BasicGameState {
 		this.camera.setFollow(entity);
 	}
 
+	/**
+	 * @return the context made current while this world is updated or
+	 *         rendered
+	 */
+	public EngineContext getContext() {
+		return context;
+	}
+
+	/**
+	 * @see #World(int, EngineContext)
+	 */
+	public void setContext(EngineContext context) {
+		this.context = context;
+	}
+
+	/**
+	 * @return the input read by the entities of this world: the input set
+	 *         with {@link #setInput(Input)} or else the input of the
+	 *         container. null when there is neither.
+	 */
+	public Input getInput() {
+		if (inputProvider != null)
+			return inputProvider;
+		return container == null ? null : container.getInput();
+	}
+
+	/**
+	 * Read input from the given provider instead of from the game container,
+	 * for example to script the input of a world that runs without a display.
+	 * Entities added afterwards and the commands of this world use the new
+	 * input.
+	 * 
+	 * @see HeadlessRunner
+	 */
+	public void setInput(Input input) {
+		this.inputProvider = input;
+		if (this.input == null)
+			this.input = new InputManager(input);
+		else
+			this.input.setInputProvider(input);
+	}
+
 	public int getWidth() {
 		return width;
 	}
@@ -378,15 +1261,9 @@ public class World extends BasicGameState {
 	public List<Entity> findEntityWithType(String type) {
 		if (type == null) {
 			Log.error("Parameter must be not null");
-			return new ArrayList<Entity>();
-		}
-		List<Entity> result = new ArrayList<Entity>();
-		for (Entity entity : entities) {
-			if (entity.isType(type)) {
-				result.add(entity);
-			}
+			return Collections.emptyList();
 		}
-		return result;
+		return typeIndex.get(type);
 	}
 
 	/**
@@ -395,27 +1272,191 @@ public class World extends BasicGameState {
 	 * @return true if an entity is already in position
 	 */
 	public boolean isEmpty(int x, int y, int depth) {
-		Rectangle rect;
-		for (Entity entity : entities) {
-			rect = new Rectangle(entity.x, entity.y, entity.width,
-					entity.height);
-			if (entity.depth == depth && rect.contains(x, y)) {
-				return false;
+		List<Entity> candidates = spatialHash.obtain();
+		try {
+			tree.query(x, y, x, y, candidates);
+			for (int i = 0; i < candidates.size(); i++) {
+				Entity entity = candidates.get(i);
+				if (entity.depth == depth && contains(entity, x, y))
+					return false;
 			}
+			return true;
+		} finally {
+			spatialHash.free(candidates);
 		}
-		return true;
 	}
 
+	/**
+	 * @return the first entity of the game layer containing the point, null
+	 *         if there is none
+	 */
 	public Entity find(int x, int y) {
-		Rectangle rect;
-		for (Entity entity : entities) {
-			rect = new Rectangle(entity.x, entity.y, entity.width,
-					entity.height);
-			if (rect.contains(x, y)) {
-				return entity;
+		List<Entity> candidates = spatialHash.obtain();
+		try {
+			tree.query(x, y, x, y, candidates);
+			Entity found = null;
+			for (int i = 0; i < candidates.size(); i++) {
+				Entity entity = candidates.get(i);
+				if (contains(entity, x, y)
+						&& (found == null || entities.isBefore(entity, found)))
+					found = entity;
 			}
+			return found;
+		} finally {
+			spatialHash.free(candidates);
 		}
-		return null;
+	}
+
+	/**
+	 * @return true if the point is inside the rectangle of the entity, points
+	 *         on its edges are not
+	 */
+	private static boolean contains(Entity entity, int x, int y) {
+		return x > entity.x && y > entity.y && x < entity.x + entity.width
+				&& y < entity.y + entity.height;
+	}
+
+	/**
+	 * Cast a ray from x0,y0 to x1,y1 and find the first solid tile or
+	 * collidable entity of a type in the mask it enters. Entities whose hitbox
+	 * contains the start of the ray are not hit, so a ray can start at the
+	 * center of an entity. Walks the tiles and the cells of the collision grid
+	 * along the ray, nearest first, and does not allocate.
+	 * 
+	 * @param result
+	 *            receives the entity hit, the distance to it and the point
+	 *            where the ray enters it. If nothing is hit the entity is null
+	 *            and the point is the end of the ray.
+	 * @return result
+	 */
+	public RayHit raycast(float x0, float y0, float x1, float y1,
+			long typeMask, RayHit result) {
+		float dx = x1 - x0;
+		float dy = y1 - y0;
+		Entity blocker = null;
+		float limit = 1;
+		if (tiles != null && tiles.collidable
+				&& (tiles.getTypeBits() & typeMask) != 0) {
+			float t = tiles.raycast(x0, y0, dx, dy);
+			if (t >= 0) {
+				blocker = tiles;
+				limit = t;
+			}
+		}
+		if (!spatialHash.raycast(x0, y0, dx, dy, typeMask, limit, result))
+			result.set(blocker, x0, y0, dx, dy, limit);
+		return result;
+	}
+
+	/**
+	 * @return true if no solid tile or collidable entity of a type in the
+	 *         mask is between the two points
+	 * @see #raycast(float, float, float, float, long, RayHit)
+	 */
+	public boolean lineOfSight(float x0, float y0, float x1, float y1,
+			long typeMask) {
+		RayHit hit = raycast(x0, y0, x1, y1, typeMask, sightHits.get());
+		boolean free = hit.entity == null;
+		hit.entity = null;
+		return free;
+	}
+
+	/**
+	 * @return true if the ray from the center of the hitbox of one entity to
+	 *         the center of the other does not hit a solid tile or collidable
+	 *         entity of a type in the mask before the other entity
+	 */
+	public boolean lineOfSight(Entity from, Entity to, long typeMask) {
+		RayHit hit = raycast(from.x + from.hitboxOffsetX + from.hitboxWidth
+				/ 2f, from.y + from.hitboxOffsetY + from.hitboxHeight / 2f, to.x
+				+ to.hitboxOffsetX + to.hitboxWidth / 2f, to.y
+				+ to.hitboxOffsetY + to.hitboxHeight / 2f, typeMask,
+				sightHits.get());
+		boolean free = hit.entity == null || hit.entity == to;
+		hit.entity = null;
+		return free;
+	}
+
+	/**
+	 * @param typeMask
+	 *            the bits of the types to look for, 0 for any type
+	 * @return the entity of the game layer whose hitbox center is nearest to
+	 *         the point, null if there is none within maxDistance
+	 * @see #kNearest(float, float, long, float, Entity[])
+	 */
+	public Entity nearest(float x, float y, long typeMask, float maxDistance) {
+		Entity[] hits = nearestHits.get();
+		if (kNearest(x, y, typeMask, maxDistance, hits) == 0)
+			return null;
+		Entity nearest = hits[0];
+		hits[0] = null;
+		return nearest;
+	}
+
+	/**
+	 * Find the entities of the game layer whose hitbox center is nearest to
+	 * the point. The entities are taken from the type index if there are only
+	 * a few of the types, otherwise the collision grid is searched from the
+	 * point outwards. Does not allocate.
+	 * 
+	 * @param typeMask
+	 *            the bits of the types to look for, 0 for any type
+	 * @param result
+	 *            receives the nearest entities, nearest first. Its length is
+	 *            the number of entities to find.
+	 * @return the number of entities found
+	 */
+	public int kNearest(float x, float y, long typeMask, float maxDistance,
+			Entity[] result) {
+		if (!fewOfTypes(typeMask))
+			return spatialHash.nearest(x, y, typeMask, maxDistance, result);
+		List<Entity> candidates = spatialHash.obtain();
+		try {
+			typeIndex.collect(typeMask, candidates);
+			return SpatialHash.nearest(candidates, x, y, typeMask,
+					maxDistance, result);
+		} finally {
+			spatialHash.free(candidates);
+		}
+	}
+
+	/**
+	 * Pass every entity of the game layer whose hitbox center is at most
+	 * radius away from the point to the consumer. Does not allocate.
+	 */
+	public void withinRadius(float x, float y, float radius,
+			EntityConsumer consumer) {
+		withinRadius(x, y, radius, 0, consumer);
+	}
+
+	/**
+	 * @param typeMask
+	 *            the bits of the types to look for, 0 for any type
+	 * @see #withinRadius(float, float, float, EntityConsumer)
+	 */
+	public void withinRadius(float x, float y, float radius, long typeMask,
+			EntityConsumer consumer) {
+		if (!fewOfTypes(typeMask)) {
+			spatialHash.withinRadius(x, y, radius, typeMask, consumer);
+			return;
+		}
+		List<Entity> candidates = spatialHash.obtain();
+		try {
+			typeIndex.collect(typeMask, candidates);
+			SpatialHash.withinRadius(candidates, x, y, radius, typeMask,
+					consumer);
+		} finally {
+			spatialHash.free(candidates);
+		}
+	}
+
+	/**
+	 * @return true if scanning the entities of the types is cheaper than a
+	 *         search of the collision grid
+	 */
+	private boolean fewOfTypes(long typeMask) {
+		return typeMask != 0
+				&& typeIndex.count(typeMask) <= TypeIndex.SCAN_LIMIT;
 	}
 
 	/**
@@ -460,4 +1501,4 @@ public class World extends BasicGameState {
 		return input.isPressed(command);
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
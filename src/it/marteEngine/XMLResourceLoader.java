@@ -1,5 +1,7 @@
 package it.marteEngine;
 
+import it.marteEngine.entity.AnimationClip;
+
 import org.newdawn.slick.AngelCodeFont;
 import org.newdawn.slick.Animation;
 import org.newdawn.slick.BigImage;
@@ -252,6 +254,13 @@ public class XMLResourceLoader {
 		anim.setLooping(loop);
 		Log.debug(formatLoadMsg("animation", key, "spritesheet", imgName));
 		ResourceManager.addAnimation(key, anim);
+		// the same frames, for entities that share the animation
+		Image[] images = new Image[anim.getFrameCount()];
+		for (int i = 0; i < images.length; i++) {
+			images[i] = anim.getImage(i);
+		}
+		ResourceManager.addClip(key, new AnimationClip(images,
+				anim.getDurations(), loop));
 	}
 
 	private int[] readFrameIndexes(String framesAsText) {
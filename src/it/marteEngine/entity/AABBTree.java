@@ -0,0 +1,457 @@
+package it.marteEngine.entity;
+
+import java.util.List;
+
+/**
+ * Dynamic bounding volume tree over the x, y, width, height rectangles of
+ * the entities of a World. Every entity is a leaf, every inner node bounds
+ * its two children, so a query only descends into the parts of the tree
+ * that overlap the queried area.
+ *
+ * The box stored for an entity is fattened by a margin. An entity that moves
+ * inside its fattened box does not change the tree, see
+ * {@link #update(Entity)}. Queries return the entities whose fattened box
+ * overlaps the area, callers test the exact rectangle. The tree is kept
+ * balanced by rotations, like the dynamic tree of Box2D.
+ */
+public class AABBTree {
+
+	/** default distance the box of an entity is fattened on every side */
+	public static final float DEFAULT_MARGIN = 16;
+
+	private static final int NULL = -1;
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final float margin;
+
+	private float[] minX = new float[INITIAL_CAPACITY];
+	private float[] minY = new float[INITIAL_CAPACITY];
+	private float[] maxX = new float[INITIAL_CAPACITY];
+	private float[] maxY = new float[INITIAL_CAPACITY];
+	/** parent of a node, or next free node for unused nodes */
+	private int[] parent = new int[INITIAL_CAPACITY];
+	private int[] left = new int[INITIAL_CAPACITY];
+	private int[] right = new int[INITIAL_CAPACITY];
+	/** 0 for leaves, -1 for unused nodes */
+	private int[] height = new int[INITIAL_CAPACITY];
+	private Entity[] owner = new Entity[INITIAL_CAPACITY];
+
+	private int root = NULL;
+	private int free = NULL;
+	private int nodeCount;
+	private int size;
+
+	public AABBTree() {
+		this(DEFAULT_MARGIN);
+	}
+
+	/**
+	 * @param margin
+	 *            distance the box of an entity is fattened on every side.
+	 *            Larger margins mean fewer changes to the tree for moving
+	 *            entities, but more candidates for queries.
+	 */
+	public AABBTree(float margin) {
+		if (margin < 0)
+			throw new IllegalArgumentException("Margin must be >= 0, was "
+					+ margin);
+		this.margin = margin;
+	}
+
+	/**
+	 * Add an entity, does nothing if it is already in this tree
+	 */
+	public void insert(Entity entity) {
+		if (entity.treeProxy != NULL)
+			return;
+		int leaf = allocate();
+		setFatBox(leaf, entity);
+		owner[leaf] = entity;
+		height[leaf] = 0;
+		insertLeaf(leaf);
+		entity.treeProxy = leaf;
+		size++;
+	}
+
+	public void remove(Entity entity) {
+		int leaf = entity.treeProxy;
+		if (leaf == NULL)
+			return;
+		removeLeaf(leaf);
+		release(leaf);
+		entity.treeProxy = NULL;
+		size--;
+	}
+
+	/**
+	 * Remove many entities. When more than an eighth of the tree goes the
+	 * leaves are unlinked without fixing the boxes above them, and every
+	 * box is fixed in a single pass afterwards.
+	 */
+	public void removeAll(List<Entity> entities) {
+		if (entities.size() * 8 <= size) {
+			for (int i = 0; i < entities.size(); i++)
+				remove(entities.get(i));
+			return;
+		}
+		for (int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			int leaf = entity.treeProxy;
+			if (leaf == NULL)
+				continue;
+			unlinkLeaf(leaf);
+			release(leaf);
+			entity.treeProxy = NULL;
+			size--;
+		}
+		if (root != NULL)
+			refitAll(root);
+	}
+
+	/**
+	 * Move the leaf of an entity that left its fattened box
+	 *
+	 * @return true if the tree changed
+	 */
+	public boolean update(Entity entity) {
+		int leaf = entity.treeProxy;
+		if (leaf == NULL)
+			return false;
+		if (entity.x >= minX[leaf] && entity.y >= minY[leaf]
+				&& entity.x + entity.width <= maxX[leaf]
+				&& entity.y + entity.height <= maxY[leaf])
+			return false;
+		removeLeaf(leaf);
+		setFatBox(leaf, entity);
+		insertLeaf(leaf);
+		return true;
+	}
+
+	/**
+	 * Remove every entity
+	 */
+	public void clear() {
+		for (int node = 0; node < nodeCount; node++) {
+			if (owner[node] != null) {
+				owner[node].treeProxy = NULL;
+				owner[node] = null;
+			}
+		}
+		root = NULL;
+		free = NULL;
+		nodeCount = 0;
+		size = 0;
+	}
+
+	/**
+	 * Add the entities whose fattened box overlaps or touches the area to
+	 * the result. Does not allocate.
+	 */
+	public void query(float minX, float minY, float maxX, float maxY,
+			List<Entity> result) {
+		if (root != NULL)
+			query(root, minX, minY, maxX, maxY, result);
+	}
+
+	private void query(int node, float qMinX, float qMinY, float qMaxX,
+			float qMaxY, List<Entity> result) {
+		if (minX[node] > qMaxX || maxX[node] < qMinX || minY[node] > qMaxY
+				|| maxY[node] < qMinY)
+			return;
+		if (left[node] == NULL) {
+			result.add(owner[node]);
+		} else {
+			query(left[node], qMinX, qMinY, qMaxX, qMaxY, result);
+			query(right[node], qMinX, qMinY, qMaxX, qMaxY, result);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the height of the tree, 0 if it has one or no entity
+	 */
+	public int getHeight() {
+		return root == NULL ? 0 : height[root];
+	}
+
+	public float getMargin() {
+		return margin;
+	}
+
+	@Override
+	public String toString() {
+		return "AABBTree[entities=" + size + ", height=" + getHeight() + "]";
+	}
+
+	private void setFatBox(int leaf, Entity entity) {
+		minX[leaf] = entity.x - margin;
+		minY[leaf] = entity.y - margin;
+		maxX[leaf] = entity.x + entity.width + margin;
+		maxY[leaf] = entity.y + entity.height + margin;
+	}
+
+	private int allocate() {
+		int node;
+		if (free != NULL) {
+			node = free;
+			free = parent[node];
+		} else {
+			if (nodeCount == height.length)
+				grow();
+			node = nodeCount++;
+		}
+		parent[node] = NULL;
+		left[node] = NULL;
+		right[node] = NULL;
+		return node;
+	}
+
+	private void release(int node) {
+		owner[node] = null;
+		height[node] = -1;
+		parent[node] = free;
+		free = node;
+	}
+
+	private void grow() {
+		int capacity = height.length * 2;
+		minX = copy(minX, capacity);
+		minY = copy(minY, capacity);
+		maxX = copy(maxX, capacity);
+		maxY = copy(maxY, capacity);
+		parent = copy(parent, capacity);
+		left = copy(left, capacity);
+		right = copy(right, capacity);
+		height = copy(height, capacity);
+		Entity[] owners = new Entity[capacity];
+		System.arraycopy(owner, 0, owners, 0, owner.length);
+		owner = owners;
+	}
+
+	private static float[] copy(float[] values, int capacity) {
+		float[] copy = new float[capacity];
+		System.arraycopy(values, 0, copy, 0, values.length);
+		return copy;
+	}
+
+	private static int[] copy(int[] values, int capacity) {
+		int[] copy = new int[capacity];
+		System.arraycopy(values, 0, copy, 0, values.length);
+		return copy;
+	}
+
+	private void insertLeaf(int leaf) {
+		if (root == NULL) {
+			root = leaf;
+			parent[leaf] = NULL;
+			return;
+		}
+
+		// descend to the sibling that grows the perimeters the least
+		int node = root;
+		while (left[node] != NULL) {
+			float area = perimeter(node);
+			float combined = unionPerimeter(node, leaf);
+			// cost of a new parent for this node and the leaf
+			float cost = 2 * combined;
+			// cost of pushing the leaf further down the tree
+			float inheritance = 2 * (combined - area);
+			float costLeft = childCost(left[node], leaf) + inheritance;
+			float costRight = childCost(right[node], leaf) + inheritance;
+			if (cost < costLeft && cost < costRight)
+				break;
+			node = costLeft < costRight ? left[node] : right[node];
+		}
+
+		int sibling = node;
+		int oldParent = parent[sibling];
+		int newParent = allocate();
+		parent[newParent] = oldParent;
+		owner[newParent] = null;
+		setUnion(newParent, sibling, leaf);
+		height[newParent] = height[sibling] + 1;
+		if (oldParent != NULL) {
+			if (left[oldParent] == sibling)
+				left[oldParent] = newParent;
+			else
+				right[oldParent] = newParent;
+		} else {
+			root = newParent;
+		}
+		left[newParent] = sibling;
+		right[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+
+		refit(parent[leaf]);
+	}
+
+	private void removeLeaf(int leaf) {
+		int grandParent = unlinkLeaf(leaf);
+		if (grandParent != NULL)
+			refit(grandParent);
+	}
+
+	/**
+	 * Take a leaf out of the tree, its sibling takes the place of their
+	 * parent. The boxes and heights above are not fixed.
+	 *
+	 * @return the node above the sibling, NULL if the sibling is the root
+	 */
+	private int unlinkLeaf(int leaf) {
+		if (leaf == root) {
+			root = NULL;
+			return NULL;
+		}
+		int oldParent = parent[leaf];
+		int grandParent = parent[oldParent];
+		int sibling = left[oldParent] == leaf ? right[oldParent]
+				: left[oldParent];
+		if (grandParent != NULL) {
+			if (left[grandParent] == oldParent)
+				left[grandParent] = sibling;
+			else
+				right[grandParent] = sibling;
+		} else {
+			root = sibling;
+		}
+		parent[sibling] = grandParent;
+		release(oldParent);
+		return grandParent;
+	}
+
+	/**
+	 * Fix the boxes and heights of node and every node below it
+	 */
+	private void refitAll(int node) {
+		int a = left[node];
+		if (a == NULL)
+			return;
+		int b = right[node];
+		refitAll(a);
+		refitAll(b);
+		height[node] = 1 + Math.max(height[a], height[b]);
+		setUnion(node, a, b);
+	}
+
+	/**
+	 * Balance the nodes from node up to the root and fix their boxes and
+	 * heights
+	 */
+	private void refit(int node) {
+		while (node != NULL) {
+			node = balance(node);
+			int a = left[node];
+			int b = right[node];
+			height[node] = 1 + Math.max(height[a], height[b]);
+			setUnion(node, a, b);
+			node = parent[node];
+		}
+	}
+
+	/**
+	 * Rotate the higher child of a up if the heights of its children differ
+	 * by more than one
+	 *
+	 * @return the node now at the place of a
+	 */
+	private int balance(int a) {
+		if (left[a] == NULL || height[a] < 2)
+			return a;
+		int b = left[a];
+		int c = right[a];
+		int balance = height[c] - height[b];
+		if (balance > 1) {
+			int f = left[c];
+			int g = right[c];
+			left[c] = a;
+			replaceChild(a, c);
+			if (height[f] > height[g]) {
+				right[c] = f;
+				right[a] = g;
+				parent[g] = a;
+				setUnion(a, b, g);
+				setUnion(c, a, f);
+				height[a] = 1 + Math.max(height[b], height[g]);
+				height[c] = 1 + Math.max(height[a], height[f]);
+			} else {
+				right[c] = g;
+				right[a] = f;
+				parent[f] = a;
+				setUnion(a, b, f);
+				setUnion(c, a, g);
+				height[a] = 1 + Math.max(height[b], height[f]);
+				height[c] = 1 + Math.max(height[a], height[g]);
+			}
+			return c;
+		}
+		if (balance < -1) {
+			int d = left[b];
+			int e = right[b];
+			left[b] = a;
+			replaceChild(a, b);
+			if (height[d] > height[e]) {
+				right[b] = d;
+				left[a] = e;
+				parent[e] = a;
+				setUnion(a, c, e);
+				setUnion(b, a, d);
+				height[a] = 1 + Math.max(height[c], height[e]);
+				height[b] = 1 + Math.max(height[a], height[d]);
+			} else {
+				right[b] = e;
+				left[a] = d;
+				parent[d] = a;
+				setUnion(a, c, d);
+				setUnion(b, a, e);
+				height[a] = 1 + Math.max(height[c], height[d]);
+				height[b] = 1 + Math.max(height[a], height[e]);
+			}
+			return b;
+		}
+		return a;
+	}
+
+	/**
+	 * Put child, a child of node, at the place of node, and make node a child
+	 * of child
+	 */
+	private void replaceChild(int node, int child) {
+		int up = parent[node];
+		parent[child] = up;
+		parent[node] = child;
+		if (up == NULL)
+			root = child;
+		else if (left[up] == node)
+			left[up] = child;
+		else
+			right[up] = child;
+	}
+
+	private float childCost(int child, int leaf) {
+		float cost = unionPerimeter(child, leaf);
+		if (left[child] != NULL)
+			cost -= perimeter(child);
+		return cost;
+	}
+
+	private float perimeter(int node) {
+		return 2 * (maxX[node] - minX[node] + maxY[node] - minY[node]);
+	}
+
+	private float unionPerimeter(int a, int b) {
+		float dx = Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]);
+		float dy = Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]);
+		return 2 * (dx + dy);
+	}
+
+	private void setUnion(int node, int a, int b) {
+		minX[node] = Math.min(minX[a], minX[b]);
+		minY[node] = Math.min(minY[a], minY[b]);
+		maxX[node] = Math.max(maxX[a], maxX[b]);
+		maxY[node] = Math.max(maxY[a], maxY[b]);
+	}
+}
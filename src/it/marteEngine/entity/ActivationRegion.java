@@ -0,0 +1,181 @@
+package it.marteEngine.entity;
+
+import it.marteEngine.Camera;
+
+import org.newdawn.slick.geom.Rectangle;
+
+/**
+ * The area around the camera in which entities of the game layer are updated
+ * every step. Outside of it an entity is handled by its
+ * {@link Entity#updatePolicy}: entities with {@link Entity#UPDATE_ALWAYS} are
+ * still updated every step, {@link Entity#UPDATE_NEAR_CAMERA} entities are
+ * suspended including their alarms, and {@link Entity#UPDATE_REDUCED}
+ * entities are updated every few steps with the time of the skipped steps
+ * added to their delta. Their alarms catch up on the skipped steps.
+ *
+ * A world without a camera updates every entity every step.
+ *
+ * @see it.marteEngine.World#setActivationRegion(ActivationRegion)
+ */
+public class ActivationRegion {
+
+	/** pixels around the visible area of the camera that are still active */
+	private int margin;
+	/** an entity updated at a reduced rate is updated every this many steps */
+	private int reducedRate;
+
+	private float left, top, right, bottom;
+	/** false while there is no camera, every entity is active then */
+	private boolean bounded;
+	private int step;
+	private int nextPhase;
+
+	/** entities updated, skipped and suspended in the last step */
+	private int updated, skipped, suspended;
+
+	/**
+	 * @param margin
+	 *            pixels around the visible area of the camera in which
+	 *            entities are updated every step
+	 * @param reducedRate
+	 *            entities with {@link Entity#UPDATE_REDUCED} outside of the
+	 *            region are updated once every this many steps
+	 */
+	public ActivationRegion(int margin, int reducedRate) {
+		setMargin(margin);
+		setReducedRate(reducedRate);
+	}
+
+	/**
+	 * this method is called automatically by the World and must not be called
+	 * by your game code. Moves the region to the camera at the start of a
+	 * step.
+	 *
+	 * @param camera
+	 *            the camera of the world, can be null
+	 */
+	public void startStep(Camera camera) {
+		step++;
+		updated = 0;
+		skipped = 0;
+		suspended = 0;
+		if (camera == null) {
+			bounded = false;
+			return;
+		}
+		Rectangle visible = camera.getVisibleRect();
+		left = visible.getX() - margin;
+		top = visible.getY() - margin;
+		right = visible.getX() + visible.getWidth() + margin;
+		bottom = visible.getY() + visible.getHeight() + margin;
+		bounded = true;
+	}
+
+	/**
+	 * this method is called automatically by the World and must not be called
+	 * by your game code. An entity with a reduced rate that is not due
+	 * remembers the skipped step, so it can catch up on its next update.
+	 *
+	 * @return true if the entity is updated in this step
+	 */
+	public boolean isDue(Entity e, int delta) {
+		if (!bounded || e.updatePolicy == Entity.UPDATE_ALWAYS || contains(e)) {
+			updated++;
+			return true;
+		}
+		if (e.updatePolicy == Entity.UPDATE_NEAR_CAMERA) {
+			suspended++;
+			return false;
+		}
+		if (e.updatePhase < 0)
+			e.updatePhase = nextPhase++ % reducedRate;
+		if ((step + e.updatePhase) % reducedRate == 0) {
+			updated++;
+			return true;
+		}
+		e.skippedSteps++;
+		e.skippedDelta += delta;
+		e.stepStarted();
+		skipped++;
+		return false;
+	}
+
+	/**
+	 * this method is called automatically by the World and must not be called
+	 * by your game code.
+	 *
+	 * @return the number of steps skipped by the entity since its last
+	 *         update, forgetting them
+	 */
+	public static int takeSkippedSteps(Entity e) {
+		int steps = e.skippedSteps;
+		e.skippedSteps = 0;
+		return steps;
+	}
+
+	/**
+	 * this method is called automatically by the World and must not be called
+	 * by your game code.
+	 *
+	 * @return the time in ms skipped by the entity since its last update,
+	 *         forgetting it
+	 */
+	public static int takeSkippedDelta(Entity e) {
+		int delta = e.skippedDelta;
+		e.skippedDelta = 0;
+		return delta;
+	}
+
+	/**
+	 * @return true if the bounds of the entity overlap this region
+	 */
+	public boolean contains(Entity e) {
+		return e.x < right && e.x + e.width > left && e.y < bottom
+				&& e.y + e.height > top;
+	}
+
+	public int getMargin() {
+		return margin;
+	}
+
+	public void setMargin(int margin) {
+		if (margin < 0)
+			throw new IllegalArgumentException("Margin must be >= 0, was "
+					+ margin);
+		this.margin = margin;
+	}
+
+	public int getReducedRate() {
+		return reducedRate;
+	}
+
+	public void setReducedRate(int reducedRate) {
+		if (reducedRate < 1)
+			throw new IllegalArgumentException(
+					"Reduced rate must be > 0, was " + reducedRate);
+		this.reducedRate = reducedRate;
+	}
+
+	/** @return number of entities updated in the last step */
+	public int getUpdated() {
+		return updated;
+	}
+
+	/**
+	 * @return number of entities with a reduced rate that were not updated
+	 *         in the last step
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/** @return number of suspended entities in the last step */
+	public int getSuspended() {
+		return suspended;
+	}
+
+	public String toString() {
+		return "updated: " + updated + ", skipped: " + skipped
+				+ ", suspended: " + suspended;
+	}
+}
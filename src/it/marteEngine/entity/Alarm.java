@@ -91,19 +91,39 @@ public class Alarm {
 	 * called by World if alarm is active. Don't mess around with it.
 	 */
 	public boolean update(int delta) {
+		return update(delta, 1);
+	}
+
+	/**
+	 * called by World if alarm is active. Don't mess around with it.
+	 * 
+	 * @param steps
+	 *            number of update calls covered by delta, more than one for an
+	 *            entity that is updated at a reduced rate
+	 */
+	public boolean update(int delta, int steps) {
 		if (this.triggeredExternal)
 			return true;
 		if (this.triggerTime != FOREVER) {
 			if (ME.useDeltaTiming)
 				this.counter += delta;
 			else
-				this.counter++;
+				this.counter += steps;
 			if (this.counter >= this.triggerTime)
 				return true;
 		}
 		return false;
 	}
 
+	/**
+	 * @return true if the counter is still past the trigger time, eg. after
+	 *         a restart that followed a long update
+	 */
+	public boolean isDue() {
+		return triggerTime != FOREVER && triggerTime > 0
+				&& counter >= triggerTime;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -27,13 +27,22 @@ public class AlarmContainer {
 	}
 
 	public void update(int delta) {
+		update(delta, 1);
+	}
+
+	/**
+	 * Update the alarms for several update calls at once, as done for an
+	 * entity that is updated at a reduced rate. A looping alarm is triggered
+	 * once for every period that passed.
+	 */
+	public void update(int delta, int steps) {
 		List<String> deadAlarms = null;
 		Set<String> alarmNames = alarms.keySet();
 
 		for (String alarmName : alarmNames) {
 			Alarm alarm = alarms.get(alarmName);
 			if (alarm.isActive()) {
-				updateActiveAlarm(alarm, delta);
+				updateActiveAlarm(alarm, delta, steps);
 			}
 			if (alarm.isDead()) {
 				if (deadAlarms == null) {
@@ -56,18 +65,29 @@ public class AlarmContainer {
 		}
 	}
 
-	private void updateActiveAlarm(Alarm alarm, int delta) {
-		boolean retval = alarm.update(delta);
-		if (retval) {
+	private void updateActiveAlarm(Alarm alarm, int delta, int steps) {
+		boolean retval = alarm.update(delta, steps);
+		while (retval) {
 			entity.alarmTriggered(alarm.getName());
 			if (alarm.isOneShotAlaram()) {
 				alarm.setActive(false);
-			} else {
-				alarm.start();
+				return;
 			}
+			alarm.start();
+			// catching up on several updates triggers every period that passed
+			retval = steps > 1 && alarm.isActive() && !alarm.isDead()
+					&& alarm.isDue();
 		}
 	}
 
+	/**
+	 * Remove all alarms
+	 */
+	public void clear() {
+		alarms.clear();
+		alarmsToAdd.clear();
+	}
+
 	public boolean restartAlarm(String name) {
 		Alarm alarm = alarms.get(name);
 		if (alarm != null) {
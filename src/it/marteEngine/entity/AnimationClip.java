@@ -0,0 +1,128 @@
+package it.marteEngine.entity;
+
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SpriteSheet;
+
+/**
+ * The frames of an animation and how long each is shown. A clip does not
+ * change and holds no playback state, so one clip can be shared by any
+ * number of entities. Every entity keeps its own position in the clip in an
+ * {@link AnimationPlayer}, see
+ * {@link Entity#addAnimation(String, AnimationClip)}.
+ */
+public class AnimationClip {
+
+	private final Image[] frames;
+	/** ms every frame is shown */
+	private final int[] durations;
+	private final boolean looping;
+	private final int totalDuration;
+
+	/**
+	 * @param durations
+	 *            ms every frame is shown, at least 1
+	 */
+	public AnimationClip(Image[] frames, int[] durations, boolean looping) {
+		if (frames.length == 0)
+			throw new IllegalArgumentException("A clip needs a frame");
+		if (frames.length != durations.length)
+			throw new IllegalArgumentException(frames.length + " frames but "
+					+ durations.length + " durations");
+		int total = 0;
+		for (int duration : durations) {
+			if (duration < 1)
+				throw new IllegalArgumentException(
+						"Frame duration must be >= 1, was " + duration);
+			total += duration;
+		}
+		this.frames = frames.clone();
+		this.durations = durations.clone();
+		this.looping = looping;
+		this.totalDuration = total;
+	}
+
+	/**
+	 * A clip that shows every frame for the same duration
+	 */
+	public AnimationClip(int duration, boolean looping, Image... frames) {
+		this(frames, fill(frames.length, duration), looping);
+	}
+
+	/**
+	 * @return a clip of the sprites of a row of the sheet
+	 */
+	public static AnimationClip fromSheet(SpriteSheet sheet, int row,
+			int duration, boolean looping, int... frames) {
+		return fromSheet(sheet, row, duration, looping, false, false, frames);
+	}
+
+	/**
+	 * @return a clip of the sprites of a row of the sheet, flipped
+	 *         horizontally and/or vertically
+	 */
+	public static AnimationClip fromSheet(SpriteSheet sheet, int row,
+			int duration, boolean looping, boolean flipHorizontal,
+			boolean flipVertical, int... frames) {
+		Image[] images = new Image[frames.length];
+		for (int i = 0; i < frames.length; i++) {
+			images[i] = sheet.getSprite(frames[i], row);
+			if (flipHorizontal || flipVertical)
+				images[i] = images[i].getFlippedCopy(flipHorizontal,
+						flipVertical);
+		}
+		return new AnimationClip(duration, looping, images);
+	}
+
+	private static int[] fill(int length, int duration) {
+		int[] durations = new int[length];
+		for (int i = 0; i < length; i++)
+			durations[i] = duration;
+		return durations;
+	}
+
+	public int getFrameCount() {
+		return frames.length;
+	}
+
+	public Image getFrame(int frame) {
+		return frames[frame];
+	}
+
+	/**
+	 * @return ms the frame is shown
+	 */
+	public int getDuration(int frame) {
+		return durations[frame];
+	}
+
+	/**
+	 * @return ms all frames are shown
+	 */
+	public int getTotalDuration() {
+		return totalDuration;
+	}
+
+	public boolean isLooping() {
+		return looping;
+	}
+
+	/**
+	 * @return the width of the first frame
+	 */
+	public int getWidth() {
+		return frames[0].getWidth();
+	}
+
+	/**
+	 * @return the height of the first frame
+	 */
+	public int getHeight() {
+		return frames[0].getHeight();
+	}
+
+	@Override
+	public String toString() {
+		return "AnimationClip[frames=" + frames.length + ", duration="
+				+ totalDuration + ", looping=" + looping + "]";
+	}
+}
@@ -0,0 +1,74 @@
+package it.marteEngine.entity;
+
+import org.newdawn.slick.Image;
+
+/**
+ * Position of one entity in a shared {@link AnimationClip}: the frame shown
+ * and how long it has been shown. The clip is passed to every call, so the
+ * player is only an int and a float.
+ */
+public class AnimationPlayer {
+
+	private int frame;
+	/** ms the frame has been shown */
+	private float time;
+
+	/**
+	 * Advance by delta ms. A looping clip starts over after its last frame,
+	 * any other clip stops at its last frame.
+	 */
+	public void update(AnimationClip clip, float delta) {
+		time += delta;
+		int duration = clip.getDuration(frame);
+		if (time < duration)
+			return;
+		int last = clip.getFrameCount() - 1;
+		// whole rounds through the clip end on the same frame
+		if (clip.isLooping() && time >= clip.getTotalDuration())
+			time %= clip.getTotalDuration();
+		while (time >= duration) {
+			if (frame == last) {
+				if (!clip.isLooping()) {
+					time = duration;
+					return;
+				}
+				frame = 0;
+			} else {
+				frame++;
+			}
+			time -= duration;
+			duration = clip.getDuration(frame);
+		}
+	}
+
+	/**
+	 * Go back to the first frame
+	 */
+	public void restart() {
+		frame = 0;
+		time = 0;
+	}
+
+	/**
+	 * @return the index of the frame shown
+	 */
+	public int getFrame() {
+		return frame;
+	}
+
+	/**
+	 * @return the image of the frame shown
+	 */
+	public Image getImage(AnimationClip clip) {
+		return clip.getFrame(frame);
+	}
+
+	/**
+	 * @return true if the clip does not loop and its last frame has been
+	 *         shown for its whole duration
+	 */
+	public boolean isFinished(AnimationClip clip) {
+		return !clip.isLooping() && frame == clip.getFrameCount() - 1
+				&& time >= clip.getDuration(frame);
+	}
+}
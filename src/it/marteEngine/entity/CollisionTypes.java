@@ -0,0 +1,120 @@
+package it.marteEngine.entity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns collision type names like {@link Entity#SOLID} to small integer
+ * ids. The first 64 types also get a bit in a 64 bit type mask, so checking
+ * an entity against any number of types is a single AND operation:
+ *
+ * <pre>
+ * long enemies = CollisionTypes.mask(&quot;bat&quot;, &quot;slime&quot;);
+ * Entity hit = bullet.collide(enemies, x, y);
+ * </pre>
+ *
+ * Types registered after the first 64 still work with the String based
+ * methods of Entity, but have no bit and are checked by name.
+ */
+public final class CollisionTypes {
+
+	/** number of types that get a bit in a type mask */
+	public static final int MAX_MASK_TYPES = 64;
+
+	/** a mask that matches every type */
+	public static final long ALL = -1L;
+
+	/** lookups don't lock, only registering a new type does */
+	private static final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private static volatile String[] names = new String[0];
+
+	static {
+		id(Entity.SOLID);
+		id(Entity.PLAYER);
+	}
+
+	private CollisionTypes() {
+	}
+
+	/**
+	 * @return the id of the type, registering the type if it is new
+	 */
+	public static int id(String type) {
+		Integer id = ids.get(type);
+		if (id != null)
+			return id;
+		synchronized (CollisionTypes.class) {
+			id = ids.get(type);
+			if (id == null) {
+				String[] grown = new String[names.length + 1];
+				System.arraycopy(names, 0, grown, 0, names.length);
+				id = names.length;
+				grown[id] = type;
+				names = grown;
+				ids.put(type, id);
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * @return the id of the type or -1 if the type is null or was never
+	 *         registered
+	 */
+	public static int find(String type) {
+		if (type == null)
+			return -1;
+		Integer id = ids.get(type);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @return the name of the type with the given id
+	 */
+	public static String name(int id) {
+		return names[id];
+	}
+
+	/**
+	 * @return the bit of the type, registering the type if it is new. 0 if
+	 *         the type has no bit.
+	 */
+	public static long bit(String type) {
+		return bitOf(id(type));
+	}
+
+	/**
+	 * @return the bit of a type with the given id, 0 if the type has no bit
+	 */
+	public static long bitOf(int id) {
+		if (id < 0 || id >= MAX_MASK_TYPES)
+			return 0;
+		return 1L << id;
+	}
+
+	/**
+	 * @return a mask with the bits of all the given types, registering new
+	 *         types
+	 * @throws IllegalArgumentException
+	 *             if one of the types has no bit
+	 */
+	public static long mask(String... types) {
+		long mask = 0;
+		for (String type : types) {
+			long bit = bit(type);
+			if (bit == 0)
+				throw new IllegalArgumentException("Type " + type
+						+ " has no bit, only " + MAX_MASK_TYPES
+						+ " types fit into a mask");
+			mask |= bit;
+		}
+		return mask;
+	}
+
+	/**
+	 * @return the number of registered types
+	 */
+	public static int size() {
+		return names.length;
+	}
+}
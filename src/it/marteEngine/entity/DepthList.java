@@ -0,0 +1,311 @@
+package it.marteEngine.entity;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * Entities ordered by depth. The entities are kept in one bucket per depth,
+ * the buckets are sorted by depth. Adding an entity or changing its depth
+ * only touches a single bucket, so the list never has to be sorted again.
+ * Inside a bucket entities keep the order in which they were added.
+ *
+ * Removed entities are only marked, the buckets they were in are compacted
+ * with {@link #compact()}. The list itself is read only for users of
+ * {@link it.marteEngine.World#getEntities()}.
+ */
+public class DepthList extends AbstractList<Entity> {
+
+	private final TreeMap<Integer, Bucket> buckets = new TreeMap<Integer, Bucket>();
+	/** buckets containing removed entities */
+	private final List<Bucket> dirty = new ArrayList<Bucket>();
+	private int size;
+	/** counts the insertions, gives the entities of a bucket their order */
+	private long insertions;
+	/** the entities in order for {@link #get(int)}, reused */
+	private Entity[] flat = new Entity[0];
+	/** false once the list changed after flat was filled */
+	private boolean flatValid;
+	/** scratch space of {@link #sort(List)} */
+	private Entity[] sorted = new Entity[0];
+	private Entity[] merged = new Entity[0];
+
+	/**
+	 * Add an entity behind all entities of the same depth. Does nothing if the
+	 * entity is already in this list.
+	 */
+	public void insert(Entity e) {
+		if (e.depthBucket != null)
+			return;
+		Bucket bucket = buckets.get(e.depth);
+		if (bucket == null) {
+			bucket = new Bucket(e.depth);
+			buckets.put(e.depth, bucket);
+		} else if (bucket.dirty) {
+			// make sure the entity is not listed twice in the same bucket
+			bucket.compact();
+		}
+		bucket.add(e);
+		e.depthBucket = bucket;
+		e.depthOrder = insertions++;
+		size++;
+		flatValid = false;
+	}
+
+	/**
+	 * Take an entity out of this list. The entity stays in its bucket until
+	 * {@link #compact()} is called, but is no longer counted and not returned
+	 * by iterators.
+	 */
+	public void delete(Entity e) {
+		Bucket bucket = e.depthBucket;
+		if (bucket == null)
+			return;
+		e.depthBucket = null;
+		size--;
+		flatValid = false;
+		if (!bucket.dirty) {
+			bucket.dirty = true;
+			dirty.add(bucket);
+		}
+	}
+
+	/**
+	 * @return true if the entity is in this list, without walking the list
+	 */
+	@Override
+	public boolean contains(Object o) {
+		// an entity is in the depth list of at most one world
+		return o instanceof Entity && ((Entity) o).depthBucket != null;
+	}
+
+	/**
+	 * @return true if the depth of the entity changed since it was added
+	 */
+	public boolean isOutOfOrder(Entity e) {
+		return e.depthBucket != null && e.depthBucket.depth != e.depth;
+	}
+
+	/**
+	 * Move an entity to the bucket of its current depth. Must not be called
+	 * while iterating over this list.
+	 */
+	public void reorder(Entity e) {
+		if (!isOutOfOrder(e))
+			return;
+		delete(e);
+		insert(e);
+	}
+
+	/**
+	 * Drop removed entities from their buckets and forget empty buckets. Must
+	 * not be called while iterating over this list.
+	 */
+	public void compact() {
+		for (int i = 0; i < dirty.size(); i++) {
+			Bucket bucket = dirty.get(i);
+			if (!bucket.dirty)
+				continue;
+			bucket.compact();
+			if (bucket.count == 0 && buckets.get(bucket.depth) == bucket)
+				buckets.remove(bucket.depth);
+		}
+		dirty.clear();
+	}
+
+	/**
+	 * Sort entities of this list in the order they are iterated, so a part
+	 * of the list can be walked without walking all of it. Does not allocate
+	 * once the scratch space is large enough.
+	 */
+	public void sort(List<Entity> entities) {
+		int count = entities.size();
+		if (count < 2)
+			return;
+		if (sorted.length < count) {
+			sorted = new Entity[count * 2];
+			merged = new Entity[count * 2];
+		}
+		for (int i = 0; i < count; i++)
+			sorted[i] = entities.get(i);
+		Entity[] result = mergeSort(sorted, merged, count);
+		for (int i = 0; i < count; i++) {
+			entities.set(i, result[i]);
+			sorted[i] = null;
+			merged[i] = null;
+		}
+	}
+
+	/**
+	 * Bottom up merge sort, stable and without allocation
+	 * 
+	 * @return the array holding the sorted entities
+	 */
+	private Entity[] mergeSort(Entity[] from, Entity[] to, int count) {
+		for (int width = 1; width < count; width *= 2) {
+			for (int start = 0; start < count; start += 2 * width) {
+				int middle = Math.min(start + width, count);
+				int end = Math.min(start + 2 * width, count);
+				int a = start, b = middle;
+				for (int i = start; i < end; i++) {
+					if (a < middle && (b >= end || !isBefore(from[b], from[a])))
+						to[i] = from[a++];
+					else
+						to[i] = from[b++];
+				}
+			}
+			Entity[] swap = from;
+			from = to;
+			to = swap;
+		}
+		return from;
+	}
+
+	/**
+	 * @return true if entity a is iterated before entity b, both must be in
+	 *         this list
+	 */
+	public boolean isBefore(Entity a, Entity b) {
+		int depthA = a.depthBucket.depth;
+		int depthB = b.depthBucket.depth;
+		if (depthA != depthB)
+			return depthA < depthB;
+		return a.depthOrder < b.depthOrder;
+	}
+
+	/**
+	 * Remove every entity from this list
+	 */
+	@Override
+	public void clear() {
+		for (Bucket bucket : buckets.values()) {
+			for (int i = 0; i < bucket.count; i++) {
+				if (bucket.entities[i].depthBucket == bucket)
+					bucket.entities[i].depthBucket = null;
+			}
+		}
+		buckets.clear();
+		dirty.clear();
+		size = 0;
+		Arrays.fill(flat, null);
+		flatValid = false;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The first call after the list changed copies the entities into an
+	 * array in depth order, later calls are a lookup in that array.
+	 */
+	@Override
+	public Entity get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		if (!flatValid) {
+			if (flat.length < size)
+				flat = new Entity[size * 2];
+			int i = 0;
+			for (Entity e : this)
+				flat[i++] = e;
+			// let go of the entities that were removed
+			while (i < flat.length && flat[i] != null)
+				flat[i++] = null;
+			flatValid = true;
+		}
+		return flat[index];
+	}
+
+	@Override
+	public Iterator<Entity> iterator() {
+		return new DepthIterator();
+	}
+
+	/** iterates the buckets in depth order, skipping removed entities */
+	private class DepthIterator implements Iterator<Entity> {
+		private final Iterator<Bucket> bucketIterator = buckets.values()
+				.iterator();
+		private Bucket bucket;
+		private int index;
+		private Entity next;
+
+		private DepthIterator() {
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			while (true) {
+				if (bucket != null) {
+					while (index < bucket.count) {
+						Entity e = bucket.entities[index++];
+						if (e.depthBucket == bucket) {
+							next = e;
+							return;
+						}
+					}
+				}
+				if (!bucketIterator.hasNext())
+					return;
+				bucket = bucketIterator.next();
+				index = 0;
+			}
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public Entity next() {
+			if (next == null)
+				throw new NoSuchElementException();
+			Entity e = next;
+			advance();
+			return e;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/** entities of a single depth in order of insertion */
+	static final class Bucket {
+		private final int depth;
+		private Entity[] entities = new Entity[8];
+		private int count;
+		private boolean dirty;
+
+		private Bucket(int depth) {
+			this.depth = depth;
+		}
+
+		private void add(Entity e) {
+			if (count == entities.length) {
+				Entity[] bigger = new Entity[count * 2];
+				System.arraycopy(entities, 0, bigger, 0, count);
+				entities = bigger;
+			}
+			entities[count++] = e;
+		}
+
+		private void compact() {
+			int kept = 0;
+			for (int i = 0; i < count; i++) {
+				if (entities[i].depthBucket == this)
+					entities[kept++] = entities[i];
+			}
+			for (int i = kept; i < count; i++)
+				entities[i] = null;
+			count = kept;
+			dirty = false;
+		}
+	}
+}
@@ -2,28 +2,31 @@ package it.marteEngine.entity;
 
 import it.marteEngine.ME;
 import it.marteEngine.StateManager;
+import it.marteEngine.Trig;
 import it.marteEngine.World;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.newdawn.slick.Animation;
 import org.newdawn.slick.Color;
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Image;
+import org.newdawn.slick.Input;
 import org.newdawn.slick.SlickException;
 import org.newdawn.slick.SpriteSheet;
 import org.newdawn.slick.geom.Rectangle;
 import org.newdawn.slick.geom.Shape;
 import org.newdawn.slick.geom.Vector2f;
 
-//TODO modify hitbox coordinates to a real shape without changing method interface.
-//TODO a shape can be rotated and scaled when the entity is rotated and scaled.
 public abstract class Entity implements Comparable<Entity> {
 
 	/** default collidable type SOLID */
@@ -35,12 +38,23 @@ public abstract class Entity implements Comparable<Entity> {
 	/** the world this entity lives in */
 	public World world = null;
 
-	/** unique identifier */
+	/**
+	 * unique identifier. Once the entity is added to a world rename it with
+	 * {@link #setName(String)} only. The world indexes entities by name, if
+	 * this field is assigned instead {@link World#find(String)} finds the
+	 * entity by its old name, not by the new one.
+	 */
 	public String name;
 
-	/** x position */
+	/**
+	 * x position. The world indexes entities by position after their update.
+	 * When another entity or the game moves this entity, call
+	 * {@link World#refresh(Entity)} or use {@link #setPosition(Vector2f)},
+	 * otherwise collision checks and queries find it at its old position
+	 * until its next update or the end of the step.
+	 */
 	public float x;
-	/** y position */
+	/** y position, see {@link #x} */
 	public float y;
 
 	/**
@@ -82,16 +96,32 @@ public abstract class Entity implements Comparable<Entity> {
 
 	/**
 	 * color of the entity, mainly used for alpha transparency, but could also
-	 * be used for tinting
+	 * be used for tinting. Created on first use, null means white.
 	 */
-	private Color color = new Color(Color.white);
+	private Color color;
 
+	/** created when the first alarm is added */
 	private AlarmContainer alarms;
 
 	protected SpriteSheet sheet;
-	private Map<String, Animation> animations = new HashMap<String, Animation>();
+	/** created when the first animation is added */
+	private Map<String, Animation> animations;
+	/**
+	 * names of the shared animations and their clips, created when the first
+	 * one is added. Arrays instead of a map, entities have few animations.
+	 */
+	private String[] clipNames;
+	private AnimationClip[] clips;
+	/** the clip of currentAnim, null if currentAnim is an Animation */
+	private AnimationClip currentClip;
+	/** position in the current clip */
+	private AnimationPlayer clipPlayer;
 	private String currentAnim;
 	public int duration = 200;
+	/**
+	 * z order of this entity, entities with a higher depth are rendered on
+	 * top. A changed depth takes effect at the end of the world update.
+	 */
 	public int depth = -1;
 
 	/** static image for non-animated entity */
@@ -99,22 +129,101 @@ public abstract class Entity implements Comparable<Entity> {
 
 	public InputManager input;
 
-	/** The types this entity can collide with */
-	private HashSet<String> collisionTypes = new HashSet<String>();
+	/**
+	 * The types this entity can collide with that don't fit in a type mask,
+	 * created when the first of them is added
+	 */
+	private HashSet<String> overflowTypes;
+	/**
+	 * bits of the types of this entity, see {@link CollisionTypes}. Holds all
+	 * types except the overflow types.
+	 */
+	private long typeBits;
+	/** only types in this mask are checked by the collide methods */
+	private long collisionMask = CollisionTypes.ALL;
+
+	/**
+	 * updated every step, see {@link #updatePolicy}
+	 */
+	public static final int UPDATE_ALWAYS = 0;
+	/**
+	 * only updated inside the activation region of the world, suspended
+	 * elsewhere
+	 */
+	public static final int UPDATE_NEAR_CAMERA = 1;
+	/**
+	 * updated every step inside the activation region of the world, at a
+	 * reduced rate elsewhere
+	 */
+	public static final int UPDATE_REDUCED = 2;
+
+	/**
+	 * how this entity is updated when the world has an activation region, see
+	 * {@link ActivationRegion}
+	 */
+	public int updatePolicy = UPDATE_ALWAYS;
 
 	/** true if this entity can receive updates */
 	public boolean active = true;
 	public boolean collidable = true;
 	public boolean visible = true;
+	/**
+	 * true if this entity may be updated at the same time as other thread
+	 * safe entities when the world runs a parallel update, see
+	 * {@link World#setParallelUpdate(java.util.concurrent.ForkJoinPool)}. A
+	 * thread safe entity only changes its own fields, may read entities that
+	 * are not thread safe and the world, and does not change its collision
+	 * types or take entities from a shared pool. Adding and removing
+	 * entities and collision responses are safe, they are applied after the
+	 * parallel update.
+	 */
+	public boolean threadSafe = false;
 
 	public float hitboxOffsetX;
 	public float hitboxOffsetY;
 	public int hitboxWidth;
 	public int hitboxHeight;
+	/**
+	 * hitbox rotated and scaled with this entity, null for the axis aligned
+	 * hitbox. The hitbox fields hold its bounds.
+	 */
+	private HitShape hitShape;
 
 	public StateManager stateManager;
 	private boolean leftTheWorld;
 
+	/** cells covered by this entity in the spatial hash of the world */
+	int cellMinX, cellMinY, cellMaxX, cellMaxY;
+	boolean inSpatialHash;
+	/** true while this entity is listed in the type index of the world */
+	boolean inTypeIndex;
+	/** true while this entity is listed in the name index of the world */
+	boolean inNameIndex;
+	/** name folded to its key in the name index, null if not listed */
+	String nameKey;
+	/** bucket of the depth list of the world this entity is in */
+	DepthList.Bucket depthBucket;
+	/** 1 while this entity waits to be removed from the world */
+	private volatile int removalPending;
+	private static final AtomicIntegerFieldUpdater<Entity> REMOVAL_PENDING = AtomicIntegerFieldUpdater
+			.newUpdater(Entity.class, "removalPending");
+	/** position at the start of the last world update step */
+	private float stepStartX, stepStartY;
+	/** steps and time in ms skipped while updated at a reduced rate */
+	int skippedSteps, skippedDelta;
+	/** spreads the reduced rate updates over the steps, -1 until assigned */
+	int updatePhase = -1;
+	/** index in the {@link SweepAndPrune} of the world, -1 if not in it */
+	int sapIndex = -1;
+	/** leaf in the {@link AABBTree} of the world, -1 if not in it */
+	int treeProxy = -1;
+	/** order of insertion into its bucket of the {@link DepthList} */
+	long depthOrder;
+	/** pool this entity was obtained from, null if not pooled */
+	EntityPool<?> pool;
+	/** true while this entity is free in its pool */
+	boolean pooled;
+
 	/**
 	 * Create a new entity positioned at the (x,y) coordinates.
 	 */
@@ -123,8 +232,9 @@ public abstract class Entity implements Comparable<Entity> {
 		this.y = y;
 		this.startx = x;
 		this.starty = y;
+		this.stepStartX = x;
+		this.stepStartY = y;
 		stateManager = new StateManager();
-		alarms = new AlarmContainer(this);
 		input = new InputManager();
 	}
 
@@ -146,11 +256,17 @@ public abstract class Entity implements Comparable<Entity> {
 			whalf = currentImage.getWidth() / 2;
 			hhalf = currentImage.getHeight() / 2;
 		}
-		if (currentAnim != null) {
+		if (currentClip != null) {
+			whalf = clipPlayer.getImage(currentClip).getWidth() / 2;
+			hhalf = clipPlayer.getImage(currentClip).getHeight() / 2;
+		} else if (currentAnim != null) {
 			whalf = animations.get(currentAnim).getWidth() / 2;
 			hhalf = animations.get(currentAnim).getHeight() / 2;
 		}
-		if (center) {
+		if (hitShape != null) {
+			// a hit shape is relative to x,y and does not move
+			this.centered = center;
+		} else if (center) {
 			// modify hitbox position accordingly - move it a bit up and left
 			this.hitboxOffsetX -= whalf;
 			this.hitboxOffsetY -= hhalf;
@@ -184,6 +300,10 @@ public abstract class Entity implements Comparable<Entity> {
 	}
 
 	protected void updateAnimation(int delta) {
+		if (currentClip != null) {
+			clipPlayer.update(currentClip, delta);
+			return;
+		}
 		if (animations != null) {
 			if (currentAnim != null) {
 				Animation anim = animations.get(currentAnim);
@@ -200,25 +320,36 @@ public abstract class Entity implements Comparable<Entity> {
 			stateManager.render(g);
 			return;
 		}
-		float xpos = x, ypos = y;
+		float drawX = getRenderX();
+		float drawY = getRenderY();
+		float xpos = drawX, ypos = drawY;
 		if (currentAnim != null) {
-			Animation anim = animations.get(currentAnim);
-			int w = anim.getWidth();
-			int h = anim.getHeight();
+			Image frame = null;
+			Animation anim = null;
+			if (currentClip != null)
+				frame = clipPlayer.getImage(currentClip);
+			else
+				anim = animations.get(currentAnim);
+			int w = frame != null ? frame.getWidth() : anim.getWidth();
+			int h = frame != null ? frame.getHeight() : anim.getHeight();
 			int whalf = w / 2;
 			int hhalf = h / 2;
 			if (centered) {
-				xpos = x - (whalf * scale);
-				ypos = y - (hhalf * scale);
+				xpos = drawX - (whalf * scale);
+				ypos = drawY - (hhalf * scale);
 			}
 			if (angle != 0) {
-				g.rotate(x, y, angle);
+				g.rotate(drawX, drawY, angle);
 			}
-			anim.draw(xpos, ypos, w * scale, h * scale, color);
+			Color tint = color != null ? color : Color.white;
+			if (frame != null)
+				frame.draw(xpos, ypos, w * scale, h * scale, tint);
+			else
+				anim.draw(xpos, ypos, w * scale, h * scale, tint);
 			if (angle != 0)
 				g.resetTransform();
 		} else if (currentImage != null) {
-			currentImage.setAlpha(color.a);
+			currentImage.setAlpha(getAlpha());
 			int w = currentImage.getWidth() / 2;
 			int h = currentImage.getHeight() / 2;
 			if (centered) {
@@ -245,15 +376,25 @@ public abstract class Entity implements Comparable<Entity> {
 		}
 		if (ME.debugEnabled && collidable) {
 			g.setColor(ME.borderColor);
-			Rectangle hitBox = new Rectangle(x + hitboxOffsetX, y
-					+ hitboxOffsetY, hitboxWidth, hitboxHeight);
-			g.draw(hitBox);
+			if (hitShape != null) {
+				refreshHitShape();
+				float[] points = hitShape.getPoints();
+				for (int i = 0; i < points.length; i += 2) {
+					int next = (i + 2) % points.length;
+					g.drawLine(drawX + points[i], drawY + points[i + 1], drawX
+							+ points[next], drawY + points[next + 1]);
+				}
+			} else {
+				Rectangle hitBox = new Rectangle(drawX + hitboxOffsetX, drawY
+						+ hitboxOffsetY, hitboxWidth, hitboxHeight);
+				g.draw(hitBox);
+			}
 			g.setColor(Color.white);
-			g.drawRect(x, y, 1, 1);
+			g.drawRect(drawX, drawY, 1, 1);
 			// draw entity center
 			if (width != 0 && height != 0) {
-				float centerX = x + width / 2;
-				float centerY = y + height / 2;
+				float centerX = drawX + width / 2;
+				float centerY = drawY + height / 2;
 				g.setColor(Color.green);
 				g.drawRect(centerX, centerY, 1, 1);
 				g.setColor(Color.white);
@@ -322,10 +463,41 @@ public abstract class Entity implements Comparable<Entity> {
 	 * animation.
 	 */
 	public void addAnimation(String animName, Animation animation) {
-		boolean firstAnim = animations.isEmpty();
+		if (animations == null)
+			animations = new HashMap<String, Animation>(4);
 		animations.put(animName, animation);
+		removeClip(animName);
+
+		if (currentAnim == null || currentAnim.equals(animName)) {
+			setAnim(animName);
+		}
+	}
+
+	/**
+	 * Add a shared animation. Unlike an {@link Animation} a clip can be used
+	 * by many entities, each plays it from its own position. The first
+	 * animation added is set as the current animation.
+	 */
+	public void addAnimation(String animName, AnimationClip clip) {
+		int index = clipIndex(animName);
+		if (index < 0) {
+			if (clipNames == null) {
+				index = 0;
+				clipNames = new String[1];
+				clips = new AnimationClip[1];
+				clipPlayer = new AnimationPlayer();
+			} else {
+				index = clipNames.length;
+				clipNames = Arrays.copyOf(clipNames, index + 1);
+				clips = Arrays.copyOf(clips, index + 1);
+			}
+			clipNames[index] = animName;
+		}
+		clips[index] = clip;
+		if (animations != null)
+			animations.remove(animName);
 
-		if (firstAnim) {
+		if (currentAnim == null || currentAnim.equals(animName)) {
 			setAnim(animName);
 		}
 	}
@@ -338,17 +510,55 @@ public abstract class Entity implements Comparable<Entity> {
 	 * @throws IllegalArgumentException
 	 *             If there is no animation stored as animName
 	 * @see #addAnimation(String, Animation)
+	 * @see #addAnimation(String, AnimationClip)
 	 */
 	public void setAnim(String animName) {
-		if (!animations.containsKey(animName)) {
+		int index = clipIndex(animName);
+		if (index >= 0) {
+			AnimationClip clip = clips[index];
+			// a clip starts over when it is changed, not when it is set again
+			if (clip != currentClip)
+				clipPlayer.restart();
+			currentClip = clip;
+			currentAnim = animName;
+			width = clip.getWidth();
+			height = clip.getHeight();
+			return;
+		}
+		if (animations == null || !animations.containsKey(animName)) {
 			throw new IllegalArgumentException("No animation for " + animName);
 		}
+		currentClip = null;
 		currentAnim = animName;
 		Animation currentAnimation = animations.get(currentAnim);
 		width = currentAnimation.getWidth();
 		height = currentAnimation.getHeight();
 	}
 
+	/**
+	 * @return the index of the clip stored as animName, -1 if there is none
+	 */
+	private int clipIndex(String animName) {
+		if (clipNames != null) {
+			for (int i = 0; i < clipNames.length; i++) {
+				if (clipNames[i].equals(animName))
+					return i;
+			}
+		}
+		return -1;
+	}
+
+	private void removeClip(String animName) {
+		int index = clipIndex(animName);
+		if (index < 0)
+			return;
+		int last = clipNames.length - 1;
+		clipNames[index] = clipNames[last];
+		clips[index] = clips[last];
+		clipNames = Arrays.copyOf(clipNames, last);
+		clips = Arrays.copyOf(clips, last);
+	}
+
 	/**
 	 * @see #bindToKey(String, int...)
 	 */
@@ -409,8 +619,10 @@ public abstract class Entity implements Comparable<Entity> {
 	 *            The width of the rectangle in pixels
 	 * @param height
 	 *            The height of the rectangle in pixels
+	 * @see #setOrientedHitBox(float, float, int, int)
 	 */
 	public void setHitBox(float xOffset, float yOffset, int width, int height) {
+		this.hitShape = null;
 		this.hitboxOffsetX = xOffset;
 		this.hitboxOffsetY = yOffset;
 		this.hitboxWidth = width;
@@ -420,6 +632,75 @@ public abstract class Entity implements Comparable<Entity> {
 		this.collidable = true;
 	}
 
+	/**
+	 * Set a rectangle as hitbox that is rotated by the angle and scaled by the
+	 * scale of this entity, around its x,y position. Use it for entities that
+	 * are drawn rotated, like a missile flying in any direction.
+	 * 
+	 * @param xOffset
+	 *            The offset of the rectangle on the x axis, relative to x
+	 * @param yOffset
+	 *            The offset of the rectangle on the y axis, relative to y
+	 * @see #setHitShape(float...)
+	 */
+	public void setOrientedHitBox(float xOffset, float yOffset, int width,
+			int height) {
+		setHitShape(HitShape.box(xOffset, yOffset, width, height));
+	}
+
+	/**
+	 * Set a convex polygon as hitbox that is rotated by the angle and scaled
+	 * by the scale of this entity, around its x,y position. The hitbox fields
+	 * hold the bounds of the rotated polygon, they are tested first, so
+	 * entities far apart cost as much as with an axis aligned hitbox. Sweeps
+	 * and the tile layer only test the bounds. The polygon follows the angle
+	 * and scale after every update of this entity, call
+	 * {@link World#refresh(Entity)} when another entity turns or scales it.
+	 * 
+	 * @param points
+	 *            the corners of the polygon as x,y pairs, relative to x,y
+	 */
+	public void setHitShape(float... points) {
+		setHitShape(new HitShape(points));
+	}
+
+	/**
+	 * @param shape
+	 *            the polygon, used by this entity only. Null for the axis
+	 *            aligned hitbox, the hitbox fields keep the last bounds.
+	 */
+	public void setHitShape(HitShape shape) {
+		this.hitShape = shape;
+		this.collidable = true;
+		if (shape != null) {
+			shape.transform(angle, scale);
+			setHitBounds(shape);
+		}
+	}
+
+	/**
+	 * @return the rotated hitbox, null if the hitbox is axis aligned
+	 */
+	public HitShape getHitShape() {
+		return hitShape;
+	}
+
+	/**
+	 * Rotate and scale the hit shape if the angle or the scale changed since
+	 * the last call, and put its bounds in the hitbox fields
+	 */
+	void refreshHitShape() {
+		if (hitShape != null && hitShape.transform(angle, scale))
+			setHitBounds(hitShape);
+	}
+
+	private void setHitBounds(HitShape shape) {
+		hitboxOffsetX = shape.minX;
+		hitboxOffsetY = shape.minY;
+		hitboxWidth = (int) Math.ceil(shape.maxX - shape.minX);
+		hitboxHeight = (int) Math.ceil(shape.maxY - shape.minY);
+	}
+
 	/**
 	 * Add a type that this entity can collide with. To allow collision with
 	 * other entities add at least 1 type. For example in a space invaders game.
@@ -427,17 +708,68 @@ public abstract class Entity implements Comparable<Entity> {
 	 * ship.addType("bullet", "monster")
 	 * 
 	 * @param types
-	 *            The types that this entity can collide with.
+	 *            The types that this entity can collide with. Null types
+	 *            are ignored.
 	 */
 	public boolean addType(String... types) {
-		return collisionTypes.addAll(Arrays.asList(types));
+		boolean changed = false;
+		for (String type : types) {
+			if (type == null)
+				continue;
+			long bit = CollisionTypes.bit(type);
+			if (bit != 0) {
+				if ((typeBits & bit) != 0)
+					continue;
+				typeBits |= bit;
+			} else {
+				if (overflowTypes == null)
+					overflowTypes = new HashSet<String>(4);
+				if (!overflowTypes.add(type))
+					continue;
+			}
+			changed = true;
+			if (inTypeIndex)
+				world.getTypeIndex().typeAdded(this, type);
+		}
+		return changed;
 	}
 
 	/**
 	 * Reset the types that this entity can collide with
 	 */
 	public void clearTypes() {
-		collisionTypes.clear();
+		if (inTypeIndex)
+			world.getTypeIndex().typesCleared(this);
+		overflowTypes = null;
+		typeBits = 0;
+	}
+
+	/**
+	 * @return the bits of the types of this entity
+	 * @see CollisionTypes
+	 */
+	public long getTypeBits() {
+		return typeBits;
+	}
+
+	/**
+	 * @return the types this entity checks in the collide methods
+	 */
+	public long getCollisionMask() {
+		return collisionMask;
+	}
+
+	/**
+	 * Restrict the types this entity checks in the collide methods, for
+	 * example to put entities on collision layers. By default all types are
+	 * checked. Only types that have a bit can be filtered.
+	 * 
+	 * @param typeMask
+	 *            the bits of the types to check
+	 * @see CollisionTypes#mask(String...)
+	 */
+	public void setCollisionMask(long typeMask) {
+		this.collisionMask = typeMask;
 	}
 
 	/**
@@ -466,39 +798,56 @@ public abstract class Entity implements Comparable<Entity> {
 	public Entity collide(String type, float x, float y) {
 		if (type == null || type.isEmpty())
 			return null;
-		// offset
-		for (Entity entity : world.getEntities()) {
-			if (entity.collidable && entity.isType(type)) {
-				if (!entity.equals(this)
-						&& x + hitboxOffsetX + hitboxWidth > entity.x
-								+ entity.hitboxOffsetX
-						&& y + hitboxOffsetY + hitboxHeight > entity.y
-								+ entity.hitboxOffsetY
-						&& x + hitboxOffsetX < entity.x + entity.hitboxOffsetX
-								+ entity.hitboxWidth
-						&& y + hitboxOffsetY < entity.y + entity.hitboxOffsetY
-								+ entity.hitboxHeight) {
-					this.collisionResponse(entity);
-					entity.collisionResponse(this);
-					return entity;
-				}
-			}
+		int id = CollisionTypes.find(type);
+		if (id == -1) {
+			// no entity ever had this type
+			return null;
 		}
-		return null;
+		long bit = CollisionTypes.bitOf(id);
+		if (bit == 0)
+			return collideFirst(0, type, x, y);
+		return collide(bit, x, y);
 	}
 
 	/**
-	 * Checks for collision against multiple types.
+	 * Checks for collision against multiple types. All types are checked in
+	 * one pass.
 	 * 
 	 * @see #collide(String, float, float)
 	 */
 	public Entity collide(String[] types, float x, float y) {
+		long mask = 0;
 		for (String type : types) {
-			Entity e = collide(type, x, y);
-			if (e != null)
-				return e;
+			if (type == null || type.isEmpty())
+				continue;
+			int id = CollisionTypes.find(type);
+			if (id != -1 && CollisionTypes.bitOf(id) == 0) {
+				// a type without a bit, check the types one by one
+				for (String t : types) {
+					Entity e = collide(t, x, y);
+					if (e != null)
+						return e;
+				}
+				return null;
+			}
+			mask |= CollisionTypes.bitOf(id);
 		}
-		return null;
+		return collide(mask, x, y);
+	}
+
+	/**
+	 * Checks for collision against every type in the mask.
+	 * 
+	 * @param typeMask
+	 *            The bits of the types to check for collision
+	 * @see CollisionTypes#mask(String...)
+	 * @see #collide(String, float, float)
+	 */
+	public Entity collide(long typeMask, float x, float y) {
+		typeMask &= collisionMask;
+		if (typeMask == 0)
+			return null;
+		return collideFirst(typeMask, null, x, y);
 	}
 
 	/**
@@ -516,18 +865,10 @@ public abstract class Entity implements Comparable<Entity> {
 	 *         coordinates, or NULL if there is no collision.
 	 */
 	public Entity collideWith(Entity other, float x, float y) {
+		refreshHitShape();
 		if (other.collidable) {
-			if (!other.equals(this)
-					&& x + hitboxOffsetX + hitboxWidth > other.x
-							+ other.hitboxOffsetX
-					&& y + hitboxOffsetY + hitboxHeight > other.y
-							+ other.hitboxOffsetY
-					&& x + hitboxOffsetX < other.x + other.hitboxOffsetX
-							+ other.hitboxWidth
-					&& y + hitboxOffsetY < other.y + other.hitboxOffsetY
-							+ other.hitboxHeight) {
-				this.collisionResponse(other);
-				other.collisionResponse(this);
+			if (!other.equals(this) && overlaps(other, x, y)) {
+				respond(other);
 				return other;
 			}
 			return null;
@@ -538,29 +879,424 @@ public abstract class Entity implements Comparable<Entity> {
 	public List<Entity> collideInto(String type, float x, float y) {
 		if (type == null || type.isEmpty())
 			return null;
+		int id = CollisionTypes.find(type);
+		if (id == -1)
+			return null;
+		long bit = CollisionTypes.bitOf(id);
+		if (bit == 0)
+			return collideAll(0, type, x, y);
+		bit &= collisionMask;
+		if (bit == 0)
+			return null;
+		return collideAll(bit, null, x, y);
+	}
+
+	/**
+	 * @return all entities of a type in the mask colliding with this entity at
+	 *         the x,y coordinates, or NULL if there is no collision.
+	 * @see #collideInto(String, float, float)
+	 */
+	public List<Entity> collideInto(long typeMask, float x, float y) {
+		typeMask &= collisionMask;
+		if (typeMask == 0)
+			return null;
+		return collideAll(typeMask, null, x, y);
+	}
+
+	private Entity collideFirst(long typeMask, String type, float x, float y) {
+		refreshHitShape();
+		TileCollisionLayer tiles = collidingTiles(typeMask, type, x, y);
+		if (tiles != null) {
+			respond(tiles);
+			return tiles;
+		}
+		SpatialHash grid = world.getSpatialHash();
+		List<Entity> candidates = candidates(grid, typeMask, type, x, y);
+		try {
+			for (int i = 0; i < candidates.size(); i++) {
+				Entity entity = candidates.get(i);
+				if (entity.collidable && !entity.equals(this)
+						&& entity.matches(typeMask, type)
+						&& overlaps(entity, x, y)) {
+					respond(entity);
+					return entity;
+				}
+			}
+		} finally {
+			grid.free(candidates);
+		}
+		return null;
+	}
+
+	private List<Entity> collideAll(long typeMask, String type, float x,
+			float y) {
 		ArrayList<Entity> collidingEntities = null;
-		for (Entity entity : world.getEntities()) {
-			if (entity.collidable && entity.isType(type)) {
-				if (!entity.equals(this)
-						&& x + hitboxOffsetX + hitboxWidth > entity.x
-								+ entity.hitboxOffsetX
-						&& y + hitboxOffsetY + hitboxHeight > entity.y
-								+ entity.hitboxOffsetY
-						&& x + hitboxOffsetX < entity.x + entity.hitboxOffsetX
-								+ entity.hitboxWidth
-						&& y + hitboxOffsetY < entity.y + entity.hitboxOffsetY
-								+ entity.hitboxHeight) {
-					this.collisionResponse(entity);
-					entity.collisionResponse(this);
+		refreshHitShape();
+		TileCollisionLayer tiles = collidingTiles(typeMask, type, x, y);
+		if (tiles != null) {
+			collidingEntities = new ArrayList<Entity>();
+			collidingEntities.add(tiles);
+		}
+		SpatialHash grid = world.getSpatialHash();
+		List<Entity> candidates = candidates(grid, typeMask, type, x, y);
+		try {
+			for (int i = 0; i < candidates.size(); i++) {
+				Entity entity = candidates.get(i);
+				if (entity.collidable && !entity.equals(this)
+						&& entity.matches(typeMask, type)
+						&& overlaps(entity, x, y)) {
 					if (collidingEntities == null)
 						collidingEntities = new ArrayList<Entity>();
 					collidingEntities.add(entity);
 				}
 			}
+		} finally {
+			grid.free(candidates);
+		}
+		if (collidingEntities != null) {
+			for (Entity entity : collidingEntities) {
+				respond(entity);
+			}
 		}
 		return collidingEntities;
 	}
 
+	/**
+	 * Sweep the hitbox of this entity placed at x,y along one axis, a whole
+	 * pixel at a time, and find the first entity of a type in the mask in its
+	 * way. The whole move is one query against the broadphase, so fast
+	 * entities do not tunnel through thin ones. If an entity is in the way
+	 * both entities are notified of the collision, as with
+	 * {@link #collide(long, float, float)}.
+	 * 
+	 * @param dx
+	 *            pixels to move horizontally, dy must be 0
+	 * @param dy
+	 *            pixels to move vertically, dx must be 0
+	 * @param result
+	 *            receives the pixels this entity can move and the entity in
+	 *            the way
+	 * @return result
+	 */
+	public Sweep sweep(long typeMask, float x, float y, int dx, int dy,
+			Sweep result) {
+		if (dx != 0 && dy != 0)
+			throw new IllegalArgumentException(
+					"Sweep along one axis only, was " + dx + "," + dy);
+		result.distance = Math.abs(dx + dy);
+		result.entity = null;
+		typeMask &= collisionMask;
+		if (typeMask == 0 || result.distance == 0)
+			return result;
+		refreshHitShape();
+		float left = x + hitboxOffsetX;
+		float top = y + hitboxOffsetY;
+		float right = left + hitboxWidth;
+		float bottom = top + hitboxHeight;
+
+		TileCollisionLayer tiles = world.getTileCollisionLayer();
+		if (tiles != null && tiles != this && tiles.collidable
+				&& ((Entity) tiles).matches(typeMask, null)) {
+			int free = tiles.sweep(left, top, right, bottom, dx, dy);
+			if (free < result.distance) {
+				result.distance = free;
+				result.entity = tiles;
+			}
+		}
+		SpatialHash grid = world.getSpatialHash();
+		List<Entity> candidates = candidates(grid, typeMask, null,
+				Math.min(left, left + dx), Math.min(top, top + dy),
+				Math.max(right, right + dx), Math.max(bottom, bottom + dy));
+		try {
+			for (int i = 0; i < candidates.size(); i++) {
+				Entity entity = candidates.get(i);
+				if (entity.collidable && !entity.equals(this)
+						&& entity.matches(typeMask, null)) {
+					int free = entity.freeDistance(left, top, right, bottom,
+							dx, dy, result.distance);
+					if (free < result.distance) {
+						result.distance = free;
+						result.entity = entity;
+					}
+				}
+			}
+		} finally {
+			grid.free(candidates);
+		}
+		if (result.entity != null)
+			respond(result.entity);
+		return result;
+	}
+
+	/**
+	 * Find how far the hitbox of this entity placed at x,y can move
+	 * horizontally, a whole pixel at a time, and still stand on an entity of
+	 * a type in the mask, that is collide with it one pixel lower. Like
+	 * {@link #sweep(long, float, float, int, int, Sweep)} this is one query
+	 * against the broadphase, but the entities are not notified.
+	 * 
+	 * @param dx
+	 *            pixels to move horizontally
+	 * @return the pixels this entity can move and stand on an entity, at most
+	 *         the length of the move
+	 */
+	int groundDistance(long typeMask, float x, float y, int dx) {
+		int steps = Math.abs(dx);
+		typeMask &= collisionMask;
+		if (typeMask == 0 || steps == 0)
+			return 0;
+		refreshHitShape();
+		int direction = Integer.signum(dx);
+		float left = x + hitboxOffsetX;
+		float top = y + hitboxOffsetY + 1;
+		float right = left + hitboxWidth;
+		float bottom = top + hitboxHeight;
+		TileCollisionLayer tiles = world.getTileCollisionLayer();
+		if (tiles == this || tiles != null
+				&& (!tiles.collidable || !((Entity) tiles).matches(typeMask,
+						null)))
+			tiles = null;
+		SpatialHash grid = world.getSpatialHash();
+		List<Entity> candidates = candidates(grid, typeMask, null,
+				Math.min(left, left + dx), top, Math.max(right, right + dx),
+				bottom);
+		int supported = 0;
+		try {
+			boolean extended = true;
+			while (extended && supported < steps) {
+				extended = false;
+				int next = supported + 1;
+				if (tiles != null
+						&& tiles.overlaps(left + direction * next, top, right
+								+ direction * next, bottom)) {
+					supported = next;
+					extended = true;
+					continue;
+				}
+				for (int i = 0; i < candidates.size(); i++) {
+					Entity entity = candidates.get(i);
+					if (!entity.collidable || entity.equals(this)
+							|| !entity.matches(typeMask, null))
+						continue;
+					int last = entity.lastOverlap(left, top, right, bottom,
+							direction, next);
+					if (last > supported) {
+						supported = Math.min(last, steps);
+						extended = true;
+					}
+				}
+			}
+		} finally {
+			grid.free(candidates);
+		}
+		return supported;
+	}
+
+	/**
+	 * @return the last pixel a rectangle moved horizontally overlaps the
+	 *         hitbox of this entity, if it overlaps it after moving the first
+	 *         pixels, otherwise 0
+	 */
+	private int lastOverlap(float left, float top, float right, float bottom,
+			int direction, int first) {
+		float otherLeft = x + hitboxOffsetX;
+		float otherTop = y + hitboxOffsetY;
+		float otherRight = otherLeft + hitboxWidth;
+		float otherBottom = otherTop + hitboxHeight;
+		if (top >= otherBottom || bottom <= otherTop)
+			return 0;
+		// the rectangle moved by k pixels overlaps for k between near and far
+		float near, far;
+		if (direction > 0) {
+			near = otherLeft - right;
+			far = otherRight - left;
+		} else {
+			near = left - otherRight;
+			far = right - otherLeft;
+		}
+		if (first <= near || first >= far)
+			return 0;
+		return (int) Math.ceil(far) - 1;
+	}
+
+	/**
+	 * @return the pixels a rectangle can move along one axis before it
+	 *         overlaps the hitbox of this entity, or steps if it does not
+	 *         within steps pixels
+	 */
+	private int freeDistance(float left, float top, float right,
+			float bottom, int dx, int dy, int steps) {
+		float otherLeft = x + hitboxOffsetX;
+		float otherTop = y + hitboxOffsetY;
+		float otherRight = otherLeft + hitboxWidth;
+		float otherBottom = otherTop + hitboxHeight;
+		// the rectangle moved by k pixels overlaps for k between near and far
+		float near, far;
+		if (dx > 0) {
+			near = otherLeft - right;
+			far = otherRight - left;
+		} else if (dx < 0) {
+			near = left - otherRight;
+			far = right - otherLeft;
+		} else if (dy > 0) {
+			near = otherTop - bottom;
+			far = otherBottom - top;
+		} else {
+			near = top - otherBottom;
+			far = bottom - otherTop;
+		}
+		boolean across = dx != 0 ? top < otherBottom && bottom > otherTop
+				: left < otherRight && right > otherLeft;
+		if (!across)
+			return steps;
+		int first = Math.max(1, (int) Math.floor(near) + 1);
+		if (first >= far || first > steps)
+			return steps;
+		return first - 1;
+	}
+
+	/**
+	 * @return the tile layer of the world if one of its solid tiles overlaps
+	 *         the hitbox of this entity placed at x,y, otherwise null
+	 */
+	private TileCollisionLayer collidingTiles(long typeMask, String type,
+			float x, float y) {
+		TileCollisionLayer tiles = world.getTileCollisionLayer();
+		if (tiles == null || tiles == this || !tiles.collidable
+				|| !((Entity) tiles).matches(typeMask, type))
+			return null;
+		return tiles.overlaps(this, x, y) ? tiles : null;
+	}
+
+	/**
+	 * Notify this and the other entity of a collision. While this entity is
+	 * updated in parallel the world calls the responses later.
+	 */
+	private void respond(Entity other) {
+		if (world != null && world.deferCollision(this, other))
+			return;
+		this.collisionResponse(other);
+		other.collisionResponse(this);
+	}
+
+	/**
+	 * @return true if this entity has the named type, or if type is null one of
+	 *         the types in the mask
+	 */
+	private boolean matches(long typeMask, String type) {
+		if (type == null)
+			return (typeBits & typeMask) != 0;
+		return isType(type);
+	}
+
+	/**
+	 * Collect the entities that might collide with the hitbox of this entity
+	 * placed at x,y. When there are only a few entities of the wanted types
+	 * they are taken from the type index, otherwise from the spatial hash.
+	 * 
+	 * @return a list that must be handed back to the grid when done
+	 */
+	private List<Entity> candidates(SpatialHash grid, long typeMask,
+			String type, float x, float y) {
+		float left = x + hitboxOffsetX;
+		float top = y + hitboxOffsetY;
+		return candidates(grid, typeMask, type, left, top, left + hitboxWidth,
+				top + hitboxHeight);
+	}
+
+	/**
+	 * @return the entities that might overlap the rectangle
+	 * @see #candidates(SpatialHash, long, String, float, float)
+	 */
+	private List<Entity> candidates(SpatialHash grid, long typeMask,
+			String type, float left, float top, float right, float bottom) {
+		TypeIndex types = world.getTypeIndex();
+		if (type != null) {
+			List<Entity> ofType = types.get(type);
+			if (ofType.size() <= TypeIndex.SCAN_LIMIT) {
+				List<Entity> result = grid.obtain();
+				result.addAll(ofType);
+				return result;
+			}
+		} else if (types.count(typeMask) <= TypeIndex.SCAN_LIMIT) {
+			List<Entity> result = grid.obtain();
+			types.collect(typeMask, result);
+			return result;
+		}
+		return grid.query(left, top, right, bottom);
+	}
+
+	/**
+	 * @return true if the hitbox of this entity placed at x,y overlaps the
+	 *         hitbox of the other entity
+	 */
+	private boolean overlaps(Entity other, float x, float y) {
+		return boundsOverlap(other, x, y)
+				&& (hitShape == null && other.hitShape == null || shapesOverlap(
+						other, x, y));
+	}
+
+	/**
+	 * @return true if the hit shapes of this entity and the other entity
+	 *         overlap, both must be refreshed and their bounds overlap. The
+	 *         other entity is only read, its shape is refreshed by the thread
+	 *         that updates it.
+	 */
+	boolean shapesOverlap(Entity other, float x, float y) {
+		if (hitShape != null
+				&& hitShape.separates(x, y, other, other.x, other.y))
+			return false;
+		return other.hitShape == null
+				|| !other.hitShape.separates(other.x, other.y, this, x, y);
+	}
+
+	/**
+	 * @return the fraction of dx,dy where a ray from x0,y0 enters the hitbox
+	 *         of this entity, -1 if it misses the hitbox or starts inside it.
+	 *         The hit shape is used as refreshed after the last update.
+	 */
+	float rayEntry(float x0, float y0, float dx, float dy) {
+		if (hitShape != null)
+			return hitShape.rayEntry(x0 - x, y0 - y, dx, dy);
+		float left = x + hitboxOffsetX;
+		float top = y + hitboxOffsetY;
+		float enter = Float.NEGATIVE_INFINITY;
+		float exit = Float.POSITIVE_INFINITY;
+		if (dx == 0) {
+			if (x0 <= left || x0 >= left + hitboxWidth)
+				return -1;
+		} else {
+			float t1 = (left - x0) / dx;
+			float t2 = (left + hitboxWidth - x0) / dx;
+			enter = Math.min(t1, t2);
+			exit = Math.max(t1, t2);
+		}
+		if (dy == 0) {
+			if (y0 <= top || y0 >= top + hitboxHeight)
+				return -1;
+		} else {
+			float t1 = (top - y0) / dy;
+			float t2 = (top + hitboxHeight - y0) / dy;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		return enter < exit && enter >= 0 ? enter : -1;
+	}
+
+	/**
+	 * @return true if the axis aligned hitbox of this entity placed at x,y
+	 *         overlaps the one of the other entity
+	 */
+	private boolean boundsOverlap(Entity other, float x, float y) {
+		return x + hitboxOffsetX + hitboxWidth > other.x + other.hitboxOffsetX
+				&& y + hitboxOffsetY + hitboxHeight > other.y
+						+ other.hitboxOffsetY
+				&& x + hitboxOffsetX < other.x + other.hitboxOffsetX
+						+ other.hitboxWidth
+				&& y + hitboxOffsetY < other.y + other.hitboxOffsetY
+						+ other.hitboxHeight;
+	}
+
 	/**
 	 * Checks if this Entity contains the specified point. The
 	 * {@link #collisionResponse(Entity)} is called to notify this entity of the
@@ -596,6 +1332,29 @@ public abstract class Entity implements Comparable<Entity> {
 
 	}
 
+	/**
+	 * Restore the state of a new entity before it goes back into its
+	 * {@link EntityPool}. Overload to reset your own fields, and call
+	 * super.reset().
+	 */
+	public void reset() {
+		speed.set(0, 0);
+		angle = 0;
+		scale = 1.0f;
+		if (color != null)
+			color.a = 1f;
+		active = true;
+		collidable = true;
+		visible = true;
+		leftTheWorld = false;
+		skippedSteps = 0;
+		skippedDelta = 0;
+		if (alarms != null)
+			alarms.clear();
+		if (clipPlayer != null)
+			clipPlayer.restart();
+	}
+
 	/**
 	 * Response to a collision with another entity
 	 * 
@@ -606,6 +1365,41 @@ public abstract class Entity implements Comparable<Entity> {
 
 	}
 
+	/**
+	 * Called when the hitbox of this entity starts to overlap the hitbox of
+	 * another entity. Only called when the world has collision events
+	 * enabled, once per pair and update, see
+	 * {@link World#setCollisionEvents(boolean)}.
+	 * 
+	 * @param other
+	 *            The other entity that collided with us.
+	 */
+	public void collisionEnter(Entity other) {
+
+	}
+
+	/**
+	 * Called in every update after {@link #collisionEnter(Entity)} while the
+	 * hitboxes still overlap.
+	 * 
+	 * @param other
+	 *            The other entity that is colliding with us.
+	 */
+	public void collisionStay(Entity other) {
+
+	}
+
+	/**
+	 * Called when the hitboxes stop to overlap, or one of the entities is
+	 * removed from the world.
+	 * 
+	 * @param other
+	 *            The other entity that collided with us.
+	 */
+	public void collisionExit(Entity other) {
+
+	}
+
 	/**
 	 * overload if you want to act on leaving world boundaries
 	 */
@@ -619,7 +1413,36 @@ public abstract class Entity implements Comparable<Entity> {
 
 	public void setWorld(World world) {
 		this.world = world;
-		input.setInputProvider(world.container.getInput());
+		Input provider = world.getInput();
+		if (provider != null)
+			input.setInputProvider(provider);
+	}
+
+	/**
+	 * @return true if this entity is signed to be removed from the world at
+	 *         the end of the current update
+	 */
+	public boolean isRemovalPending() {
+		return removalPending != 0;
+	}
+
+	/**
+	 * this method is called automatically by the World and must not be called
+	 * by your game code. Use {@link World#remove(Entity)} instead.
+	 */
+	public void setRemovalPending(boolean removalPending) {
+		this.removalPending = removalPending ? 1 : 0;
+	}
+
+	/**
+	 * this method is called automatically by the World and must not be called
+	 * by your game code. Use {@link World#remove(Entity)} instead.
+	 * 
+	 * @return true if this entity was not signed for removal yet, also when
+	 *         several threads sign it at the same time
+	 */
+	public boolean signForRemoval() {
+		return REMOVAL_PENDING.compareAndSet(this, 0, 1);
 	}
 
 	/**
@@ -642,6 +1465,16 @@ public abstract class Entity implements Comparable<Entity> {
 	}
 
 	private void wrapEntity() {
+		float oldX = x, oldY = y;
+		wrap();
+		// don't draw a wrapped entity sliding across the whole world
+		if (x != oldX)
+			stepStartX = x;
+		if (y != oldY)
+			stepStartY = y;
+	}
+
+	private void wrap() {
 		if (x + width < 0) {
 			if (wrapHorizontal) {
 				x = world.width - 1;
@@ -675,11 +1508,42 @@ public abstract class Entity implements Comparable<Entity> {
 	}
 
 	public String[] getCollisionTypes() {
-		return collisionTypes.toArray(new String[collisionTypes.size()]);
+		int overflow = overflowTypes == null ? 0 : overflowTypes.size();
+		String[] types = new String[Long.bitCount(typeBits) + overflow];
+		int i = 0;
+		long bits = typeBits;
+		while (bits != 0) {
+			types[i++] = CollisionTypes.name(Long.numberOfTrailingZeros(bits));
+			bits &= bits - 1;
+		}
+		if (overflow > 0) {
+			for (String type : overflowTypes)
+				types[i++] = type;
+		}
+		return types;
 	}
 
 	public boolean isType(String type) {
-		return collisionTypes.contains(type);
+		long bit = CollisionTypes.bitOf(CollisionTypes.find(type));
+		if (bit != 0)
+			return (typeBits & bit) != 0;
+		return overflowTypes != null && overflowTypes.contains(type);
+	}
+
+	/**
+	 * @return true if this entity has at least one of the types in the mask
+	 */
+	public boolean isType(long typeMask) {
+		return (typeBits & typeMask) != 0;
+	}
+
+	/**
+	 * @return the types of this entity that have no bit in {@link #typeBits}
+	 */
+	Set<String> overflowTypes() {
+		if (overflowTypes == null)
+			return Collections.emptySet();
+		return overflowTypes;
 	}
 
 	/**
@@ -693,8 +1557,23 @@ public abstract class Entity implements Comparable<Entity> {
 	/***************** some methods to deal with angles and vectors ************************************/
 
 	public int getAngleToPosition(Vector2f otherPos) {
-		Vector2f diff = otherPos.sub(new Vector2f(x, y));
-		return (((int) diff.getTheta()) + 90) % 360;
+		return angleTo(otherPos.x, otherPos.y);
+	}
+
+	public int angleTo(Entity other) {
+		return angleTo(other.x, other.y);
+	}
+
+	/**
+	 * @return the angle in degrees from the position of this entity to the
+	 *         point, 0 is up and the angle grows clockwise like the angles of
+	 *         {@link #calculateVector(float, float)}
+	 */
+	public int angleTo(float otherX, float otherY) {
+		double theta = Math.toDegrees(Math.atan2(otherY - y, otherX - x));
+		if (theta < 0)
+			theta += 360;
+		return ((int) theta + 90) % 360;
 	}
 
 	public int getAngleDiff(int angle1, int angle2) {
@@ -702,31 +1581,63 @@ public abstract class Entity implements Comparable<Entity> {
 	}
 
 	public Vector2f getPointWithAngleAndDistance(int angle, float distance) {
-		Vector2f point;
-		float tx, ty;
-		double theta = StrictMath.toRadians(angle + 90);
-		tx = (float) (this.x + distance * StrictMath.cos(theta));
-		ty = (float) (this.y + distance * StrictMath.sin(theta));
-		point = new Vector2f(tx, ty);
-		return point;
+		return pointAt(angle, distance, new Vector2f());
+	}
+
+	/**
+	 * Store the point at the distance from this entity in the direction of
+	 * the angle in out, the same point as
+	 * {@link #getPointWithAngleAndDistance(int, float)}
+	 * 
+	 * @return out
+	 */
+	public Vector2f pointAt(int angle, float distance, Vector2f out) {
+		out.x = x + distance * Trig.cos(angle + 90);
+		out.y = y + distance * Trig.sin(angle + 90);
+		return out;
 	}
 
 	public float getDistance(Entity other) {
-		return getDistance(new Vector2f(other.x, other.y));
+		return getDistance(other.x, other.y);
 	}
 
 	public float getDistance(Vector2f otherPos) {
-		Vector2f myPos = new Vector2f(x, y);
-		return myPos.distance(otherPos);
+		return getDistance(otherPos.x, otherPos.y);
+	}
+
+	private float getDistance(float otherX, float otherY) {
+		return (float) Math.sqrt(distanceSq(otherX, otherY));
+	}
+
+	/**
+	 * @return the squared distance between the positions of the entities,
+	 *         cheaper than {@link #getDistance(Entity)} to compare distances
+	 */
+	public float distanceSq(Entity other) {
+		return distanceSq(other.x, other.y);
+	}
+
+	public float distanceSq(float otherX, float otherY) {
+		float dx = otherX - x;
+		float dy = otherY - y;
+		return dx * dx + dy * dy;
 	}
 
 	public static Vector2f calculateVector(float angle, float magnitude) {
-		Vector2f v = new Vector2f();
-		v.x = (float) Math.sin(Math.toRadians(angle));
-		v.x *= magnitude;
-		v.y = (float) -Math.cos(Math.toRadians(angle));
-		v.y *= magnitude;
-		return v;
+		return calculateVector(angle, magnitude, new Vector2f());
+	}
+
+	/**
+	 * Store the vector of the length magnitude in the direction of the angle
+	 * in out, 0 is up and the angle grows clockwise
+	 * 
+	 * @return out
+	 */
+	public static Vector2f calculateVector(float angle, float magnitude,
+			Vector2f out) {
+		out.x = Trig.sin(angle) * magnitude;
+		out.y = -Trig.cos(angle) * magnitude;
+		return out;
 	}
 
 	public static float calculateAngle(float x, float y, float x1, float y1) {
@@ -749,27 +1660,29 @@ public abstract class Entity implements Comparable<Entity> {
 	public void addAlarm(String alarmName, int triggerTime, boolean oneShot,
 			boolean startNow) {
 		Alarm alarm = new Alarm(alarmName, triggerTime, oneShot);
+		if (alarms == null)
+			alarms = new AlarmContainer(this);
 		alarms.addAlarm(alarm, startNow);
 	}
 
 	public boolean restartAlarm(String alarmName) {
-		return alarms.restartAlarm(alarmName);
+		return alarms != null && alarms.restartAlarm(alarmName);
 	}
 
 	public boolean pauseAlarm(String alarmName) {
-		return alarms.pauseAlarm(alarmName);
+		return alarms != null && alarms.pauseAlarm(alarmName);
 	}
 
 	public boolean resumeAlarm(String alarmName) {
-		return alarms.resumeAlarm(alarmName);
+		return alarms != null && alarms.resumeAlarm(alarmName);
 	}
 
 	public boolean destroyAlarm(String alarmName) {
-		return alarms.destroyAlarm(alarmName);
+		return alarms != null && alarms.destroyAlarm(alarmName);
 	}
 
 	public boolean hasAlarm(String alarmName) {
-		return alarms.hasAlarm(alarmName);
+		return alarms != null && alarms.hasAlarm(alarmName);
 	}
 
 	/**
@@ -788,19 +1701,51 @@ public abstract class Entity implements Comparable<Entity> {
 	 * by your game code. Don't touch this method ;-) Consider it private!
 	 */
 	public void updateAlarms(int delta) {
-		alarms.update(delta);
+		updateAlarms(delta, 1);
+	}
+
+	/**
+	 * this method is called automatically by the World and must not be called
+	 * by your game code.
+	 * 
+	 * @param steps
+	 *            number of world steps covered by delta, more than one when
+	 *            this entity is updated at a reduced rate
+	 */
+	public void updateAlarms(int delta, int steps) {
+		if (alarms != null)
+			alarms.update(delta, steps);
 	}
 
 	public int getAngle() {
 		return angle;
 	}
 
-	// TODO: add proper rotation for the hitbox/shape here!!!
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Rename this entity and update the name index of its world. Like the
+	 * collision types, the name of a thread safe entity must not change
+	 * during a parallel update.
+	 */
+	public void setName(String name) {
+		this.name = name;
+		if (inNameIndex)
+			world.getNameIndex().renamed(this);
+	}
+
+	/**
+	 * @see #setOrientedHitBox(float, float, int, int)
+	 */
 	public void setAngle(int angle) {
 		this.angle = angle;
 	}
 
 	public Color getColor() {
+		if (color == null)
+			color = new Color(Color.white);
 		return color;
 	}
 
@@ -809,18 +1754,51 @@ public abstract class Entity implements Comparable<Entity> {
 	}
 
 	public float getAlpha() {
-		return color.a;
+		return color == null ? 1.0f : color.a;
+	}
+
+	/**
+	 * this method is called automatically by the World and must not be called
+	 * by your game code. Remembers the position before an update step.
+	 */
+	public void stepStarted() {
+		stepStartX = x;
+		stepStartY = y;
+	}
+
+	/**
+	 * @return the x position to draw this entity at. When the world runs with
+	 *         a fixed timestep this is between the position before and after
+	 *         the last step.
+	 * @see World#setFixedTimestep(int, int)
+	 */
+	public float getRenderX() {
+		if (world == null || world.getFixedTimestep() == 0)
+			return x;
+		return stepStartX + (x - stepStartX) * world.getInterpolationAlpha();
+	}
+
+	/**
+	 * @return the y position to draw this entity at
+	 * @see #getRenderX()
+	 */
+	public float getRenderY() {
+		if (world == null || world.getFixedTimestep() == 0)
+			return y;
+		return stepStartY + (y - stepStartY) * world.getInterpolationAlpha();
 	}
 
 	public void setAlpha(float alpha) {
-		if (alpha >= 0.0f && alpha <= 1.0f)
-			color.a = alpha;
+		if (alpha >= 0.0f && alpha <= 1.0f && (color != null || alpha != 1.0f))
+			getColor().a = alpha;
 	}
 
 	public void setPosition(Vector2f pos) {
 		if (pos != null) {
 			this.x = pos.x;
 			this.y = pos.y;
+			if (world != null)
+				world.refresh(this);
 		}
 	}
 
@@ -835,7 +1813,7 @@ public abstract class Entity implements Comparable<Entity> {
 
 	private String collisionTypesToString() {
 		StringBuffer sb = new StringBuffer();
-		for (String type : collisionTypes) {
+		for (String type : getCollisionTypes()) {
 			if (sb.length() > 0) {
 				sb.append(", ");
 			}
@@ -854,16 +1832,35 @@ public abstract class Entity implements Comparable<Entity> {
 		if (shape == null)
 			return null;
 		List<Entity> result = new ArrayList<Entity>();
-		for (Entity entity : world.getEntities()) {
-			if (entity.collidable && !entity.equals(this)) {
-				Rectangle rec = new Rectangle(entity.x, entity.y, entity.width,
-						entity.height);
-				if (shape.intersects(rec)) {
-					result.add(entity);
+		SpatialHash grid = world.getSpatialHash();
+		List<Entity> candidates = grid.obtain();
+		float left = shape.getMinX(), top = shape.getMinY();
+		float right = shape.getMaxX(), bottom = shape.getMaxY();
+		// rectangles are tested here, other shapes against a reused rectangle
+		boolean box = shape.getClass() == Rectangle.class;
+		Rectangle rec = box ? null : new Rectangle(0, 0, 0, 0);
+		try {
+			world.getAABBTree().query(left, top, right, bottom, candidates);
+			for (int i = 0; i < candidates.size(); i++) {
+				Entity entity = candidates.get(i);
+				if (!entity.collidable || entity.equals(this))
+					continue;
+				if (box) {
+					if (entity.x <= right && entity.x + entity.width >= left
+							&& entity.y <= bottom
+							&& entity.y + entity.height >= top)
+						result.add(entity);
+				} else {
+					rec.setBounds(entity.x, entity.y, entity.width,
+							entity.height);
+					if (shape.intersects(rec))
+						result.add(entity);
 				}
 			}
+		} finally {
+			grid.free(candidates);
 		}
 		return result;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package it.marteEngine.entity;
+
+/**
+ * Receives the entities found by a query one at a time, so the query does
+ * not have to collect them in a list, see
+ * {@link it.marteEngine.World#withinRadius}. Keep one instance and reuse it.
+ */
+public interface EntityConsumer {
+
+	/**
+	 * Called once for every entity found. Must not add, remove or move
+	 * entities of the world.
+	 */
+	void accept(Entity entity);
+}
@@ -0,0 +1,182 @@
+package it.marteEngine.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recycles short lived entities like bullets, arrows or particles. Instead of
+ * creating a new entity for every shot, get one from the pool with
+ * {@link #obtain(float, float)} and add it to the world as usual. When the
+ * entity is removed from the world it goes back into the pool, after its
+ * {@link Entity#reset()} method restored its initial state.
+ *
+ * <pre>
+ * public static final EntityPool&lt;Bullet&gt; BULLETS = new EntityPool&lt;Bullet&gt;() {
+ * 	protected Bullet create() {
+ * 		return new Bullet();
+ * 	}
+ * };
+ *
+ * world.add(BULLETS.obtain(x, y));
+ * </pre>
+ *
+ * Don't keep references to a pooled entity after it has been removed from the
+ * world, it will be handed out again by the next call to obtain.
+ */
+public abstract class EntityPool<T extends Entity> {
+
+	private final List<T> free = new ArrayList<T>();
+	/** the pool never holds more than this many free entities */
+	private final int maxFree;
+
+	private int created;
+	private int obtained;
+	private int recycled;
+	private int discarded;
+	private int peakFree;
+
+	public EntityPool() {
+		this(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxFree
+	 *            free entities above this number are left to the garbage
+	 *            collector
+	 */
+	public EntityPool(int maxFree) {
+		this.maxFree = maxFree;
+	}
+
+	/**
+	 * Create a new entity for this pool. Called when the pool is empty.
+	 */
+	protected abstract T create();
+
+	/**
+	 * @return a free entity from the pool or a new one if the pool is empty
+	 */
+	public T obtain() {
+		T entity;
+		int last = free.size() - 1;
+		if (last >= 0) {
+			entity = free.remove(last);
+		} else {
+			entity = create();
+			created++;
+		}
+		entity.pool = this;
+		entity.pooled = false;
+		obtained++;
+		return entity;
+	}
+
+	/**
+	 * @return a free entity from the pool placed at x,y
+	 */
+	public T obtain(float x, float y) {
+		T entity = obtain();
+		entity.x = x;
+		entity.y = y;
+		entity.startx = x;
+		entity.starty = y;
+		entity.previousx = x;
+		entity.previousy = y;
+		entity.stepStarted();
+		return entity;
+	}
+
+	/**
+	 * Reset an entity and put it back into the pool. Entities taken from a
+	 * pool are freed automatically when they are removed from the world.
+	 * Freeing an entity twice has no effect.
+	 */
+	public void free(T entity) {
+		if (entity.pooled)
+			return;
+		entity.reset();
+		entity.pooled = true;
+		if (free.size() >= maxFree) {
+			discarded++;
+			return;
+		}
+		free.add(entity);
+		recycled++;
+		if (free.size() > peakFree)
+			peakFree = free.size();
+	}
+
+	/**
+	 * Put a removed entity back into the pool it was obtained from. Does
+	 * nothing for entities that don't belong to a pool.
+	 */
+	@SuppressWarnings("unchecked")
+	public static void release(Entity entity) {
+		EntityPool<Entity> pool = (EntityPool<Entity>) entity.pool;
+		if (pool != null)
+			pool.free(entity);
+	}
+
+	/**
+	 * Create entities up front, so the first shots don't allocate
+	 */
+	public void fill(int count) {
+		for (int i = 0; i < count && free.size() < maxFree; i++) {
+			T entity = create();
+			created++;
+			entity.pool = this;
+			entity.pooled = true;
+			free.add(entity);
+		}
+		if (free.size() > peakFree)
+			peakFree = free.size();
+	}
+
+	/**
+	 * Drop all free entities
+	 */
+	public void clear() {
+		free.clear();
+	}
+
+	/** @return number of entities waiting in the pool */
+	public int getFree() {
+		return free.size();
+	}
+
+	/** @return number of entities this pool had to create */
+	public int getCreated() {
+		return created;
+	}
+
+	/** @return number of entities handed out by obtain */
+	public int getObtained() {
+		return obtained;
+	}
+
+	/** @return number of entities that went back into the pool */
+	public int getRecycled() {
+		return recycled;
+	}
+
+	/** @return number of freed entities dropped because the pool was full */
+	public int getDiscarded() {
+		return discarded;
+	}
+
+	/** @return the highest number of free entities at any time */
+	public int getPeakFree() {
+		return peakFree;
+	}
+
+	public String toString() {
+		StringBuffer sb = new StringBuffer();
+		sb.append("created: ").append(created);
+		sb.append(", obtained: ").append(obtained);
+		sb.append(", recycled: ").append(recycled);
+		sb.append(", discarded: ").append(discarded);
+		sb.append(", free: ").append(free.size());
+		sb.append(", peak free: ").append(peakFree);
+		return sb.toString();
+	}
+}
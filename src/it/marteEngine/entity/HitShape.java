@@ -0,0 +1,294 @@
+package it.marteEngine.entity;
+
+/**
+ * Convex polygon used as hitbox, rotated by the angle and scaled by the scale
+ * of its entity around the x,y position of the entity, see
+ * {@link Entity#setHitShape(float...)}.
+ *
+ * The rotated points, the axes of the edges and the extent of the polygon on
+ * every axis are cached relative to the position of the entity, they are
+ * only computed again when the angle or the scale changes. Moving the entity
+ * costs nothing.
+ *
+ * Two hitboxes are tested with the separating axis theorem, after the usual
+ * test of the axis aligned bounds. As with plain hitboxes, shapes that only
+ * touch do not overlap.
+ */
+public class HitShape {
+
+	/** points relative to the position of the entity, x,y pairs */
+	private final float[] points;
+	/** points rotated and scaled */
+	private final float[] transformed;
+	/** first corner of every edge with an axis of its own, x index */
+	private final int[] edges;
+	/** normals of those edges of the rotated polygon, x,y pairs */
+	private final float[] axes;
+	/** extent of the rotated polygon on every axis */
+	private final float[] axisMin;
+	private final float[] axisMax;
+
+	/** bounds of the rotated polygon, relative to the entity */
+	float minX, minY, maxX, maxY;
+
+	private int cachedAngle;
+	private float cachedScale = Float.NaN;
+
+	/**
+	 * @param points
+	 *            the corners of a convex polygon as x,y pairs, relative to
+	 *            the position of the entity, in clockwise or counter
+	 *            clockwise order
+	 */
+	public HitShape(float... points) {
+		if (points.length < 6 || points.length % 2 != 0)
+			throw new IllegalArgumentException(
+					"A hit shape needs at least 3 x,y pairs, got "
+							+ points.length + " values");
+		if (hasEmptyEdge(points))
+			throw new IllegalArgumentException(
+					"A hit shape must not repeat a corner");
+		if (!isConvex(points))
+			throw new IllegalArgumentException("A hit shape must be convex");
+		this.points = points.clone();
+		edges = separateEdges(points);
+		transformed = new float[points.length];
+		axes = new float[edges.length * 2];
+		axisMin = new float[edges.length];
+		axisMax = new float[edges.length];
+	}
+
+	/**
+	 * @return the edges that are not parallel to an earlier edge, parallel
+	 *         edges share their axis. A rectangle has two axes.
+	 */
+	private static int[] separateEdges(float[] points) {
+		int[] edges = new int[points.length / 2];
+		int count = 0;
+		for (int i = 0; i < points.length; i += 2) {
+			int next = (i + 2) % points.length;
+			float dx = points[next] - points[i];
+			float dy = points[next + 1] - points[i + 1];
+			boolean parallel = false;
+			for (int k = 0; k < count && !parallel; k++) {
+				int e = edges[k];
+				int after = (e + 2) % points.length;
+				float ex = points[after] - points[e];
+				float ey = points[after + 1] - points[e + 1];
+				parallel = dx * ey - dy * ex == 0;
+			}
+			if (!parallel)
+				edges[count++] = i;
+		}
+		int[] result = new int[count];
+		System.arraycopy(edges, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * @return a rectangle, relative to the position of the entity
+	 */
+	public static HitShape box(float xOffset, float yOffset, float width,
+			float height) {
+		return new HitShape(xOffset, yOffset, xOffset + width, yOffset,
+				xOffset + width, yOffset + height, xOffset, yOffset + height);
+	}
+
+	/**
+	 * Rotate and scale the points, unless angle and scale are the ones of the
+	 * last call. Must only be called by the thread that updates the entity,
+	 * the angle and scale are stored last.
+	 *
+	 * @return true if the points changed
+	 */
+	boolean transform(int angle, float scale) {
+		if (angle == cachedAngle && scale == cachedScale)
+			return false;
+		double radians = Math.toRadians(angle);
+		float cos = (float) Math.cos(radians) * scale;
+		float sin = (float) Math.sin(radians) * scale;
+		float left = Float.POSITIVE_INFINITY;
+		float top = Float.POSITIVE_INFINITY;
+		float right = Float.NEGATIVE_INFINITY;
+		float bottom = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < points.length; i += 2) {
+			// clockwise on screen, like the rotation of the image
+			float x = points[i] * cos - points[i + 1] * sin;
+			float y = points[i] * sin + points[i + 1] * cos;
+			transformed[i] = x;
+			transformed[i + 1] = y;
+			left = Math.min(left, x);
+			top = Math.min(top, y);
+			right = Math.max(right, x);
+			bottom = Math.max(bottom, y);
+		}
+		minX = left;
+		minY = top;
+		maxX = right;
+		maxY = bottom;
+		for (int k = 0; k < edges.length; k++) {
+			int i = edges[k];
+			int next = (i + 2) % points.length;
+			float nx = transformed[i + 1] - transformed[next + 1];
+			float ny = transformed[next] - transformed[i];
+			axes[2 * k] = nx;
+			axes[2 * k + 1] = ny;
+			float min = Float.POSITIVE_INFINITY;
+			float max = Float.NEGATIVE_INFINITY;
+			for (int j = 0; j < transformed.length; j += 2) {
+				float projection = nx * transformed[j] + ny
+						* transformed[j + 1];
+				min = Math.min(min, projection);
+				max = Math.max(max, projection);
+			}
+			axisMin[k] = min;
+			axisMax[k] = max;
+		}
+		cachedAngle = angle;
+		cachedScale = scale;
+		return true;
+	}
+
+	/**
+	 * Find an axis of this shape that separates it from the hitbox of the
+	 * other entity. Both must be transformed.
+	 *
+	 * @param x
+	 *            x position of the entity of this shape
+	 * @param y
+	 *            y position of the entity of this shape
+	 * @param otherX
+	 *            x position of the other entity
+	 * @param otherY
+	 *            y position of the other entity
+	 * @return true if the shapes do not overlap
+	 */
+	boolean separates(float x, float y, Entity other, float otherX,
+			float otherY) {
+		HitShape shape = other.getHitShape();
+		float left = otherX + other.hitboxOffsetX;
+		float top = otherY + other.hitboxOffsetY;
+		float right = left + other.hitboxWidth;
+		float bottom = top + other.hitboxHeight;
+		// the axes of a rectangle, the hitbox fields round the bounds up
+		if (shape == null
+				&& (x + maxX <= left || x + minX >= right || y + maxY <= top
+						|| y + minY >= bottom))
+			return true;
+		for (int i = 0; i < axes.length; i += 2) {
+			float nx = axes[i];
+			float ny = axes[i + 1];
+			float offset = nx * x + ny * y;
+			float min, max;
+			if (shape != null) {
+				min = Float.POSITIVE_INFINITY;
+				max = Float.NEGATIVE_INFINITY;
+				float[] corners = shape.transformed;
+				for (int j = 0; j < corners.length; j += 2) {
+					float projection = nx * (otherX + corners[j]) + ny
+							* (otherY + corners[j + 1]);
+					min = Math.min(min, projection);
+					max = Math.max(max, projection);
+				}
+			} else {
+				// the nearest and farthest corners of the rectangle
+				min = nx * (nx > 0 ? left : right) + ny
+						* (ny > 0 ? top : bottom);
+				max = nx * (nx > 0 ? right : left) + ny
+						* (ny > 0 ? bottom : top);
+			}
+			if (max <= offset + axisMin[i / 2]
+					|| min >= offset + axisMax[i / 2])
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Clip a ray against the bounds and the axes of this shape, the shape
+	 * must be transformed
+	 *
+	 * @param x
+	 *            start of the ray, relative to the entity of this shape
+	 * @param y
+	 *            start of the ray, relative to the entity of this shape
+	 * @return the fraction of dx,dy where the ray enters this shape, -1 if it
+	 *         misses the shape or starts inside it
+	 */
+	float rayEntry(float x, float y, float dx, float dy) {
+		float enter = Float.NEGATIVE_INFINITY;
+		float exit = Float.POSITIVE_INFINITY;
+		// the bounds are exact here, unlike the hitbox fields
+		if (dx == 0) {
+			if (x <= minX || x >= maxX)
+				return -1;
+		} else {
+			float t1 = (minX - x) / dx, t2 = (maxX - x) / dx;
+			enter = Math.min(t1, t2);
+			exit = Math.max(t1, t2);
+		}
+		if (dy == 0) {
+			if (y <= minY || y >= maxY)
+				return -1;
+		} else {
+			float t1 = (minY - y) / dy, t2 = (maxY - y) / dy;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		for (int i = 0; i < axes.length; i += 2) {
+			float start = axes[i] * x + axes[i + 1] * y;
+			float rate = axes[i] * dx + axes[i + 1] * dy;
+			float min = axisMin[i / 2];
+			float max = axisMax[i / 2];
+			if (rate == 0) {
+				if (start <= min || start >= max)
+					return -1;
+				continue;
+			}
+			float t1 = (min - start) / rate, t2 = (max - start) / rate;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		return enter < exit && enter >= 0 ? enter : -1;
+	}
+
+	/**
+	 * @return the rotated and scaled points as x,y pairs, relative to the
+	 *         position of the entity. Do not modify.
+	 */
+	public float[] getPoints() {
+		return transformed;
+	}
+
+	/**
+	 * @return true if a corner equals the next corner, such an edge has no
+	 *         axis
+	 */
+	private static boolean hasEmptyEdge(float[] points) {
+		for (int i = 0; i < points.length; i += 2) {
+			int next = (i + 2) % points.length;
+			if (points[i] == points[next] && points[i + 1] == points[next + 1])
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean isConvex(float[] points) {
+		int sign = 0;
+		for (int i = 0; i < points.length; i += 2) {
+			int next = (i + 2) % points.length;
+			int after = (i + 4) % points.length;
+			float cross = (points[next] - points[i])
+					* (points[after + 1] - points[next + 1])
+					- (points[next + 1] - points[i + 1])
+					* (points[after] - points[next]);
+			if (cross == 0)
+				continue;
+			int turn = cross > 0 ? 1 : -1;
+			if (sign != 0 && turn != sign)
+				return false;
+			sign = turn;
+		}
+		return sign != 0;
+	}
+}
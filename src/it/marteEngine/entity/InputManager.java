@@ -4,6 +4,7 @@ import org.lwjgl.input.Mouse;
 import org.newdawn.slick.Input;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,13 +13,14 @@ import java.util.Map;
  * Allows to bind keyboard and mouse input to a text command.
  */
 public class InputManager {
+	/** shared empty maps until the first command is bound */
 	private Map<String, int[]> keyboardCommands;
 	private Map<String, int[]> mouseCommands;
 	private Input input;
 
 	public InputManager() {
-		keyboardCommands = new HashMap<String, int[]>();
-		mouseCommands = new HashMap<String, int[]>();
+		keyboardCommands = Collections.emptyMap();
+		mouseCommands = Collections.emptyMap();
 	}
 
 	public InputManager(Input input) {
@@ -36,6 +38,8 @@ public class InputManager {
 	 *            Keyboard keys from the {@link Input} class
 	 */
 	public void bindToKey(String command, int... keys) {
+		if (keyboardCommands.isEmpty())
+			keyboardCommands = new HashMap<String, int[]>();
 		keyboardCommands.put(command, keys);
 	}
 
@@ -52,6 +56,8 @@ public class InputManager {
 		for (int button : buttons) {
 			// There is a maximum of 10 mouse buttons in Input
 			if (button >= 0 && button <= 10) {
+				if (mouseCommands.isEmpty())
+					mouseCommands = new HashMap<String, int[]>();
 				mouseCommands.put(command, buttons);
 			} else {
 				throw new IllegalArgumentException("Button " + button
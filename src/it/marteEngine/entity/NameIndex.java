@@ -0,0 +1,155 @@
+package it.marteEngine.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live index from name to the entities with that name, ignoring case. The
+ * World keeps it up to date when entities are added or removed and when an
+ * entity in the world is renamed with {@link Entity#setName(String)}.
+ */
+public class NameIndex {
+
+	private final Map<String, Bucket> buckets = new HashMap<String, Bucket>();
+
+	/**
+	 * Index an entity under its name, an entity without a name is indexed once
+	 * it gets one. Does nothing if the entity is already indexed.
+	 */
+	public void insert(Entity e) {
+		if (e.inNameIndex)
+			return;
+		e.inNameIndex = true;
+		addToBucket(e);
+	}
+
+	/**
+	 * Remove an entity from the index. Does nothing if the entity is not
+	 * indexed.
+	 */
+	public void remove(Entity e) {
+		if (!e.inNameIndex)
+			return;
+		e.inNameIndex = false;
+		removeFromBucket(e);
+	}
+
+	/**
+	 * Remove many entities at once. Every bucket that held one of the entities
+	 * is compacted in a single pass.
+	 */
+	public void removeAll(List<Entity> removed) {
+		List<Bucket> dirty = null;
+		for (int i = 0; i < removed.size(); i++) {
+			Entity e = removed.get(i);
+			if (!e.inNameIndex)
+				continue;
+			e.inNameIndex = false;
+			if (e.nameKey == null)
+				continue;
+			Bucket bucket = buckets.get(e.nameKey);
+			e.nameKey = null;
+			if (bucket != null && !bucket.dirty) {
+				bucket.dirty = true;
+				if (dirty == null)
+					dirty = new ArrayList<Bucket>();
+				dirty.add(bucket);
+			}
+		}
+		if (dirty == null)
+			return;
+		for (Bucket bucket : dirty) {
+			List<Entity> entities = bucket.entities;
+			int size = entities.size();
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				Entity e = entities.get(i);
+				if (e.nameKey != null)
+					entities.set(kept++, e);
+			}
+			entities.subList(kept, size).clear();
+			bucket.dirty = false;
+		}
+	}
+
+	/**
+	 * Called by an indexed entity after its name changed
+	 */
+	void renamed(Entity e) {
+		removeFromBucket(e);
+		addToBucket(e);
+	}
+
+	/**
+	 * @return a read only view of the entities with the given name, ignoring
+	 *         case, in the order they were indexed. The view reflects later
+	 *         changes to the index.
+	 */
+	public List<Entity> get(String name) {
+		Bucket bucket = name == null ? null : buckets.get(key(name));
+		if (bucket == null)
+			return Collections.emptyList();
+		return bucket.view;
+	}
+
+	/**
+	 * Forget all indexed entities. Entities previously indexed have to be
+	 * removed with {@link #removeAll(List)} first.
+	 */
+	public void clear() {
+		buckets.clear();
+	}
+
+	/**
+	 * @return the name folded char by char like equalsIgnoreCase compares
+	 *         them, the name itself if it is folded already
+	 */
+	private static String key(String name) {
+		char[] chars = null;
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			char folded = Character.toLowerCase(Character.toUpperCase(c));
+			if (folded != c) {
+				if (chars == null)
+					chars = name.toCharArray();
+				chars[i] = folded;
+			}
+		}
+		return chars == null ? name : new String(chars);
+	}
+
+	private void addToBucket(Entity e) {
+		if (e.name == null)
+			return;
+		e.nameKey = key(e.name);
+		bucket(e.nameKey).entities.add(e);
+	}
+
+	private void removeFromBucket(Entity e) {
+		if (e.nameKey == null)
+			return;
+		Bucket bucket = buckets.get(e.nameKey);
+		e.nameKey = null;
+		if (bucket != null)
+			bucket.entities.remove(e);
+	}
+
+	private Bucket bucket(String key) {
+		Bucket bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new Bucket();
+			buckets.put(key, bucket);
+		}
+		return bucket;
+	}
+
+	private static final class Bucket {
+		private final List<Entity> entities = new ArrayList<Entity>();
+		private final List<Entity> view = Collections
+				.unmodifiableList(entities);
+		private boolean dirty;
+	}
+}
@@ -7,7 +7,9 @@ import org.newdawn.slick.util.Log;
 
 /**
  * this class only works with a fixed frame rate of 60. All calculations are
- * based on that assumption. It's okay for this little sample game
+ * based on that assumption. It's okay for this little sample game. To keep
+ * the physics stable when the frame rate drops, run the world with
+ * {@link it.marteEngine.World#setFixedTimestep(int) setFixedTimestep(16)}.
  * 
  * @author Thomas
  * 
@@ -29,6 +31,12 @@ public class PhysicsEntity extends Entity {
 
 	public Vector2f maxSpeed = new Vector2f(3, 8);
 
+	/** the types that stop a move */
+	private static final long BLOCKING = CollisionTypes.mask(SOLID, PLAYER);
+	private static final long SOLID_BIT = CollisionTypes.bit(SOLID);
+
+	private final Sweep sweep = new Sweep();
+
 	public PhysicsEntity(float x, float y) {
 		super(x, y);
 		// physics entities are solid
@@ -146,7 +154,8 @@ public class PhysicsEntity extends Entity {
 
 	/**
 	 * Moves the set entity horizontal at a given speed, checking for collisions
-	 * and slopes
+	 * and slopes. The entity moves whole pixels, like it would pixel by pixel,
+	 * but the way up to the next solid is found with a single sweep.
 	 * 
 	 * @param e
 	 *            The entity you want to move
@@ -155,51 +164,51 @@ public class PhysicsEntity extends Entity {
 	 * @return True (didn't hit a solid) or false (hit a solid)
 	 */
 	public boolean motionx(Entity e, float spdx) {
-		// check each pixel before moving it
-		for (int i = 0; i < Math.abs(spdx); i++) {
-			// if we've moved
-			boolean moved = false;
-			boolean below = true;
-
-			if (e.collide(SOLID, e.x, e.y + 1) == null) {
-				below = false;
-			}
-
-			// run through how high a slope we can move up
-			for (int s = 0; s <= slopeHeight; s++) {
-				// if we don't hit a solid in the direction we're moving,
-				// move....
-				if (e.collide(SOLID, e.x + Math.signum(spdx), e.y - s) == null) {
-					// increase/decrease positions
-					// if the player is in the way, simply don't move (but don't
-					// count it as stopping)
-					if (e.collide(PLAYER, e.x + Math.signum(spdx), e.y - s) == null) {
-						e.x += Math.signum(spdx);
-					}
-
-					// move up the slope
-					e.y -= s;
-
-					// we've moved
-					moved = true;
-
-					// stop checking for slope (so we don't fly up into the
-					// air....)
-					break;
+		int direction = (int) Math.signum(spdx);
+		int remaining = (int) Math.ceil(Math.abs(spdx));
+		while (remaining > 0) {
+			boolean below = e.collide(SOLID, e.x, e.y + 1) != null;
+			e.sweep(BLOCKING, e.x, e.y, direction * remaining, 0, sweep);
+			int moved = sweep.distance;
+			if (below && moved > 0) {
+				int supported = e.groundDistance(SOLID_BIT, e.x, e.y,
+						direction * moved);
+				if (supported < moved) {
+					// we are now in the air, but just above a platform, move
+					// us down.
+					e.x += direction * (supported + 1);
+					e.y += 1;
+					remaining -= supported + 1;
+					continue;
 				}
-
 			}
-
-			// if we are now in the air, but just above a platform, move us
-			// down.
-			if (below && e.collide(SOLID, e.x, e.y + 1) == null) {
-				e.y += 1;
+			e.x += direction * moved;
+			remaining -= moved;
+			if (!sweep.isBlocked())
+				break;
+			if (!solidAhead(e, direction, 0)) {
+				// if the player is in the way, simply don't move (but don't
+				// count it as stopping)
+				return true;
 			}
 
-			// if we haven't moved, set our speed to 0
-			if (!moved) {
+			// run through how high a slope we can move up
+			int s = 1;
+			while (s <= slopeHeight
+					&& e.collide(SOLID, e.x + direction, e.y - s) != null)
+				s++;
+			if (s > slopeHeight) {
+				// we haven't moved, set our speed to 0
 				return false;
 			}
+			below = e.collide(SOLID, e.x, e.y + 1) != null;
+			if (e.collide(PLAYER, e.x + direction, e.y - s) == null)
+				e.x += direction;
+			// move up the slope
+			e.y -= s;
+			if (below && e.collide(SOLID, e.x, e.y + 1) == null)
+				e.y += 1;
+			remaining--;
 		}
 
 		// hit nothing!
@@ -207,7 +216,8 @@ public class PhysicsEntity extends Entity {
 	}
 
 	/**
-	 * Moves the set entity vertical at a given speed, checking for collisions
+	 * Moves the set entity vertical at a given speed, checking for collisions.
+	 * The way up to the next solid is found with a single sweep.
 	 * 
 	 * @param e
 	 *            The entity you want to move
@@ -216,23 +226,24 @@ public class PhysicsEntity extends Entity {
 	 * @return True (didn't hit a solid) or false (hit a solid)
 	 */
 	public boolean motiony(Entity e, float spdy) {
-		// for each pixel that we will move...
-		for (int i = 0; i < Math.abs(spdy); i++) {
-			// if we DON'T collide with solid
-			if (e.collide(SOLID, e.x, e.y + Math.signum(spdy)) == null) {
-				// if we don't run into a player, them move us
-				if (e.collide(PLAYER, e.x, e.y + Math.signum(spdy)) == null) {
-					e.y += Math.signum(spdy);
-				}
-				// but note that we wont stop our movement if we hit a player.
-			} else {
-				// stop movement if we hit a solid
-				return false;
-			}
-		}
+		int direction = (int) Math.signum(spdy);
+		int steps = (int) Math.ceil(Math.abs(spdy));
+		if (steps == 0)
+			return true;
+		e.sweep(BLOCKING, e.x, e.y, 0, direction * steps, sweep);
+		e.y += direction * sweep.distance;
+		// stop movement if we hit a solid, but note that we wont stop our
+		// movement if we hit a player.
+		return !sweep.isBlocked() || !solidAhead(e, 0, direction);
+	}
 
-		// hit nothing!
-		return true;
+	/**
+	 * @return true if the entity in the way of the last sweep is a solid, or
+	 *         a solid is right behind the player in the way
+	 */
+	private boolean solidAhead(Entity e, int dx, int dy) {
+		return sweep.entity.isType(SOLID)
+				|| e.collide(SOLID, e.x + dx, e.y + dy) != null;
 	}
 
 	/**
@@ -0,0 +1,47 @@
+package it.marteEngine.entity;
+
+/**
+ * Result of a raycast through a world, see
+ * {@link it.marteEngine.World#raycast}. Keep one instance and reuse it, a
+ * raycast does not allocate.
+ */
+public class RayHit {
+
+	/** the entity or tile layer hit first, null if the ray is free */
+	public Entity entity;
+	/** pixels from the start of the ray to the hit, or its length */
+	public float distance;
+	/** point where the ray enters the entity, or the end of the ray */
+	public float x, y;
+
+	/**
+	 * Set the hit at a fraction of a ray
+	 * 
+	 * @param dx
+	 *            the ray, end minus start
+	 * @param dy
+	 *            the ray, end minus start
+	 * @return this
+	 */
+	public RayHit set(Entity entity, float x0, float y0, float dx, float dy,
+			float fraction) {
+		this.entity = entity;
+		distance = (float) Math.sqrt(dx * dx + dy * dy) * fraction;
+		x = x0 + dx * fraction;
+		y = y0 + dy * fraction;
+		return this;
+	}
+
+	/**
+	 * @return true if the ray hit an entity
+	 */
+	public boolean isHit() {
+		return entity != null;
+	}
+
+	@Override
+	public String toString() {
+		return "RayHit[entity=" + entity + ", distance=" + distance + ", x="
+				+ x + ", y=" + y + "]";
+	}
+}
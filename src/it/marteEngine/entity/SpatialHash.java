@@ -0,0 +1,629 @@
+package it.marteEngine.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uniform grid broadphase for the entities of a World. Every entity is stored
+ * in each cell that its bounds overlap, so a collision check only has to look
+ * at the entities in the cells covered by a hitbox instead of at every entity
+ * in the world.
+ *
+ * The bounds of an entity are the union of its hitbox and its x, y, width,
+ * height rectangle. The World keeps the grid up to date when entities are
+ * added, removed or moved, see {@link #update(Entity)}.
+ */
+public class SpatialHash {
+
+	/** default width and height of a single cell in pixels */
+	public static final int DEFAULT_CELL_SIZE = 64;
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	/** width and height of a single cell in pixels */
+	private final int cellSize;
+	private final float inverseCellSize;
+
+	/** open addressing table from packed cell coordinates to cell */
+	private long[] keys;
+	private Cell[] cells;
+	private int usedSlots;
+
+	/** number of entities stored in this grid */
+	private int size;
+	/** range of the cells that ever held an entity, bounds the searches */
+	private int minCellX = Integer.MAX_VALUE, minCellY = Integer.MAX_VALUE;
+	private int maxCellX = Integer.MIN_VALUE, maxCellY = Integer.MIN_VALUE;
+
+	/**
+	 * lists handed out by query, reused to avoid garbage. One pool per thread,
+	 * so entities updated in parallel can query the grid at the same time.
+	 */
+	private final ThreadLocal<List<List<Entity>>> freeLists = new ThreadLocal<List<List<Entity>>>() {
+		@Override
+		protected List<List<Entity>> initialValue() {
+			return new ArrayList<List<Entity>>();
+		}
+	};
+
+	public SpatialHash() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	public SpatialHash(int cellSize) {
+		if (cellSize <= 0)
+			throw new IllegalArgumentException("Cell size must be > 0, was "
+					+ cellSize);
+		this.cellSize = cellSize;
+		this.inverseCellSize = 1f / cellSize;
+		keys = new long[INITIAL_CAPACITY];
+		cells = new Cell[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Add an entity to every cell its bounds overlap. Does nothing if the
+	 * entity is already stored.
+	 */
+	public void insert(Entity e) {
+		if (e.inSpatialHash)
+			return;
+		e.refreshHitShape();
+		e.cellMinX = toCell(left(e));
+		e.cellMinY = toCell(top(e));
+		e.cellMaxX = toCell(right(e));
+		e.cellMaxY = toCell(bottom(e));
+		addToCells(e);
+		e.inSpatialHash = true;
+		size++;
+	}
+
+	/**
+	 * Remove an entity from this grid. Does nothing if the entity is not
+	 * stored.
+	 */
+	public void remove(Entity e) {
+		if (!e.inSpatialHash)
+			return;
+		removeFromCells(e);
+		e.inSpatialHash = false;
+		size--;
+	}
+
+	/**
+	 * Remove many entities at once. Every cell that held one of the entities
+	 * is compacted once, instead of searching the cell for every entity.
+	 */
+	public void removeAll(List<Entity> removed) {
+		List<Cell> dirty = null;
+		for (int i = 0; i < removed.size(); i++) {
+			Entity e = removed.get(i);
+			if (!e.inSpatialHash)
+				continue;
+			e.inSpatialHash = false;
+			size--;
+			for (int cx = e.cellMinX; cx <= e.cellMaxX; cx++) {
+				for (int cy = e.cellMinY; cy <= e.cellMaxY; cy++) {
+					Cell cell = getCell(cx, cy);
+					if (cell != null && !cell.dirty) {
+						cell.dirty = true;
+						if (dirty == null)
+							dirty = new ArrayList<Cell>();
+						dirty.add(cell);
+					}
+				}
+			}
+		}
+		if (dirty == null)
+			return;
+		for (int i = 0; i < dirty.size(); i++) {
+			dirty.get(i).removeUnlisted();
+		}
+	}
+
+	/**
+	 * Move an entity to the cells of its current bounds. This is cheap when
+	 * the entity did not cross a cell border since the last update.
+	 */
+	public void update(Entity e) {
+		if (!e.inSpatialHash)
+			return;
+		e.refreshHitShape();
+		int minX = toCell(left(e));
+		int minY = toCell(top(e));
+		int maxX = toCell(right(e));
+		int maxY = toCell(bottom(e));
+		if (minX == e.cellMinX && minY == e.cellMinY && maxX == e.cellMaxX
+				&& maxY == e.cellMaxY)
+			return;
+		removeFromCells(e);
+		e.cellMinX = minX;
+		e.cellMinY = minY;
+		e.cellMaxX = maxX;
+		e.cellMaxY = maxY;
+		addToCells(e);
+	}
+
+	/**
+	 * Collect every entity stored in the cells overlapping the given area. The
+	 * result may contain entities that do not overlap the area, but never
+	 * contains an entity twice. The returned list must be handed back with
+	 * {@link #free(List)} once it is no longer needed.
+	 */
+	public List<Entity> query(float left, float top, float right, float bottom) {
+		List<Entity> result = obtain();
+		int minX = toCell(left);
+		int minY = toCell(top);
+		int maxX = toCell(right);
+		int maxY = toCell(bottom);
+		for (int cx = minX; cx <= maxX; cx++) {
+			for (int cy = minY; cy <= maxY; cy++) {
+				Cell cell = getCell(cx, cy);
+				if (cell == null)
+					continue;
+				for (int i = 0; i < cell.count; i++) {
+					Entity e = cell.entities[i];
+					// an entity spanning more than one cell is only reported
+					// by the first covered cell that is part of the query
+					if (cx == Math.max(e.cellMinX, minX)
+							&& cy == Math.max(e.cellMinY, minY)) {
+						result.add(e);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Walk the cells along a ray, nearest first, and find the first
+	 * collidable entity of a type in the mask whose hitbox the ray enters.
+	 * Entities whose hitbox contains the start of the ray are not hit. Does
+	 * not allocate.
+	 * 
+	 * @param dx
+	 *            the ray, end minus start
+	 * @param dy
+	 *            the ray, end minus start
+	 * @param limit
+	 *            fraction of the ray to search, 1 for all of it
+	 * @param result
+	 *            receives the entity hit, left alone if there is none
+	 * @return true if an entity was hit
+	 */
+	public boolean raycast(float x0, float y0, float dx, float dy,
+			long typeMask, float limit, RayHit result) {
+		int cx = toCell(x0);
+		int cy = toCell(y0);
+		int stepX = dx > 0 ? 1 : -1;
+		int stepY = dy > 0 ? 1 : -1;
+		// fraction of the ray where it leaves the current cell on each axis
+		float nextX = dx == 0 ? Float.POSITIVE_INFINITY : ((dx > 0 ? cx + 1
+				: cx) * cellSize - x0) / dx;
+		float nextY = dy == 0 ? Float.POSITIVE_INFINITY : ((dy > 0 ? cy + 1
+				: cy) * cellSize - y0) / dy;
+		float deltaX = dx == 0 ? Float.POSITIVE_INFINITY : cellSize
+				/ Math.abs(dx);
+		float deltaY = dy == 0 ? Float.POSITIVE_INFINITY : cellSize
+				/ Math.abs(dy);
+		Entity hit = null;
+		float nearest = limit;
+		while (true) {
+			Cell cell = getCell(cx, cy);
+			if (cell != null) {
+				for (int i = 0; i < cell.count; i++) {
+					Entity e = cell.entities[i];
+					if (!e.inSpatialHash || !e.collidable
+							|| (e.getTypeBits() & typeMask) == 0)
+						continue;
+					float t = e.rayEntry(x0, y0, dx, dy);
+					if (t >= 0 && t < nearest) {
+						nearest = t;
+						hit = e;
+					}
+				}
+			}
+			// a hit in a later cell can not be nearer
+			float exit = Math.min(nextX, nextY);
+			if (exit >= nearest)
+				break;
+			if (nextX < nextY) {
+				cx += stepX;
+				nextX += deltaX;
+			} else {
+				cy += stepY;
+				nextY += deltaY;
+			}
+		}
+		if (hit == null)
+			return false;
+		result.set(hit, x0, y0, dx, dy, nearest);
+		return true;
+	}
+
+	/**
+	 * Find the entities whose hitbox center is nearest to a point, searching
+	 * the rings of cells around the point from the inside out. Does not
+	 * allocate.
+	 * 
+	 * @param typeMask
+	 *            the bits of the types to look for, 0 for any type
+	 * @param result
+	 *            receives the nearest entities, nearest first. Its length is
+	 *            the number of entities to find.
+	 * @return the number of entities found
+	 */
+	public int nearest(float x, float y, long typeMask, float maxDistance,
+			Entity[] result) {
+		if (result.length == 0 || minCellX > maxCellX)
+			return 0;
+		int cx = toCell(x);
+		int cy = toCell(y);
+		float maxDistanceSq = maxDistance * maxDistance;
+		int count = 0;
+		for (int ring = 0;; ring++) {
+			int left = cx - ring, right = cx + ring;
+			int top = cy - ring, bottom = cy + ring;
+			// only the sides of the ring that cross the used cells
+			int fromX = Math.max(left, minCellX);
+			int toX = Math.min(right, maxCellX);
+			int fromY = Math.max(top + 1, minCellY);
+			int toY = Math.min(bottom - 1, maxCellY);
+			for (int i = fromX; i <= toX; i++) {
+				if (top >= minCellY)
+					count = offerCell(i, top, x, y, typeMask, maxDistanceSq,
+							result, count);
+				if (ring > 0 && bottom <= maxCellY)
+					count = offerCell(i, bottom, x, y, typeMask,
+							maxDistanceSq, result, count);
+			}
+			for (int j = fromY; j <= toY; j++) {
+				if (left >= minCellX)
+					count = offerCell(left, j, x, y, typeMask, maxDistanceSq,
+							result, count);
+				if (right <= maxCellX)
+					count = offerCell(right, j, x, y, typeMask,
+							maxDistanceSq, result, count);
+			}
+			// the centers in the next rings are at least this far away
+			float reach = ring * cellSize;
+			if (reach > maxDistance)
+				break;
+			if (count == result.length
+					&& distanceSq(result[count - 1], x, y) <= reach * reach)
+				break;
+			if (left <= minCellX && right >= maxCellX && top <= minCellY
+					&& bottom >= maxCellY)
+				break;
+		}
+		return count;
+	}
+
+	/**
+	 * Find the entities of a list whose hitbox center is nearest to a point
+	 * 
+	 * @see #nearest(float, float, long, float, Entity[])
+	 */
+	public static int nearest(List<Entity> candidates, float x, float y,
+			long typeMask, float maxDistance, Entity[] result) {
+		float maxDistanceSq = maxDistance * maxDistance;
+		int count = 0;
+		for (int i = 0; i < candidates.size(); i++) {
+			Entity e = candidates.get(i);
+			if (matches(e, typeMask))
+				count = offer(e, x, y, maxDistanceSq, result, count);
+		}
+		return count;
+	}
+
+	/**
+	 * Pass every entity whose hitbox center is at most radius away from a
+	 * point to the consumer. Does not allocate.
+	 * 
+	 * @param typeMask
+	 *            the bits of the types to look for, 0 for any type
+	 */
+	public void withinRadius(float x, float y, float radius, long typeMask,
+			EntityConsumer consumer) {
+		int minX = Math.max(minCellX, toCell(x - radius));
+		int minY = Math.max(minCellY, toCell(y - radius));
+		int maxX = Math.min(maxCellX, toCell(x + radius));
+		int maxY = Math.min(maxCellY, toCell(y + radius));
+		float radiusSq = radius * radius;
+		for (int cx = minX; cx <= maxX; cx++) {
+			for (int cy = minY; cy <= maxY; cy++) {
+				Cell cell = getCell(cx, cy);
+				if (cell == null)
+					continue;
+				for (int i = 0; i < cell.count; i++) {
+					Entity e = cell.entities[i];
+					if (isCenterCell(e, cx, cy) && matches(e, typeMask)
+							&& distanceSq(e, x, y) <= radiusSq)
+						consumer.accept(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pass every entity of a list whose hitbox center is at most radius away
+	 * from a point to the consumer
+	 * 
+	 * @see #withinRadius(float, float, float, long, EntityConsumer)
+	 */
+	public static void withinRadius(List<Entity> candidates, float x,
+			float y, float radius, long typeMask, EntityConsumer consumer) {
+		float radiusSq = radius * radius;
+		for (int i = 0; i < candidates.size(); i++) {
+			Entity e = candidates.get(i);
+			if (matches(e, typeMask) && distanceSq(e, x, y) <= radiusSq)
+				consumer.accept(e);
+		}
+	}
+
+	/**
+	 * Offer the entities of a cell whose hitbox center is in the cell
+	 * 
+	 * @return the number of entities in the result
+	 */
+	private int offerCell(int cx, int cy, float x, float y, long typeMask,
+			float maxDistanceSq, Entity[] result, int count) {
+		Cell cell = getCell(cx, cy);
+		if (cell == null)
+			return count;
+		for (int i = 0; i < cell.count; i++) {
+			Entity e = cell.entities[i];
+			if (isCenterCell(e, cx, cy) && matches(e, typeMask))
+				count = offer(e, x, y, maxDistanceSq, result, count);
+		}
+		return count;
+	}
+
+	/**
+	 * Insert an entity into the result sorted by distance, if it is near
+	 * enough
+	 * 
+	 * @return the number of entities in the result
+	 */
+	private static int offer(Entity e, float x, float y, float maxDistanceSq,
+			Entity[] result, int count) {
+		float distanceSq = distanceSq(e, x, y);
+		if (distanceSq > maxDistanceSq)
+			return count;
+		if (count == result.length) {
+			if (distanceSq >= distanceSq(result[count - 1], x, y))
+				return count;
+			count--;
+		}
+		int i = count;
+		while (i > 0 && distanceSq(result[i - 1], x, y) > distanceSq) {
+			result[i] = result[i - 1];
+			i--;
+		}
+		result[i] = e;
+		return count + 1;
+	}
+
+	/**
+	 * @return true if the center of the hitbox of the entity is in the cell,
+	 *         so an entity in many cells is only looked at once
+	 */
+	private boolean isCenterCell(Entity e, int cx, int cy) {
+		return e.inSpatialHash
+				&& toCell(e.x + e.hitboxOffsetX + e.hitboxWidth / 2f) == cx
+				&& toCell(e.y + e.hitboxOffsetY + e.hitboxHeight / 2f) == cy;
+	}
+
+	private static boolean matches(Entity e, long typeMask) {
+		return typeMask == 0 || (e.getTypeBits() & typeMask) != 0;
+	}
+
+	private static float distanceSq(Entity e, float x, float y) {
+		float dx = e.x + e.hitboxOffsetX + e.hitboxWidth / 2f - x;
+		float dy = e.y + e.hitboxOffsetY + e.hitboxHeight / 2f - y;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * @return an empty list from the pool used by
+	 *         {@link #query(float, float, float, float)}. Must be handed back
+	 *         with {@link #free(List)}.
+	 */
+	public List<Entity> obtain() {
+		List<List<Entity>> free = freeLists.get();
+		int last = free.size() - 1;
+		if (last >= 0)
+			return free.remove(last);
+		return new ArrayList<Entity>();
+	}
+
+	/**
+	 * Hand back a list returned by {@link #query(float, float, float, float)}
+	 * or {@link #obtain()}
+	 */
+	public void free(List<Entity> list) {
+		list.clear();
+		freeLists.get().add(list);
+	}
+
+	/**
+	 * Remove every cell of this grid. Entities previously stored have to be
+	 * removed one by one with {@link #remove(Entity)} first.
+	 */
+	public void clear() {
+		keys = new long[INITIAL_CAPACITY];
+		cells = new Cell[INITIAL_CAPACITY];
+		usedSlots = 0;
+		size = 0;
+		minCellX = minCellY = Integer.MAX_VALUE;
+		maxCellX = maxCellY = Integer.MIN_VALUE;
+	}
+
+	public int getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * @return number of entities stored in this grid
+	 */
+	public int size() {
+		return size;
+	}
+
+	private void addToCells(Entity e) {
+		minCellX = Math.min(minCellX, e.cellMinX);
+		minCellY = Math.min(minCellY, e.cellMinY);
+		maxCellX = Math.max(maxCellX, e.cellMaxX);
+		maxCellY = Math.max(maxCellY, e.cellMaxY);
+		for (int cx = e.cellMinX; cx <= e.cellMaxX; cx++) {
+			for (int cy = e.cellMinY; cy <= e.cellMaxY; cy++) {
+				getOrCreateCell(cx, cy).add(e);
+			}
+		}
+	}
+
+	private void removeFromCells(Entity e) {
+		for (int cx = e.cellMinX; cx <= e.cellMaxX; cx++) {
+			for (int cy = e.cellMinY; cy <= e.cellMaxY; cy++) {
+				Cell cell = getCell(cx, cy);
+				if (cell != null)
+					cell.remove(e);
+			}
+		}
+	}
+
+	private int toCell(float coordinate) {
+		return (int) Math.floor(coordinate * inverseCellSize);
+	}
+
+	private static float left(Entity e) {
+		return e.x + Math.min(e.hitboxOffsetX, 0);
+	}
+
+	private static float top(Entity e) {
+		return e.y + Math.min(e.hitboxOffsetY, 0);
+	}
+
+	private static float right(Entity e) {
+		return e.x + Math.max(e.hitboxOffsetX + e.hitboxWidth, e.width);
+	}
+
+	private static float bottom(Entity e) {
+		return e.y + Math.max(e.hitboxOffsetY + e.hitboxHeight, e.height);
+	}
+
+	/***************** open addressing cell table ************************************/
+
+	private static long key(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xffffffffL);
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private Cell getCell(int cx, int cy) {
+		long key = key(cx, cy);
+		int mask = cells.length - 1;
+		int slot = hash(key) & mask;
+		while (cells[slot] != null) {
+			if (keys[slot] == key)
+				return cells[slot];
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	private Cell getOrCreateCell(int cx, int cy) {
+		long key = key(cx, cy);
+		int mask = cells.length - 1;
+		int slot = hash(key) & mask;
+		while (cells[slot] != null) {
+			if (keys[slot] == key)
+				return cells[slot];
+			slot = (slot + 1) & mask;
+		}
+		if ((usedSlots + 1) * 2 > cells.length) {
+			rehash();
+			mask = cells.length - 1;
+			slot = hash(key) & mask;
+			while (cells[slot] != null)
+				slot = (slot + 1) & mask;
+		}
+		Cell cell = new Cell();
+		keys[slot] = key;
+		cells[slot] = cell;
+		usedSlots++;
+		return cell;
+	}
+
+	/**
+	 * Drop the empty cells, so the table holds the cells around the entities
+	 * and not every cell they ever visited, and grow it if it is still more
+	 * than a quarter full.
+	 */
+	private void rehash() {
+		long[] oldKeys = keys;
+		Cell[] oldCells = cells;
+		int used = 0;
+		for (int i = 0; i < oldCells.length; i++) {
+			if (oldCells[i] != null && oldCells[i].count > 0)
+				used++;
+		}
+		int capacity = oldCells.length;
+		if (used * 4 > capacity)
+			capacity *= 2;
+		keys = new long[capacity];
+		cells = new Cell[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < oldCells.length; i++) {
+			if (oldCells[i] == null || oldCells[i].count == 0)
+				continue;
+			int slot = hash(oldKeys[i]) & mask;
+			while (cells[slot] != null)
+				slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[i];
+			cells[slot] = oldCells[i];
+		}
+		usedSlots = used;
+	}
+
+	/** the entities overlapping a single cell, unordered */
+	private static final class Cell {
+		private Entity[] entities = new Entity[4];
+		private int count;
+		private boolean dirty;
+
+		private void add(Entity e) {
+			if (count == entities.length) {
+				Entity[] bigger = new Entity[count * 2];
+				System.arraycopy(entities, 0, bigger, 0, count);
+				entities = bigger;
+			}
+			entities[count++] = e;
+		}
+
+		private void remove(Entity e) {
+			for (int i = 0; i < count; i++) {
+				if (entities[i] == e) {
+					entities[i] = entities[--count];
+					entities[count] = null;
+					return;
+				}
+			}
+		}
+
+		/** drop the entities that are no longer stored in the grid */
+		private void removeUnlisted() {
+			int kept = 0;
+			for (int i = 0; i < count; i++) {
+				if (entities[i].inSpatialHash)
+					entities[kept++] = entities[i];
+			}
+			for (int i = kept; i < count; i++)
+				entities[i] = null;
+			count = kept;
+			dirty = false;
+		}
+	}
+}
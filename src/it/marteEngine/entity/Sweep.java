@@ -0,0 +1,25 @@
+package it.marteEngine.entity;
+
+/**
+ * Result of {@link Entity#sweep(long, float, float, int, int, Sweep)}. Keep
+ * one instance per entity and reuse it, a sweep does not allocate.
+ */
+public class Sweep {
+
+	/** pixels the entity can move before it collides */
+	public int distance;
+	/** the entity in the way, null if the whole move is free */
+	public Entity entity;
+
+	/**
+	 * @return true if an entity is in the way
+	 */
+	public boolean isBlocked() {
+		return entity != null;
+	}
+
+	@Override
+	public String toString() {
+		return "Sweep[distance=" + distance + ", entity=" + entity + "]";
+	}
+}
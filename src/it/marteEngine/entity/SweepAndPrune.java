@@ -0,0 +1,344 @@
+package it.marteEngine.entity;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds every pair of overlapping entities once per world update and tells
+ * the entities when a pair starts, keeps and stops overlapping, see
+ * {@link Entity#collisionEnter(Entity)}, {@link Entity#collisionStay(Entity)}
+ * and {@link Entity#collisionExit(Entity)}.
+ *
+ * The entities are kept sorted on the left side of their hitbox. Entities
+ * move little between updates, so an insertion sort keeps the order in
+ * nearly linear time and each entity only has to be compared with the
+ * entities that start before its right side. Two entities form a pair when
+ * their hitboxes overlap, both are collidable and one of them has a type in
+ * the collision mask of the other.
+ *
+ * The World keeps the entities of its game layer in here when collision
+ * events are enabled, see
+ * {@link it.marteEngine.World#setCollisionEvents(boolean)}.
+ */
+public class SweepAndPrune {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** entities sorted on the left of their hitbox, null for removed ones */
+	private Entity[] boxes = new Entity[INITIAL_CAPACITY];
+	/** left of the hitbox of every entity at the last pass */
+	private float[] lefts = new float[INITIAL_CAPACITY];
+	/**
+	 * the rest of the hitbox, the types and the collision mask of every
+	 * entity, copied by every pass so the sweep does not touch the entities
+	 */
+	private float[] rights = new float[INITIAL_CAPACITY];
+	private float[] tops = new float[INITIAL_CAPACITY];
+	private float[] bottoms = new float[INITIAL_CAPACITY];
+	private long[] types = new long[INITIAL_CAPACITY];
+	private long[] masks = new long[INITIAL_CAPACITY];
+	private int count;
+
+	/** pairs overlapping at the last pass */
+	private PairTable pairs = new PairTable();
+	/** pairs found by the current pass */
+	private PairTable found = new PairTable();
+
+	public void insert(Entity entity) {
+		if (entity.sapIndex >= 0)
+			return;
+		if (count == boxes.length) {
+			boxes = Arrays.copyOf(boxes, count * 2);
+			lefts = Arrays.copyOf(lefts, count * 2);
+			rights = new float[count * 2];
+			tops = new float[count * 2];
+			bottoms = new float[count * 2];
+			types = new long[count * 2];
+			masks = new long[count * 2];
+		}
+		boxes[count] = entity;
+		lefts[count] = entity.x + entity.hitboxOffsetX;
+		entity.sapIndex = count++;
+	}
+
+	/**
+	 * Remove an entity, the entities overlapping it are notified that the
+	 * collision ended.
+	 */
+	public void remove(Entity entity) {
+		if (entity.sapIndex < 0)
+			return;
+		boxes[entity.sapIndex] = null;
+		entity.sapIndex = -1;
+		pairs.exitRemoved();
+	}
+
+	/**
+	 * Remove entities in one pass over the pairs.
+	 *
+	 * @see #remove(Entity)
+	 */
+	public void removeAll(List<Entity> entities) {
+		boolean removed = false;
+		for (int i = 0; i < entities.size(); i++) {
+			Entity entity = entities.get(i);
+			if (entity.sapIndex >= 0) {
+				boxes[entity.sapIndex] = null;
+				entity.sapIndex = -1;
+				removed = true;
+			}
+		}
+		if (removed)
+			pairs.exitRemoved();
+	}
+
+	/**
+	 * Forget every entity and pair, without notifying the entities.
+	 */
+	public void clear() {
+		for (int i = 0; i < count; i++) {
+			if (boxes[i] != null)
+				boxes[i].sapIndex = -1;
+		}
+		Arrays.fill(boxes, 0, count, null);
+		count = 0;
+		pairs.clear();
+		found.clear();
+	}
+
+	/**
+	 * Find the overlapping pairs and notify the entities. Call once per
+	 * update, after the entities moved.
+	 */
+	public void update() {
+		sort();
+		for (int i = 0; i < count; i++) {
+			Entity entity = boxes[i];
+			float top = entity.y + entity.hitboxOffsetY;
+			rights[i] = lefts[i] + entity.hitboxWidth;
+			tops[i] = top;
+			bottoms[i] = top + entity.hitboxHeight;
+			// an entity that does not collide is interested in nothing
+			types[i] = entity.collidable ? entity.getTypeBits() : 0;
+			masks[i] = entity.collidable ? entity.getCollisionMask() : 0;
+		}
+		for (int i = 0; i < count; i++) {
+			float left = lefts[i];
+			float right = rights[i];
+			float top = tops[i];
+			float bottom = bottoms[i];
+			long type = types[i];
+			long mask = masks[i];
+			if (type == 0 && mask == 0)
+				continue;
+			for (int j = i + 1; j < count && lefts[j] < right; j++) {
+				if (rights[j] > left && tops[j] < bottom && bottoms[j] > top
+						&& ((mask & types[j]) != 0 || (masks[j] & type) != 0)
+						&& shapesOverlap(boxes[i], boxes[j]))
+					pairFound(boxes[i], boxes[j]);
+			}
+		}
+		pairs.exitUnseen();
+		PairTable previous = pairs;
+		pairs = found;
+		found = previous;
+		found.clear();
+	}
+
+	/**
+	 * Drop the removed entities and sort the others on the left of their
+	 * hitbox. The order of the last pass is nearly sorted already.
+	 */
+	private void sort() {
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			Entity entity = boxes[i];
+			if (entity == null)
+				continue;
+			entity.refreshHitShape();
+			float left = entity.x + entity.hitboxOffsetX;
+			int j = size - 1;
+			while (j >= 0 && lefts[j] > left) {
+				boxes[j + 1] = boxes[j];
+				lefts[j + 1] = lefts[j];
+				boxes[j + 1].sapIndex = j + 1;
+				j--;
+			}
+			boxes[j + 1] = entity;
+			lefts[j + 1] = left;
+			entity.sapIndex = j + 1;
+			size++;
+		}
+		Arrays.fill(boxes, size, count, null);
+		count = size;
+	}
+
+	/**
+	 * @return true if the hit shapes of two entities with overlapping bounds
+	 *         overlap, or neither has a hit shape
+	 */
+	private static boolean shapesOverlap(Entity a, Entity b) {
+		if (a.getHitShape() == null && b.getHitShape() == null)
+			return true;
+		return a.shapesOverlap(b, a.x, a.y);
+	}
+
+	private void pairFound(Entity a, Entity b) {
+		if (pairs.see(a, b)) {
+			a.collisionStay(b);
+			b.collisionStay(a);
+		} else {
+			a.collisionEnter(b);
+			b.collisionEnter(a);
+		}
+		found.add(a, b);
+	}
+
+	/**
+	 * @return the number of entities
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			if (boxes[i] != null)
+				size++;
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of pairs found by the last pass
+	 */
+	public int getPairCount() {
+		return pairs.size;
+	}
+
+	@Override
+	public String toString() {
+		return "SweepAndPrune[entities=" + size() + ", pairs=" + pairs.size
+				+ "]";
+	}
+
+	/**
+	 * Open addressing hash set of unordered pairs of entities
+	 */
+	private static class PairTable {
+		private static final byte EMPTY = 0;
+		private static final byte LIVE = 1;
+		/** found again by the current pass */
+		private static final byte SEEN = 2;
+		/** removed, skipped by lookups until the table is cleared */
+		private static final byte DEAD = 3;
+
+		private Entity[] first = new Entity[INITIAL_CAPACITY];
+		private Entity[] second = new Entity[INITIAL_CAPACITY];
+		private byte[] states = new byte[INITIAL_CAPACITY];
+		/** live and seen pairs */
+		private int size;
+		/** slots that are not empty */
+		private int used;
+
+		void add(Entity a, Entity b) {
+			if ((used + 1) * 2 > states.length)
+				grow();
+			int mask = states.length - 1;
+			int slot = hash(a, b) & mask;
+			while (states[slot] != EMPTY)
+				slot = (slot + 1) & mask;
+			first[slot] = a;
+			second[slot] = b;
+			states[slot] = LIVE;
+			size++;
+			used++;
+		}
+
+		/**
+		 * Mark a pair as seen by the current pass
+		 *
+		 * @return true if the pair is in the table
+		 */
+		boolean see(Entity a, Entity b) {
+			int mask = states.length - 1;
+			int slot = hash(a, b) & mask;
+			while (states[slot] != EMPTY) {
+				if (states[slot] != DEAD && matches(slot, a, b)) {
+					states[slot] = SEEN;
+					return true;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return false;
+		}
+
+		/**
+		 * Notify the entities of the pairs not seen by the current pass that
+		 * their collision ended
+		 */
+		void exitUnseen() {
+			for (int slot = 0; slot < states.length; slot++) {
+				if (states[slot] == LIVE) {
+					states[slot] = DEAD;
+					size--;
+					first[slot].collisionExit(second[slot]);
+					second[slot].collisionExit(first[slot]);
+				}
+			}
+		}
+
+		/**
+		 * Notify the entities of the pairs with a removed entity that their
+		 * collision ended
+		 */
+		void exitRemoved() {
+			if (size == 0)
+				return;
+			for (int slot = 0; slot < states.length; slot++) {
+				if ((states[slot] == LIVE || states[slot] == SEEN)
+						&& (first[slot].sapIndex < 0
+								|| second[slot].sapIndex < 0)) {
+					states[slot] = DEAD;
+					size--;
+					first[slot].collisionExit(second[slot]);
+					second[slot].collisionExit(first[slot]);
+				}
+			}
+		}
+
+		void clear() {
+			if (used == 0)
+				return;
+			Arrays.fill(first, null);
+			Arrays.fill(second, null);
+			Arrays.fill(states, EMPTY);
+			size = 0;
+			used = 0;
+		}
+
+		private void grow() {
+			Entity[] oldFirst = first;
+			Entity[] oldSecond = second;
+			byte[] oldStates = states;
+			first = new Entity[oldStates.length * 2];
+			second = new Entity[oldStates.length * 2];
+			states = new byte[oldStates.length * 2];
+			size = 0;
+			used = 0;
+			// only the table of the current pass grows, all its pairs are live
+			for (int slot = 0; slot < oldStates.length; slot++) {
+				if (oldStates[slot] == LIVE)
+					add(oldFirst[slot], oldSecond[slot]);
+			}
+		}
+
+		private boolean matches(int slot, Entity a, Entity b) {
+			return first[slot] == a && second[slot] == b
+					|| first[slot] == b && second[slot] == a;
+		}
+
+		/** the same hash for a,b and b,a */
+		private static int hash(Entity a, Entity b) {
+			int h = System.identityHashCode(a) + System.identityHashCode(b);
+			return h * 0x9E3779B9 ^ h >>> 16;
+		}
+	}
+}
@@ -0,0 +1,358 @@
+package it.marteEngine.entity;
+
+import it.marteEngine.LevelCompiler;
+
+import org.newdawn.slick.tiled.TiledMap;
+
+/**
+ * The static solids of a level as a grid of tiles, one bit per tile. Set it
+ * with {@link it.marteEngine.World#setTileCollisionLayer(TileCollisionLayer)}
+ * and every collide call of an entity tests the tiles under its hitbox before
+ * the entities, without creating an entity per tile.
+ * <p/>
+ * The layer is an entity of type SOLID, so a collide call that hits a tile
+ * returns the layer and the usual {@link #collisionResponse(Entity)} is
+ * called. Do not add the layer to the world like an ordinary entity.
+ *
+ * <pre>
+ * world.setTileCollisionLayer(TileCollisionLayer.fromLayer(map, blocksIndex));
+ * </pre>
+ */
+public class TileCollisionLayer extends Entity {
+
+	private final int columns;
+	private final int rows;
+	private final int tileWidth;
+	private final int tileHeight;
+	/** longs per row of tiles */
+	private final int rowWords;
+	/** bit column%64 of word row*rowWords+column/64 is set if solid */
+	private final long[] bits;
+
+	/**
+	 * Create a layer without solid tiles
+	 *
+	 * @param x
+	 *            left of the first tile
+	 * @param y
+	 *            top of the first tile
+	 */
+	public TileCollisionLayer(float x, float y, int columns, int rows,
+			int tileWidth, int tileHeight) {
+		super(x, y);
+		if (columns <= 0 || rows <= 0 || tileWidth <= 0 || tileHeight <= 0)
+			throw new IllegalArgumentException("Invalid layer of " + columns
+					+ "x" + rows + " tiles of " + tileWidth + "x" + tileHeight);
+		this.columns = columns;
+		this.rows = rows;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+		rowWords = (columns + 63) >> 6;
+		bits = new long[rowWords * rows];
+		width = columns * tileWidth;
+		height = rows * tileHeight;
+		setHitBox(0, 0, width, height);
+		addType(SOLID);
+		visible = false;
+	}
+
+	/**
+	 * @param solid
+	 *            solid tiles, indexed [column][row]
+	 */
+	public TileCollisionLayer(float x, float y, boolean[][] solid,
+			int tileWidth, int tileHeight) {
+		this(x, y, solid.length, solid.length == 0 ? 0 : solid[0].length,
+				tileWidth, tileHeight);
+		for (int column = 0; column < columns; column++) {
+			for (int row = 0; row < rows; row++) {
+				if (solid[column][row])
+					set(column, row, true);
+			}
+		}
+	}
+
+	/**
+	 * @return a layer where every tile of the map layer is solid
+	 */
+	public static TileCollisionLayer fromLayer(TiledMap map, int layer) {
+		TileCollisionLayer tiles = new TileCollisionLayer(0, 0,
+				map.getWidth(), map.getHeight(), map.getTileWidth(),
+				map.getTileHeight());
+		for (int column = 0; column < map.getWidth(); column++) {
+			for (int row = 0; row < map.getHeight(); row++) {
+				if (map.getTileId(column, row, layer) != 0)
+					tiles.set(column, row, true);
+			}
+		}
+		return tiles;
+	}
+
+	/**
+	 * @return a layer where the tiles of the map layer with the given tile
+	 *         property set to true are solid
+	 * @see LevelCompiler#SOLID_PROPERTY
+	 */
+	public static TileCollisionLayer fromProperty(TiledMap map, int layer,
+			String property) {
+		return new TileCollisionLayer(0, 0, LevelCompiler.solidTiles(map,
+				layer, property), map.getTileWidth(), map.getTileHeight());
+	}
+
+	public void set(int column, int row, boolean solid) {
+		if (column < 0 || column >= columns || row < 0 || row >= rows)
+			throw new IndexOutOfBoundsException("Tile " + column + "," + row
+					+ " outside of " + columns + "x" + rows);
+		int index = row * rowWords + (column >> 6);
+		if (solid)
+			bits[index] |= 1L << column;
+		else
+			bits[index] &= ~(1L << column);
+	}
+
+	/**
+	 * @return true if the tile is solid, tiles outside of the layer are not
+	 */
+	public boolean isSolid(int column, int row) {
+		if (column < 0 || column >= columns || row < 0 || row >= rows)
+			return false;
+		return (bits[row * rowWords + (column >> 6)] & 1L << column) != 0;
+	}
+
+	/**
+	 * @return true if the tile under the point is solid
+	 */
+	public boolean isSolidAt(float x, float y) {
+		return isSolid(floor((x - this.x) / tileWidth),
+				floor((y - this.y) / tileHeight));
+	}
+
+	/**
+	 * Tests the tiles under a rectangle, a whole word of tiles at a time. The
+	 * edges of the rectangle touching a tile do not overlap it, as with the
+	 * hitboxes of entities.
+	 *
+	 * @return true if a solid tile overlaps the rectangle
+	 */
+	public boolean overlaps(float left, float top, float right, float bottom) {
+		if (right < left || bottom < top)
+			return false;
+		return anySolid(firstColumn(left), firstRow(top), lastColumn(right),
+				lastRow(bottom));
+	}
+
+	/**
+	 * Sweeps a rectangle along one axis, a whole pixel at a time, and finds
+	 * the first solid tile in its way. Only the tiles entered along the way
+	 * are tested, a column or row at a time.
+	 *
+	 * @param dx
+	 *            pixels to move horizontally, dy must be 0
+	 * @param dy
+	 *            pixels to move vertically, dx must be 0
+	 * @return the number of pixels the rectangle can move before it overlaps
+	 *         a solid tile, at most the length of the move
+	 */
+	public int sweep(float left, float top, float right, float bottom,
+			int dx, int dy) {
+		int steps = Math.abs(dx + dy);
+		if (steps == 0 || right < left || bottom < top)
+			return steps;
+		if (overlaps(left + Integer.signum(dx), top + Integer.signum(dy),
+				right + Integer.signum(dx), bottom + Integer.signum(dy)))
+			return 0;
+		if (dx > 0) {
+			int minRow = firstRow(top), maxRow = lastRow(bottom);
+			int first = Math.max(0, ceil((right - x) / tileWidth));
+			for (int c = first; c < columns; c++) {
+				int k = floor(x + c * tileWidth - right) + 1;
+				if (k > steps)
+					break;
+				if (anySolid(c, minRow, c, maxRow))
+					return k - 1;
+			}
+		} else if (dx < 0) {
+			int minRow = firstRow(top), maxRow = lastRow(bottom);
+			int first = Math.min(columns, floor((left - x) / tileWidth)) - 1;
+			for (int c = first; c >= 0; c--) {
+				int k = floor(left - x - (c + 1) * tileWidth) + 1;
+				if (k > steps)
+					break;
+				if (anySolid(c, minRow, c, maxRow))
+					return k - 1;
+			}
+		} else if (dy > 0) {
+			int minColumn = firstColumn(left), maxColumn = lastColumn(right);
+			int first = Math.max(0, ceil((bottom - y) / tileHeight));
+			for (int r = first; r < rows; r++) {
+				int k = floor(y + r * tileHeight - bottom) + 1;
+				if (k > steps)
+					break;
+				if (anySolid(minColumn, r, maxColumn, r))
+					return k - 1;
+			}
+		} else {
+			int minColumn = firstColumn(left), maxColumn = lastColumn(right);
+			int first = Math.min(rows, floor((top - y) / tileHeight)) - 1;
+			for (int r = first; r >= 0; r--) {
+				int k = floor(top - y - (r + 1) * tileHeight) + 1;
+				if (k > steps)
+					break;
+				if (anySolid(minColumn, r, maxColumn, r))
+					return k - 1;
+			}
+		}
+		return steps;
+	}
+
+	/**
+	 * Walk the tiles along a ray, nearest first, and find the first solid
+	 * tile it enters. The tile holding the start of the ray is not hit. Does
+	 * not allocate.
+	 * 
+	 * @param dx
+	 *            the ray, end minus start
+	 * @param dy
+	 *            the ray, end minus start
+	 * @return the fraction of the ray where it enters a solid tile, -1 if it
+	 *         enters none
+	 */
+	public float raycast(float x0, float y0, float dx, float dy) {
+		// start relative to the layer, clipped to the layer
+		float startX = x0 - x;
+		float startY = y0 - y;
+		float enter = 0, exit = 1;
+		if (dx == 0) {
+			if (startX < 0 || startX >= width)
+				return -1;
+		} else {
+			float t1 = -startX / dx, t2 = (width - startX) / dx;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		if (dy == 0) {
+			if (startY < 0 || startY >= height)
+				return -1;
+		} else {
+			float t1 = -startY / dy, t2 = (height - startY) / dy;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		if (enter > exit)
+			return -1;
+		int column = Math.max(0, Math.min(columns - 1,
+				floor((startX + dx * enter) / tileWidth)));
+		int row = Math.max(0, Math.min(rows - 1,
+				floor((startY + dy * enter) / tileHeight)));
+		int stepX = dx > 0 ? 1 : -1;
+		int stepY = dy > 0 ? 1 : -1;
+		// fraction of the ray where it leaves the current tile on each axis
+		float nextX = dx == 0 ? Float.POSITIVE_INFINITY : ((dx > 0 ? column + 1
+				: column) * tileWidth - startX) / dx;
+		float nextY = dy == 0 ? Float.POSITIVE_INFINITY : ((dy > 0 ? row + 1
+				: row) * tileHeight - startY) / dy;
+		float deltaX = dx == 0 ? Float.POSITIVE_INFINITY : tileWidth
+				/ Math.abs(dx);
+		float deltaY = dy == 0 ? Float.POSITIVE_INFINITY : tileHeight
+				/ Math.abs(dy);
+		float t = enter;
+		while (true) {
+			if (t > 0 && isSolid(column, row))
+				return t;
+			if (nextX < nextY) {
+				t = nextX;
+				column += stepX;
+				nextX += deltaX;
+			} else {
+				t = nextY;
+				row += stepY;
+				nextY += deltaY;
+			}
+			if (t > exit || column < 0 || column >= columns || row < 0
+					|| row >= rows)
+				return -1;
+		}
+	}
+
+	/**
+	 * @return true if a tile in the range of columns and rows is solid
+	 */
+	private boolean anySolid(int minColumn, int minRow, int maxColumn,
+			int maxRow) {
+		if (minColumn > maxColumn || minRow > maxRow)
+			return false;
+		int firstWord = minColumn >> 6;
+		int lastWord = maxColumn >> 6;
+		long firstMask = -1L << minColumn;
+		long lastMask = -1L >>> (63 - (maxColumn & 63));
+		for (int row = minRow; row <= maxRow; row++) {
+			int start = row * rowWords;
+			if (firstWord == lastWord) {
+				if ((bits[start + firstWord] & firstMask & lastMask) != 0)
+					return true;
+				continue;
+			}
+			if ((bits[start + firstWord] & firstMask) != 0
+					|| (bits[start + lastWord] & lastMask) != 0)
+				return true;
+			for (int word = firstWord + 1; word < lastWord; word++) {
+				if (bits[start + word] != 0)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if a solid tile overlaps the hitbox of the entity placed at
+	 *         x,y
+	 */
+	public boolean overlaps(Entity entity, float x, float y) {
+		float left = x + entity.hitboxOffsetX;
+		float top = y + entity.hitboxOffsetY;
+		return overlaps(left, top, left + entity.hitboxWidth, top
+				+ entity.hitboxHeight);
+	}
+
+	/** @return the first column overlapped by a rectangle from left */
+	private int firstColumn(float left) {
+		return Math.max(0, floor((left - x) / tileWidth));
+	}
+
+	/** @return the last column overlapped by a rectangle up to right */
+	private int lastColumn(float right) {
+		return Math.min(columns - 1, ceil((right - x) / tileWidth) - 1);
+	}
+
+	private int firstRow(float top) {
+		return Math.max(0, floor((top - y) / tileHeight));
+	}
+
+	private int lastRow(float bottom) {
+		return Math.min(rows - 1, ceil((bottom - y) / tileHeight) - 1);
+	}
+
+	private static int floor(float value) {
+		return (int) Math.floor(value);
+	}
+
+	private static int ceil(float value) {
+		return (int) Math.ceil(value);
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getTileWidth() {
+		return tileWidth;
+	}
+
+	public int getTileHeight() {
+		return tileHeight;
+	}
+}
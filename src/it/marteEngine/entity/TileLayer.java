@@ -0,0 +1,60 @@
+package it.marteEngine.entity;
+
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.geom.Rectangle;
+import org.newdawn.slick.tiled.TiledMap;
+
+/**
+ * Renders a layer of a TiledMap straight from the map, instead of one entity
+ * per tile. Only the tiles visible through the camera of the world are
+ * drawn. The layer does not collide, combine it with the colliders of
+ * {@link it.marteEngine.LevelCompiler}.
+ */
+public class TileLayer extends Entity {
+
+	private final TiledMap map;
+	private final int layer;
+
+	/**
+	 * @param layer
+	 *            index of the layer in the map
+	 */
+	public TileLayer(float x, float y, TiledMap map, int layer) {
+		super(x, y);
+		this.map = map;
+		this.layer = layer;
+		width = map.getWidth() * map.getTileWidth();
+		height = map.getHeight() * map.getTileHeight();
+		collidable = false;
+	}
+
+	@Override
+	public void render(GameContainer container, Graphics g)
+			throws SlickException {
+		int tileWidth = map.getTileWidth();
+		int tileHeight = map.getTileHeight();
+		int minX = 0, minY = 0;
+		int maxX = map.getWidth(), maxY = map.getHeight();
+		if (world != null && world.camera != null) {
+			Rectangle visible = world.camera.getVisibleRect();
+			minX = Math.max(minX, (int) ((visible.getX() - x) / tileWidth));
+			minY = Math.max(minY, (int) ((visible.getY() - y) / tileHeight));
+			maxX = Math.min(maxX, (int) ((visible.getMaxX() - x) / tileWidth) + 1);
+			maxY = Math.min(maxY, (int) ((visible.getMaxY() - y) / tileHeight) + 1);
+		}
+		if (minX >= maxX || minY >= maxY)
+			return;
+		map.render((int) x + minX * tileWidth, (int) y + minY * tileHeight,
+				minX, minY, maxX - minX, maxY - minY, layer, false);
+	}
+
+	public TiledMap getMap() {
+		return map;
+	}
+
+	public int getLayer() {
+		return layer;
+	}
+}
@@ -0,0 +1,240 @@
+package it.marteEngine.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live index from collision type to the entities of that type. The World
+ * keeps it up to date when entities are added or removed and when an entity
+ * in the world changes its types with {@link Entity#addType(String...)} or
+ * {@link Entity#clearTypes()}.
+ */
+public class TypeIndex {
+
+	/**
+	 * Collision checks against a type with at most this many entities scan the
+	 * entities of the type directly instead of querying the spatial hash.
+	 */
+	public static final int SCAN_LIMIT = 16;
+
+	private final Map<String, Bucket> buckets = new HashMap<String, Bucket>();
+	/** buckets of the types that have a bit, by type id */
+	private final Bucket[] bucketsById = new Bucket[CollisionTypes.MAX_MASK_TYPES];
+
+	/**
+	 * Index an entity under all of its types. Does nothing if the entity is
+	 * already indexed.
+	 */
+	public void insert(Entity e) {
+		if (e.inTypeIndex)
+			return;
+		e.inTypeIndex = true;
+		long bits = e.getTypeBits();
+		while (bits != 0) {
+			bucket(Long.numberOfTrailingZeros(bits)).entities.add(e);
+			bits &= bits - 1;
+		}
+		for (String type : e.overflowTypes()) {
+			bucket(type).entities.add(e);
+		}
+	}
+
+	/**
+	 * Remove an entity from the buckets of all of its types. Does nothing if
+	 * the entity is not indexed.
+	 */
+	public void remove(Entity e) {
+		if (!e.inTypeIndex)
+			return;
+		e.inTypeIndex = false;
+		removeFromBuckets(e);
+	}
+
+	/**
+	 * Remove many entities at once. Every bucket that held one of the entities
+	 * is compacted in a single pass, which is much cheaper than removing the
+	 * entities one by one when a lot of entities of the same type go away.
+	 */
+	public void removeAll(List<Entity> removed) {
+		List<Bucket> dirty = null;
+		for (int i = 0; i < removed.size(); i++) {
+			Entity e = removed.get(i);
+			if (!e.inTypeIndex)
+				continue;
+			e.inTypeIndex = false;
+			long bits = e.getTypeBits();
+			while (bits != 0) {
+				Bucket bucket = bucketsById[Long.numberOfTrailingZeros(bits)];
+				bits &= bits - 1;
+				if (bucket != null && !bucket.dirty) {
+					bucket.dirty = true;
+					if (dirty == null)
+						dirty = new ArrayList<Bucket>();
+					dirty.add(bucket);
+				}
+			}
+			for (String type : e.overflowTypes()) {
+				Bucket bucket = buckets.get(type);
+				if (bucket != null && !bucket.dirty) {
+					bucket.dirty = true;
+					if (dirty == null)
+						dirty = new ArrayList<Bucket>();
+					dirty.add(bucket);
+				}
+			}
+		}
+		if (dirty == null)
+			return;
+		for (Bucket bucket : dirty) {
+			List<Entity> entities = bucket.entities;
+			int size = entities.size();
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				Entity e = entities.get(i);
+				if (e.inTypeIndex)
+					entities.set(kept++, e);
+			}
+			entities.subList(kept, size).clear();
+			bucket.dirty = false;
+		}
+	}
+
+	/**
+	 * Called by an indexed entity after it got a new type
+	 */
+	void typeAdded(Entity e, String type) {
+		bucket(type).entities.add(e);
+	}
+
+	/**
+	 * Called by an indexed entity before its types are cleared
+	 */
+	void typesCleared(Entity e) {
+		removeFromBuckets(e);
+	}
+
+	/**
+	 * @return a read only view of the entities of the given type. The view
+	 *         reflects later changes to the index.
+	 */
+	public List<Entity> get(String type) {
+		Bucket bucket = buckets.get(type);
+		if (bucket == null)
+			return Collections.emptyList();
+		return bucket.view;
+	}
+
+	/**
+	 * @return a read only view of the entities of the type with the given id.
+	 *         Only types that have a bit in a type mask are supported.
+	 * @see CollisionTypes
+	 */
+	public List<Entity> get(int typeId) {
+		Bucket bucket = bucketsById[typeId];
+		if (bucket == null)
+			return Collections.emptyList();
+		return bucket.view;
+	}
+
+	/**
+	 * @return the number of entities of the given type
+	 */
+	public int count(String type) {
+		Bucket bucket = buckets.get(type);
+		return bucket == null ? 0 : bucket.entities.size();
+	}
+
+	/**
+	 * @return the number of entities of every type in the mask summed up. An
+	 *         entity with more than one of the types is counted once per type.
+	 */
+	public int count(long typeMask) {
+		int count = 0;
+		while (typeMask != 0) {
+			int id = Long.numberOfTrailingZeros(typeMask);
+			typeMask &= typeMask - 1;
+			Bucket bucket = bucketsById[id];
+			if (bucket != null)
+				count += bucket.entities.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Add the entities of every type in the mask to the result, an entity
+	 * with more than one of the types only once
+	 */
+	public void collect(long typeMask, List<Entity> result) {
+		long bits = typeMask;
+		while (bits != 0) {
+			int id = Long.numberOfTrailingZeros(bits);
+			bits &= bits - 1;
+			Bucket bucket = bucketsById[id];
+			if (bucket == null)
+				continue;
+			long lowerBits = typeMask & ((1L << id) - 1);
+			List<Entity> entities = bucket.entities;
+			for (int i = 0; i < entities.size(); i++) {
+				Entity e = entities.get(i);
+				// an entity with more than one of the types is only taken
+				// from the bucket of its lowest type
+				if ((e.getTypeBits() & lowerBits) == 0)
+					result.add(e);
+			}
+		}
+	}
+
+	/**
+	 * Forget all indexed entities. Entities previously indexed have to be
+	 * removed one by one with {@link #remove(Entity)} first.
+	 */
+	public void clear() {
+		buckets.clear();
+		Arrays.fill(bucketsById, null);
+	}
+
+	private void removeFromBuckets(Entity e) {
+		long bits = e.getTypeBits();
+		while (bits != 0) {
+			Bucket bucket = bucketsById[Long.numberOfTrailingZeros(bits)];
+			bits &= bits - 1;
+			if (bucket != null)
+				bucket.entities.remove(e);
+		}
+		for (String type : e.overflowTypes()) {
+			Bucket bucket = buckets.get(type);
+			if (bucket != null)
+				bucket.entities.remove(e);
+		}
+	}
+
+	private Bucket bucket(int typeId) {
+		Bucket bucket = bucketsById[typeId];
+		if (bucket == null)
+			bucket = bucket(CollisionTypes.name(typeId));
+		return bucket;
+	}
+
+	private Bucket bucket(String type) {
+		Bucket bucket = buckets.get(type);
+		if (bucket == null) {
+			bucket = new Bucket();
+			buckets.put(type, bucket);
+			int id = CollisionTypes.id(type);
+			if (id < bucketsById.length)
+				bucketsById[id] = bucket;
+		}
+		return bucket;
+	}
+
+	private static final class Bucket {
+		private final List<Entity> entities = new ArrayList<Entity>();
+		private final List<Entity> view = Collections
+				.unmodifiableList(entities);
+		private boolean dirty;
+	}
+}
@@ -43,7 +43,7 @@ public class MoveAvatarTest extends StateBasedGame {
 		gameWorld.setCamera(new Camera(gameWorld, player, container.getWidth(),
 				container.getHeight(), container.getWidth() - 100, container
 						.getHeight() - 100, player.mySpeed));
-		ME.world = gameWorld;
+		ME.setWorld(gameWorld);
 
 		addState(gameWorld);
 	}
@@ -210,7 +210,7 @@ public class Sword extends Entity {
 	public void collisionResponse(Entity entity) {
 
 		if (entity.name.equalsIgnoreCase(StaticActor.NAME) && parent.attacking) {
-			ME.world.remove(entity);
+			ME.getWorld().remove(entity);
 		}
 
 	}
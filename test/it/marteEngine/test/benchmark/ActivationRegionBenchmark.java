@@ -0,0 +1,94 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.Camera;
+import it.marteEngine.HeadlessRunner;
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.entity.ActivationRegion;
+import it.marteEngine.entity.Entity;
+
+import java.util.Random;
+
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Updates a level of 20000x20000 pixels with a growing number of walking
+ * enemies and an 800x600 camera, once updating every entity and once with an
+ * activation region that suspends half of the enemies and updates the other
+ * half at a reduced rate when they are away from the camera. Reports the
+ * updates per second.
+ */
+public class ActivationRegionBenchmark {
+
+	private static final int LEVEL_SIZE = 20000;
+	private static final int TICKS = 500;
+
+	public static void main(String[] args) throws SlickException {
+		ME.useDeltaTiming = true;
+		// warm up
+		run(10000, false);
+		run(10000, true);
+
+		System.out.println("enemies   all updates/s   region updates/s");
+		for (int enemies = 5000; enemies <= 80000; enemies *= 2) {
+			System.out.println(String.format("%7d %15.0f %18.0f", enemies,
+					run(enemies, false), run(enemies, true)));
+		}
+	}
+
+	/**
+	 * @return updates per second
+	 */
+	private static double run(int enemies, boolean region)
+			throws SlickException {
+		World world = new World(0);
+		HeadlessRunner runner = new HeadlessRunner(world, LEVEL_SIZE,
+				LEVEL_SIZE);
+		runner.init();
+		ME.setWorld(world);
+		Enemy player = new Enemy(LEVEL_SIZE / 2, LEVEL_SIZE / 2, 0);
+		world.add(player);
+		Random random = new Random(enemies);
+		for (int i = 0; i < enemies; i++) {
+			Enemy enemy = new Enemy(random.nextInt(LEVEL_SIZE),
+					random.nextInt(LEVEL_SIZE), random.nextInt(3) - 1);
+			enemy.updatePolicy = i % 2 == 0
+					? Entity.UPDATE_NEAR_CAMERA
+					: Entity.UPDATE_REDUCED;
+			world.add(enemy);
+		}
+		world.setCamera(new Camera(world, player, 800, 600));
+		if (region)
+			world.setActivationRegion(new ActivationRegion(200, 8));
+		runner.tick();
+		runner.resetStatistics();
+		runner.run(TICKS);
+		world.clear();
+		return runner.getTicksPerSecond();
+	}
+
+	private static class Enemy extends Entity {
+		public Enemy(float x, float y, float dx) {
+			super(x, y);
+			width = 16;
+			height = 16;
+			setHitBox(0, 0, 16, 16);
+			addType("enemy");
+			speed.set(dx, 0);
+			addAlarm("turn", 2000, false);
+		}
+
+		@Override
+		public void update(GameContainer container, int delta)
+				throws SlickException {
+			x += speed.x * delta / 16f;
+			collide("enemy", x, y);
+		}
+
+		@Override
+		public void alarmTriggered(String alarmName) {
+			speed.x = -speed.x;
+		}
+	}
+}
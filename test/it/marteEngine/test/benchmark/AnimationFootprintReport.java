@@ -0,0 +1,95 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.entity.AnimationClip;
+import it.marteEngine.entity.Entity;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.newdawn.slick.Animation;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Reports the bytes allocated per entity to create 10k slimes and play
+ * their animation, once without animation, once with an Animation of their
+ * own like Entity.addAnimation builds and once sharing one AnimationClip.
+ * The frames are images without a texture, shared in every case like the
+ * sprites of a sheet.
+ */
+public class AnimationFootprintReport {
+
+	private static final int SLIMES = 10000;
+	private static final int FRAMES = 4;
+	private static final int DURATION = 200;
+
+	private static final int NONE = 0;
+	private static final int OWN = 1;
+	private static final int SHARED = 2;
+
+	public static void main(String[] args) throws SlickException {
+		Image[] frames = new Image[FRAMES];
+		for (int i = 0; i < FRAMES; i++)
+			frames[i] = new Frame();
+		AnimationClip clip = new AnimationClip(DURATION, true, frames);
+
+		// warm up, loads every class involved and compiles the code
+		for (int mode = NONE; mode <= SHARED; mode++)
+			measure(frames, clip, mode, SLIMES / 10);
+		System.out.println(SLIMES + " slimes, " + FRAMES + " frames");
+		report("no animation", measure(frames, clip, NONE, SLIMES));
+		report("own Animation", measure(frames, clip, OWN, SLIMES));
+		report("shared clip", measure(frames, clip, SHARED, SLIMES));
+	}
+
+	private static void report(String name, long bytes) {
+		System.out.println(String.format("%-14s %5d bytes per slime", name,
+				bytes / SLIMES));
+	}
+
+	/**
+	 * @return the bytes allocated for n slimes
+	 */
+	private static long measure(Image[] frames, AnimationClip clip,
+			int mode, int n) throws SlickException {
+		long base = allocatedBytes();
+		Entity[] slimes = new Entity[n];
+		for (int i = 0; i < n; i++) {
+			slimes[i] = new Slime();
+			if (mode == SHARED) {
+				slimes[i].addAnimation("move", clip);
+			} else if (mode == OWN) {
+				Animation anim = new Animation(false);
+				for (Image frame : frames)
+					anim.addFrame(frame, DURATION);
+				slimes[i].addAnimation("move", anim);
+			}
+			slimes[i].update(null, i);
+		}
+		return allocatedBytes() - base;
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	/** a frame without a texture */
+	private static class Frame extends Image {
+	}
+
+	/** stays inside any world */
+	private static class Slime extends Entity {
+		public Slime() {
+			super(0, 0);
+		}
+
+		@Override
+		public void checkWorldBoundaries() {
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.Camera;
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.entity.DepthList;
+import it.marteEngine.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.geom.Rectangle;
+
+/**
+ * Finds the entities in view of a 800x600 camera in a large level of 50k
+ * entities, once by testing every entity of the world against the camera
+ * like the old render pass did and once with the bounds tree of the world,
+ * as the render pass does now. Reports the entities touched and the time of
+ * a single cull.
+ */
+public class CameraCullBenchmark {
+
+	private static final int ENTITIES = 50000;
+	private static final int SIZE = 20000;
+	private static final int FRAMES = 2000;
+
+	public static void main(String[] args) throws SlickException {
+		World world = new World(0);
+		world.width = SIZE;
+		world.height = SIZE;
+		ME.setWorld(world);
+		Random random = new Random(5);
+		for (int i = 0; i < ENTITIES; i++)
+			world.add(new Block(random.nextInt(SIZE), random.nextInt(SIZE),
+					random.nextInt(5)));
+		world.update(null, null, 16);
+
+		Block target = new Block(0, 0, 0);
+		Camera[] cameras = new Camera[16];
+		for (int i = 0; i < cameras.length; i++) {
+			target.x = random.nextInt(SIZE);
+			target.y = random.nextInt(SIZE);
+			cameras[i] = new Camera(world, target, 800, 600);
+		}
+
+		// warm up
+		scan(world, cameras, FRAMES);
+		cull(world, cameras, FRAMES);
+
+		long start = System.nanoTime();
+		long[] scanned = scan(world, cameras, FRAMES);
+		long scanNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		long[] culled = cull(world, cameras, FRAMES);
+		long cullNanos = System.nanoTime() - start;
+
+		System.out.println(ENTITIES + " entities, " + world.getAABBTree());
+		System.out.println("cull   touched/frame  visible/frame  us/frame");
+		report("scan", scanned, scanNanos);
+		report("tree", culled, cullNanos);
+	}
+
+	private static void report(String name, long[] result, long nanos) {
+		System.out.println(String.format("%-4s %15d %14d %9.1f", name,
+				result[0] / FRAMES, result[1] / FRAMES, nanos / 1000.0
+						/ FRAMES));
+	}
+
+	/**
+	 * @return entities touched and entities visible
+	 */
+	private static long[] scan(World world, Camera[] cameras, int frames) {
+		long touched = 0, visible = 0;
+		for (int frame = 0; frame < frames; frame++) {
+			Rectangle view = cameras[frame % cameras.length].getVisibleRect();
+			for (Entity e : world.getEntities()) {
+				touched++;
+				Rectangle bounds = new Rectangle(e.x, e.y, e.width, e.height);
+				if (e.visible && view.intersects(bounds))
+					visible++;
+			}
+		}
+		return new long[]{touched, visible};
+	}
+
+	/**
+	 * @return entities touched and entities visible
+	 */
+	private static long[] cull(World world, Camera[] cameras, int frames) {
+		DepthList entities = (DepthList) world.getEntities();
+		List<Entity> found = new ArrayList<Entity>();
+		long touched = 0, visible = 0;
+		for (int frame = 0; frame < frames; frame++) {
+			Camera camera = cameras[frame % cameras.length];
+			Rectangle view = camera.getVisibleRect();
+			world.getAABBTree().query(view.getX(), view.getY(),
+					view.getX() + view.getWidth(),
+					view.getY() + view.getHeight(), found);
+			touched += found.size();
+			int count = 0;
+			for (int i = 0; i < found.size(); i++) {
+				Entity e = found.get(i);
+				if (e.visible && camera.contains(e))
+					found.set(count++, e);
+			}
+			while (found.size() > count)
+				found.remove(found.size() - 1);
+			entities.sort(found);
+			visible += found.size();
+			found.clear();
+		}
+		return new long[]{touched, visible};
+	}
+
+	private static class Block extends Entity {
+		public Block(float x, float y, int depth) {
+			super(x, y);
+			width = 32;
+			height = 32;
+			this.depth = depth;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.Camera;
+import it.marteEngine.ChunkSource;
+import it.marteEngine.ChunkStreamer;
+import it.marteEngine.HeadlessRunner;
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.actor.StaticActor;
+import it.marteEngine.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Flies a camera across a level of 4096x4096 tiles, of which every tenth is
+ * solid, with the level streamed in chunks of 64x64 tiles. Creating all
+ * blocks up front would take more than a million entities. Reports the
+ * entities in the world, the chunks loaded and unloaded and the heap used,
+ * which stays flat because only the last unloaded chunks are kept.
+ */
+public class ChunkStreamingBenchmark {
+
+	private static final int TILES = 4096;
+	private static final int TILE_SIZE = 32;
+	private static final int CHUNK_TILES = 64;
+	private static final int TICKS = 6000;
+
+	public static void main(String[] args) throws Exception {
+		World world = new World(0);
+		HeadlessRunner runner = new HeadlessRunner(world, TILES * TILE_SIZE,
+				TILES * TILE_SIZE);
+		runner.init();
+		ME.setWorld(world);
+		Flyer player = new Flyer(1000, 1000);
+		world.add(player);
+		world.setCamera(new Camera(world, player, 800, 600));
+
+		int chunks = TILES / CHUNK_TILES;
+		ChunkStreamer streamer = new ChunkStreamer(world, new BlockSource(),
+				CHUNK_TILES * TILE_SIZE, CHUNK_TILES * TILE_SIZE, chunks,
+				chunks);
+		world.setChunkStreamer(streamer);
+		streamer.loadNow(player.x - 400, player.y - 300, player.x + 400,
+				player.y + 300);
+
+		System.out.println("level of " + TILES + "x" + TILES + " tiles, "
+				+ (long) TILES * TILES / 10 + " blocks");
+		System.out.println("   tick   entities   heap MB   streamer");
+		int maxEntities = 0;
+		for (int tick = 0; tick < TICKS; tick++) {
+			runner.tick();
+			maxEntities = Math.max(maxEntities, world.getCount());
+			if (tick % 1000 == 0)
+				report(tick, world, streamer);
+		}
+		report(TICKS, world, streamer);
+		System.out.println("max entities " + maxEntities + ", "
+				+ String.format("%.0f", runner.getTicksPerSecond())
+				+ " ticks/s");
+		streamer.shutdown();
+	}
+
+	private static void report(int tick, World world, ChunkStreamer streamer) {
+		Runtime runtime = Runtime.getRuntime();
+		// only count what is still reachable
+		System.gc();
+		long heap = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+		System.out.println(String.format("%7d %10d %9d   %s", tick,
+				world.getCount(), heap, streamer));
+	}
+
+	/** every tenth tile is a block, decided by a hash of the tile */
+	private static class BlockSource implements ChunkSource {
+		public List<Entity> load(int column, int row) {
+			List<Entity> blocks = new ArrayList<Entity>();
+			for (int y = row * CHUNK_TILES; y < (row + 1) * CHUNK_TILES; y++) {
+				for (int x = column * CHUNK_TILES; x < (column + 1)
+						* CHUNK_TILES; x++) {
+					int hash = x * 73856093 ^ y * 19349663;
+					if ((hash & 0x7fffffff) % 10 == 0) {
+						blocks.add(new StaticActor(x * TILE_SIZE, y
+								* TILE_SIZE, TILE_SIZE, TILE_SIZE,
+								(String) null));
+					}
+				}
+			}
+			return blocks;
+		}
+	}
+
+	/** flies across the level and turns at its borders */
+	private static class Flyer extends Entity {
+		public Flyer(float x, float y) {
+			super(x, y);
+			width = TILE_SIZE;
+			height = TILE_SIZE;
+			speed.set(40, 24);
+		}
+
+		@Override
+		public void update(GameContainer container, int delta)
+				throws SlickException {
+			x += speed.x;
+			y += speed.y;
+			if (x < 0 || x > world.width - width)
+				speed.x = -speed.x;
+			if (y < 0 || y > world.height - height)
+				speed.y = -speed.y;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.entity.Entity;
+
+import java.util.Random;
+
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Moves 10k small entities around, without collision checks, once with every
+ * entity asking for its collisions with collideInto in every update and once
+ * with the collision events of the world. Reports the updates per second and
+ * the notifications per update. With collideInto both entities of a pair
+ * ask, so every pair is found twice and notified four times.
+ */
+public class CollisionEventsBenchmark {
+
+	private static final int ENTITIES = 10000;
+	private static final int TICKS = 300;
+	private static final int SIZE = 4000;
+
+	private static final int NONE = 0;
+	private static final int QUERY = 1;
+	private static final int EVENTS = 2;
+
+	public static void main(String[] args) throws SlickException {
+		// warm up
+		run(NONE, TICKS / 3);
+		run(QUERY, TICKS / 3);
+		run(EVENTS, TICKS / 3);
+
+		System.out.println(ENTITIES + " entities, " + TICKS + " updates");
+		System.out.println("collisions    updates/s   notifications/update");
+		report("none", run(NONE, TICKS));
+		report("collideInto", run(QUERY, TICKS));
+		report("events", run(EVENTS, TICKS));
+	}
+
+	private static void report(String name, long[] result) {
+		System.out.println(String.format("%-11s %12d %22d", name, result[0],
+				result[1]));
+	}
+
+	/**
+	 * @return updates per second and notifications per update
+	 */
+	private static long[] run(int collisions, int ticks)
+			throws SlickException {
+		World world = new World(0);
+		world.width = SIZE;
+		world.height = SIZE;
+		ME.setWorld(world);
+		world.setCollisionEvents(collisions == EVENTS);
+		Random random = new Random(11);
+		for (int i = 0; i < ENTITIES; i++)
+			world.add(new Mover(random.nextInt(SIZE), random.nextInt(SIZE),
+					random.nextInt(), collisions == QUERY));
+		world.update(null, null, 16);
+
+		Mover.notifications = 0;
+		long start = System.nanoTime();
+		for (int tick = 0; tick < ticks; tick++)
+			world.update(null, null, 16);
+		long nanos = System.nanoTime() - start;
+		world.clear();
+		return new long[]{ticks * 1000000000L / nanos,
+				Mover.notifications / ticks};
+	}
+
+	/** wanders around and counts the collisions it is notified of */
+	private static class Mover extends Entity {
+		static long notifications;
+		private final boolean query;
+		private int seed;
+
+		public Mover(float x, float y, int seed, boolean query) {
+			super(x, y);
+			this.seed = seed;
+			this.query = query;
+			width = 12;
+			height = 12;
+			setHitBox(0, 0, 12, 12);
+			addType(SOLID);
+		}
+
+		@Override
+		public void update(GameContainer container, int delta)
+				throws SlickException {
+			seed = seed * 1103515245 + 12345;
+			x += (seed >>> 16) % 3 - 1;
+			y += (seed >>> 20) % 3 - 1;
+			if (query)
+				collideInto(SOLID, x, y);
+		}
+
+		@Override
+		public void collisionResponse(Entity other) {
+			notifications++;
+		}
+
+		@Override
+		public void collisionEnter(Entity other) {
+			notifications++;
+		}
+
+		@Override
+		public void collisionStay(Entity other) {
+			notifications++;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.actor.StaticActor;
+import it.marteEngine.entity.AlarmContainer;
+import it.marteEngine.entity.Entity;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.newdawn.slick.Animation;
+import org.newdawn.slick.Color;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Reports the heap used per entity by a tile only world: 100k StaticActors
+ * without an image, once on their own and once added to a World. The eager
+ * tiles also create every subsystem that an Entity used to create up front,
+ * the lazy tiles only what the current Entity creates.
+ */
+public class EntityFootprintReport {
+
+	private static final int TILES = 100000;
+	private static final int TILE_SIZE = 16;
+	private static final int COLUMNS = 400;
+
+	public static void main(String[] args) throws SlickException {
+		// warm up, loads every class involved
+		measure(TILES / 10, true);
+		measure(TILES / 10, false);
+		long[] eager = measure(TILES, true);
+		long[] lazy = measure(TILES, false);
+		System.out.println(TILES + " StaticActors, bytes per entity");
+		System.out.println("               eager    lazy");
+		System.out.println(String.format("entities only  %5d   %5d", eager[0]
+				/ TILES, lazy[0] / TILES));
+		System.out.println(String.format("in a world     %5d   %5d", eager[1]
+				/ TILES, lazy[1] / TILES));
+	}
+
+	/**
+	 * @return the heap used by n tiles and by the same tiles added to a world
+	 */
+	private static long[] measure(int n, boolean eager) throws SlickException {
+		long base = usedHeap();
+		Entity[] tiles = new Entity[n];
+		for (int i = 0; i < n; i++) {
+			float x = i % COLUMNS * TILE_SIZE;
+			float y = i / COLUMNS * TILE_SIZE;
+			if (eager)
+				tiles[i] = new EagerTile(x, y);
+			else
+				tiles[i] = new StaticActor(x, y, TILE_SIZE, TILE_SIZE,
+						(String) null);
+		}
+		long entities = usedHeap() - base;
+
+		World world = new World(0);
+		ME.setWorld(world);
+		for (Entity tile : tiles)
+			world.add(tile);
+		world.update(null, null, 16);
+		long inWorld = usedHeap() - base;
+
+		world.clear();
+		// the next measure must not count this world in its base
+		ME.setWorld(null);
+		return new long[]{entities, inWorld};
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * A tile holding what every Entity created in its constructor before the
+	 * subsystems were created on first use.
+	 */
+	private static class EagerTile extends StaticActor {
+		private final AlarmContainer alarms = new AlarmContainer(this);
+		private final Map<String, Animation> animations =
+				new HashMap<String, Animation>();
+		private final HashSet<String> collisionTypes = new HashSet<String>();
+		private final Map<String, int[]> keyboardCommands =
+				new HashMap<String, int[]>();
+		private final Map<String, int[]> mouseCommands =
+				new HashMap<String, int[]>();
+		private final LinkedList<Object> states = new LinkedList<Object>();
+
+		public EagerTile(float x, float y) {
+			super(x, y, TILE_SIZE, TILE_SIZE, (String) null);
+			setColor(new Color(Color.white));
+			collisionTypes.addAll(Arrays.asList(getCollisionTypes()));
+		}
+	}
+}
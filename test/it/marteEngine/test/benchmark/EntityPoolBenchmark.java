@@ -0,0 +1,130 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.EntityPool;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Spawns bullets every frame in a world without a game container, once by
+ * creating a new bullet for every shot and once by taking bullets from an
+ * {@link EntityPool}. Every bullet lives a fixed number of frames. Reports the
+ * bytes allocated per frame, the number of garbage collections and the time
+ * spent in them.
+ */
+public class EntityPoolBenchmark {
+
+	private static final int FRAMES = 20000;
+	private static final int SPAWNS_PER_FRAME = 50;
+	private static final int LIFETIME = 60;
+
+	private static final EntityPool<Bullet> POOL = new EntityPool<Bullet>() {
+		protected Bullet create() {
+			return new Bullet();
+		}
+	};
+
+	public static void main(String[] args) throws SlickException {
+		// warm up
+		run(false, FRAMES / 10);
+		run(true, FRAMES / 10);
+
+		System.out.println("spawning        bytes/frame   gc count   gc ms   total ms");
+		report("new bullets", run(false, FRAMES));
+		report("pooled bullets", run(true, FRAMES));
+		System.out.println("pool: " + POOL);
+	}
+
+	private static long[] run(boolean pooled, int frames) throws SlickException {
+		World world = new World(0);
+		world.width = 800;
+		world.height = 600;
+		ME.setWorld(world);
+		System.gc();
+
+		long bytes = allocatedBytes();
+		long gcCount = gcCount();
+		long gcTime = gcTime();
+		long start = System.nanoTime();
+		for (int frame = 0; frame < frames; frame++) {
+			for (int i = 0; i < SPAWNS_PER_FRAME; i++) {
+				float x = i * 16;
+				Bullet bullet = pooled ? POOL.obtain(x, 0) : new Bullet(x, 0);
+				bullet.speed.set(0, 1);
+				world.add(bullet);
+			}
+			world.update(null, null, 16);
+		}
+		long time = System.nanoTime() - start;
+		long[] result = {(allocatedBytes() - bytes) / frames,
+				gcCount() - gcCount, gcTime() - gcTime, time / 1000000};
+		world.clear();
+		return result;
+	}
+
+	private static void report(String name, long[] result) {
+		System.out.println(String.format("%-15s %11d %10d %7d %10d", name,
+				result[0], result[1], result[2], result[3]));
+	}
+
+	/** @return bytes allocated by this thread, or 0 if not supported */
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans())
+			count += gc.getCollectionCount();
+		return count;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans())
+			time += gc.getCollectionTime();
+		return time;
+	}
+
+	private static class Bullet extends Entity {
+		private int age;
+
+		public Bullet() {
+			this(0, 0);
+		}
+
+		public Bullet(float x, float y) {
+			super(x, y);
+			setHitBox(0, 0, 4, 4);
+			addType("bullet");
+		}
+
+		@Override
+		public void update(GameContainer container, int delta) {
+			x += speed.x;
+			y += speed.y;
+			if (++age == LIFETIME)
+				ME.getWorld().remove(this);
+		}
+
+		@Override
+		public void reset() {
+			super.reset();
+			age = 0;
+		}
+	}
+}
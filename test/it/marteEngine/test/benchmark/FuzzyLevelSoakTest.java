@@ -0,0 +1,133 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.HeadlessRunner;
+import it.marteEngine.World;
+import it.marteEngine.actor.StaticActor;
+import it.marteEngine.entity.PhysicsEntity;
+import it.marteEngine.entity.PlatformerEntity;
+
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.Input;
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.tiled.TiledMap;
+
+/**
+ * Runs every level of the fuzzy demo without a display. The levels are read
+ * from the tiled maps of the demo: blocks become StaticActors, the player a
+ * PlatformerEntity steered by scripted input and every enemy a PhysicsEntity
+ * walking back and forth. The demo entities themselves need sprites and
+ * sounds, which can't be loaded without a display.
+ */
+public class FuzzyLevelSoakTest {
+
+	private static final int LEVELS = 11;
+	private static final int TILE_SIZE = 32;
+	private static final int TICKS = 20000;
+
+	public static void main(String[] args) throws SlickException {
+		System.out.println("level  entities  ticks/s");
+		long ticks = 0;
+		long nanos = 0;
+		for (int level = 1; level <= LEVELS; level++) {
+			HeadlessRunner runner = load("data/fuzzy/level" + level + ".tmx");
+			play(runner);
+			System.out.println(String.format("%5d %9d %8.0f", level, runner
+					.getWorld().getCount(), runner.getTicksPerSecond()));
+			ticks += runner.getTicks();
+			nanos += runner.getNanos();
+		}
+		System.out.println(String.format("all levels: %d ticks, %.0f ticks/s",
+				ticks, ticks * 1e9 / nanos));
+	}
+
+	private static HeadlessRunner load(String ref) throws SlickException {
+		TiledMap map = new TiledMap(ref, false);
+		World world = new World(0);
+		HeadlessRunner runner = new HeadlessRunner(world, map.getWidth()
+				* TILE_SIZE, map.getHeight() * TILE_SIZE);
+		runner.init();
+
+		Image block = HeadlessRunner.placeholder(TILE_SIZE, TILE_SIZE);
+		for (int l = 0; l < map.getLayerCount(); l++) {
+			String type = map.getLayerProperty(l, "type", "");
+			boolean player = map.getLayerIndex("player") == l;
+			for (int x = 0; x < map.getWidth(); x++) {
+				for (int y = 0; y < map.getHeight(); y++) {
+					if (map.getTileId(x, y, l) == 0)
+						continue;
+					float px = x * TILE_SIZE;
+					float py = y * TILE_SIZE;
+					if (player) {
+						world.add(new Player(px, py));
+					} else if (type.equals("entity")) {
+						world.add(new StaticActor(px, py, TILE_SIZE, TILE_SIZE,
+								block));
+					} else if (type.equals("enemies")) {
+						world.add(new Walker(px, py));
+					}
+				}
+			}
+		}
+		return runner;
+	}
+
+	/**
+	 * Run right and jump, then run left and jump
+	 */
+	private static void play(HeadlessRunner runner) throws SlickException {
+		for (int tick = 0; tick < TICKS; tick++) {
+			int phase = tick % 600;
+			if (phase == 0) {
+				runner.getInput().release(Input.KEY_LEFT);
+				runner.getInput().press(Input.KEY_RIGHT);
+			} else if (phase == 300) {
+				runner.getInput().release(Input.KEY_RIGHT);
+				runner.getInput().press(Input.KEY_LEFT);
+			}
+			if (tick % 40 == 0)
+				runner.getInput().press(Input.KEY_UP);
+			else if (tick % 40 == 20)
+				runner.getInput().release(Input.KEY_UP);
+			runner.tick();
+		}
+	}
+
+	private static class Player extends PlatformerEntity {
+		public Player(float x, float y) throws SlickException {
+			super(x, y, 22, 30);
+			name = "player";
+			addType(PLAYER);
+		}
+
+		@Override
+		public void leftWorldBoundaries() {
+			world.remove(this);
+		}
+	}
+
+	private static class Walker extends PhysicsEntity {
+		private int direction = 1;
+
+		public Walker(float x, float y) {
+			super(x, y);
+			setHitBox(0, 0, TILE_SIZE, TILE_SIZE);
+			addType("enemy");
+		}
+
+		@Override
+		public void update(GameContainer container, int delta)
+				throws SlickException {
+			speed.x = direction;
+			super.update(container, delta);
+			maxspeed(false, true);
+			if (speed.x == 0)
+				direction = -direction;
+		}
+
+		@Override
+		public void leftWorldBoundaries() {
+			world.remove(this);
+		}
+	}
+}
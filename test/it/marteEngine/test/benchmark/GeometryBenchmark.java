@@ -0,0 +1,104 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.ME;
+import it.marteEngine.entity.Entity;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import org.newdawn.slick.geom.Vector2f;
+
+/**
+ * Runs the geometry an AI does for every seeker and target, the distance,
+ * the angle to the target, a point ahead and a velocity, once with the
+ * Vector2f returning methods of Entity, once with distanceSq, angleTo and
+ * the out parameter variants and once more with the sine table. The point
+ * and the velocity are kept, like an AI keeps its waypoint, otherwise the
+ * JIT may remove the allocations. Reports the operations per ms and the
+ * bytes allocated per operation.
+ */
+public class GeometryBenchmark {
+
+	private static final int ENTITIES = 1000;
+	private static final int ROUNDS = 2000;
+
+	private static final int VECTORS = 0;
+	private static final int PRIMITIVES = 1;
+	private static final int TABLE = 2;
+
+	private static float sink;
+	private static Vector2f waypoint;
+	private static Vector2f velocity;
+
+	public static void main(String[] args) {
+		Random random = new Random(5);
+		Entity[] entities = new Entity[ENTITIES];
+		for (int i = 0; i < ENTITIES; i++)
+			entities[i] = new Body(random.nextInt(2000), random.nextInt(2000));
+
+		// warm up
+		for (int mode = VECTORS; mode <= TABLE; mode++)
+			run(entities, mode, ROUNDS / 4);
+
+		System.out.println(ENTITIES + " entities, " + ROUNDS + " rounds");
+		System.out.println("helpers          ops/ms   bytes/op");
+		report("Vector2f", entities, VECTORS);
+		report("primitives", entities, PRIMITIVES);
+		report("sine table", entities, TABLE);
+		System.out.println("checksum " + sink);
+	}
+
+	private static void report(String name, Entity[] entities, int mode) {
+		long ops = (long) ENTITIES * ROUNDS;
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		run(entities, mode, ROUNDS);
+		long nanos = System.nanoTime() - start;
+		bytes = allocatedBytes() - bytes;
+		System.out.println(String.format("%-12s %10d %10d", name, ops
+				* 1000000L / nanos, bytes / ops));
+	}
+
+	private static void run(Entity[] entities, int mode, int rounds) {
+		ME.useTrigTable = mode == TABLE;
+		Vector2f point = new Vector2f();
+		Vector2f speed = new Vector2f();
+		float sum = 0;
+		for (int round = 0; round < rounds; round++) {
+			Entity seeker = entities[round % ENTITIES];
+			for (Entity target : entities) {
+				if (mode == VECTORS) {
+					sum += seeker.getDistance(new Vector2f(target.x, target.y));
+					int angle = seeker.getAngleToPosition(new Vector2f(
+							target.x, target.y));
+					waypoint = seeker.getPointWithAngleAndDistance(angle, 10);
+					velocity = Entity.calculateVector(angle, 2);
+				} else {
+					sum += seeker.distanceSq(target);
+					int angle = seeker.angleTo(target);
+					waypoint = seeker.pointAt(angle, 10, point);
+					velocity = Entity.calculateVector(angle, 2, speed);
+				}
+				sum += waypoint.x + velocity.y;
+			}
+		}
+		ME.useTrigTable = false;
+		sink += sum;
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	private static class Body extends Entity {
+		public Body(float x, float y) {
+			super(x, y);
+		}
+	}
+}
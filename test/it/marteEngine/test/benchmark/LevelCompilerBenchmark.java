@@ -0,0 +1,110 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.LevelCompiler;
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.actor.StaticActor;
+import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.Solid;
+import it.marteEngine.entity.SpatialHash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.geom.Rectangle;
+
+/**
+ * Loads a level of rooms and corridors of 512x512 tiles, once with a
+ * StaticActor per solid tile and once with the solid tiles merged by the
+ * {@link LevelCompiler}. Reports the number of entities, the load time and
+ * the average number of collision candidates of a 24x24 hitbox.
+ */
+public class LevelCompilerBenchmark {
+
+	private static final int TILES = 512;
+	private static final int TILE_SIZE = 32;
+	private static final int ROOM = 16;
+	private static final int PROBES = 200000;
+
+	public static void main(String[] args) throws SlickException {
+		boolean[][] solid = createLevel();
+		// warm up
+		run(solid, false);
+		run(solid, true);
+
+		System.out.println("level   entities   load ms   candidates/probe");
+		report("tiles", run(solid, false));
+		report("merged", run(solid, true));
+	}
+
+	private static void report(String name, double[] result) {
+		System.out.println(String.format("%-6s %10.0f %9.0f %18.2f", name,
+				result[0], result[1], result[2]));
+	}
+
+	/**
+	 * Rooms with walls of one tile, a door in every wall and some pillars
+	 */
+	private static boolean[][] createLevel() {
+		boolean[][] solid = new boolean[TILES][TILES];
+		Random random = new Random(7);
+		for (int x = 0; x < TILES; x++) {
+			for (int y = 0; y < TILES; y++) {
+				boolean wall = x % ROOM == 0 || y % ROOM == 0;
+				boolean door = x % ROOM == ROOM / 2 || y % ROOM == ROOM / 2;
+				solid[x][y] = wall && !door || random.nextInt(50) == 0;
+			}
+		}
+		return solid;
+	}
+
+	/**
+	 * @return entities, load time in ms and candidates per probe
+	 */
+	private static double[] run(boolean[][] solid, boolean merged)
+			throws SlickException {
+		World world = new World(0);
+		world.width = TILES * TILE_SIZE;
+		world.height = TILES * TILE_SIZE;
+		ME.setWorld(world);
+
+		long start = System.nanoTime();
+		List<Entity> entities = new ArrayList<Entity>();
+		if (merged) {
+			for (Rectangle r : LevelCompiler.merge(solid)) {
+				entities.add(new Solid(r.getX() * TILE_SIZE, r.getY()
+						* TILE_SIZE, (int) r.getWidth() * TILE_SIZE,
+						(int) r.getHeight() * TILE_SIZE));
+			}
+		} else {
+			for (int x = 0; x < TILES; x++) {
+				for (int y = 0; y < TILES; y++) {
+					if (solid[x][y])
+						entities.add(new StaticActor(x * TILE_SIZE, y
+								* TILE_SIZE, TILE_SIZE, TILE_SIZE,
+								(String) null));
+				}
+			}
+		}
+		for (Entity entity : entities)
+			world.add(entity);
+		world.update(null, null, 16);
+		double loadMillis = (System.nanoTime() - start) / 1e6;
+
+		SpatialHash grid = world.getSpatialHash();
+		Random random = new Random(3);
+		long candidates = 0;
+		for (int i = 0; i < PROBES; i++) {
+			float x = random.nextInt(world.width);
+			float y = random.nextInt(world.height);
+			List<Entity> found = grid.query(x, y, x + 24, y + 24);
+			candidates += found.size();
+			grid.free(found);
+		}
+		world.clear();
+		return new double[]{entities.size(), loadMillis,
+				(double) candidates / PROBES};
+	}
+}
@@ -0,0 +1,135 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.entity.CollisionTypes;
+import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.TileCollisionLayer;
+
+import java.util.Random;
+
+import org.newdawn.slick.geom.Line;
+import org.newdawn.slick.geom.Rectangle;
+
+/**
+ * Lets 500 zombies check if they see the player through 2000 crates and a
+ * tile layer with walls, once like the zombieEscape demo did with a Line
+ * tested against every crate and once with World.lineOfSight. Reports the
+ * sight checks per ms and how many zombies see the player.
+ */
+public class LineOfSightBenchmark {
+
+	private static final int ZOMBIES = 500;
+	private static final int CRATES = 2000;
+	private static final int SIZE = 4096;
+	private static final int TILE = 32;
+	private static final int FRAMES = 40;
+
+	public static void main(String[] args) {
+		World world = new World(0);
+		world.width = SIZE;
+		world.height = SIZE;
+		ME.setWorld(world);
+		Random random = new Random(23);
+		TileCollisionLayer walls = new TileCollisionLayer(0, 0, SIZE / TILE,
+				SIZE / TILE, TILE, TILE);
+		for (int i = 0; i < 300; i++)
+			walls.set(random.nextInt(SIZE / TILE), random.nextInt(SIZE / TILE),
+					true);
+		world.setTileCollisionLayer(walls);
+		Entity[] crates = new Entity[CRATES];
+		for (int i = 0; i < CRATES; i++) {
+			crates[i] = new Body(random.nextInt(SIZE), random.nextInt(SIZE),
+					24);
+			crates[i].addType(Entity.SOLID);
+			world.add(crates[i]);
+		}
+		Entity[] zombies = new Entity[ZOMBIES];
+		for (int i = 0; i < ZOMBIES; i++) {
+			zombies[i] = new Body(random.nextInt(SIZE), random.nextInt(SIZE),
+					16);
+			world.add(zombies[i]);
+		}
+		Entity player = new Body(SIZE / 2, SIZE / 2, 16);
+		world.add(player);
+		try {
+			world.update(null, null, 16);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		long blocking = CollisionTypes.mask(Entity.SOLID);
+
+		// warm up
+		scan(zombies, player, crates, walls, FRAMES / 4);
+		cast(world, zombies, player, blocking, FRAMES / 4);
+
+		long start = System.nanoTime();
+		int scanned = scan(zombies, player, crates, walls, FRAMES);
+		long scanNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		int cast = cast(world, zombies, player, blocking, FRAMES);
+		long castNanos = System.nanoTime() - start;
+
+		System.out.println(ZOMBIES + " zombies, " + CRATES + " crates, "
+				+ FRAMES + " frames");
+		System.out.println("sight         checks/ms   in sight");
+		report("line scan", scanNanos, scanned);
+		report("raycast", castNanos, cast);
+	}
+
+	private static void report(String name, long nanos, int inSight) {
+		System.out.println(String.format("%-9s %13d %10d", name,
+				(long) ZOMBIES * FRAMES * 1000000L / nanos, inSight));
+	}
+
+	/**
+	 * @return zombies that see the player in the last frame
+	 */
+	private static int scan(Entity[] zombies, Entity player,
+			Entity[] crates, TileCollisionLayer walls, int frames) {
+		int inSight = 0;
+		for (int frame = 0; frame < frames; frame++) {
+			inSight = 0;
+			for (Entity zombie : zombies) {
+				Line line = new Line(zombie.x + 8, zombie.y + 8, player.x + 8,
+						player.y + 8);
+				boolean blocked = false;
+				for (int i = 0; i < crates.length && !blocked; i++)
+					blocked = line.intersects(new Rectangle(crates[i].x,
+							crates[i].y, 24, 24));
+				// sample the tiles under the line every 4 pixels
+				float length = line.length();
+				for (int step = 0; step < length && !blocked; step += 4)
+					blocked = walls.isSolidAt(line.getX1() + line.getDX()
+							* step / length, line.getY1() + line.getDY()
+							* step / length);
+				if (!blocked)
+					inSight++;
+			}
+		}
+		return inSight;
+	}
+
+	/**
+	 * @return zombies that see the player in the last frame
+	 */
+	private static int cast(World world, Entity[] zombies, Entity player,
+			long blocking, int frames) {
+		int inSight = 0;
+		for (int frame = 0; frame < frames; frame++) {
+			inSight = 0;
+			for (Entity zombie : zombies) {
+				if (world.lineOfSight(zombie, player, blocking))
+					inSight++;
+			}
+		}
+		return inSight;
+	}
+
+	private static class Body extends Entity {
+		public Body(float x, float y, int size) {
+			super(x, y);
+			setHitBox(0, 0, size, size);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.HeadlessRunner;
+import it.marteEngine.World;
+import it.marteEngine.entity.AABBTree;
+import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.NameIndex;
+import it.marteEngine.entity.SpatialHash;
+import it.marteEngine.entity.TypeIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * Removes a lot of bullets in a single frame. The time spent on removal is
+ * the time of the remove calls and of the world update that applies them,
+ * which has no bullet left to update. It is compared with the old way of
+ * removing entities from the same lists and indexes the world keeps: a
+ * contains check on every remove call and a removal from every list and
+ * index for every removed entity.
+ */
+public class MassDespawnBenchmark {
+
+	private static final int[] SIZES = {2000, 10000, 50000};
+	/** bullets removed before measuring, so the JIT compiled both ways */
+	private static final int WARM_UP = 200000;
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) throws SlickException {
+		System.out.println("despawned   removal ms   old removal ms");
+		for (int n : SIZES) {
+			for (int i = 0; i < Math.max(2, WARM_UP / n); i++) {
+				despawn(n);
+				oldDespawn(n);
+			}
+
+			long world = 0;
+			long old = 0;
+			for (int i = 0; i < ROUNDS; i++) {
+				world += despawn(n);
+				old += oldDespawn(n);
+			}
+			System.out.println(String.format("%9d %12.2f %16.2f", n, world
+					/ ROUNDS / 1e6, old / ROUNDS / 1e6));
+		}
+	}
+
+	/**
+	 * @return nanoseconds needed to remove n bullets from a world in one
+	 *         update
+	 */
+	private static long despawn(int n) throws SlickException {
+		World world = new World(0);
+		HeadlessRunner runner = new HeadlessRunner(world, 800, 800);
+		runner.init();
+		List<Entity> bullets = createBullets(n);
+		for (Entity bullet : bullets)
+			world.add(bullet);
+		runner.tick();
+		System.gc();
+
+		long start = System.nanoTime();
+		for (Entity bullet : bullets)
+			world.remove(bullet);
+		runner.tick();
+		long time = System.nanoTime() - start;
+
+		if (world.getCount() != 0)
+			throw new IllegalStateException("bullets left in the world");
+		return time;
+	}
+
+	/**
+	 * @return nanoseconds needed to remove n bullets from the lists and
+	 *         indexes of a world one entity at a time, the way World used to
+	 *         do it
+	 */
+	private static long oldDespawn(int n) {
+		List<Entity> bullets = createBullets(n);
+		List<Entity> entities = new ArrayList<Entity>(bullets);
+		List<Entity> below = new ArrayList<Entity>();
+		List<Entity> above = new ArrayList<Entity>();
+		List<Entity> removable = new ArrayList<Entity>();
+		SpatialHash spatialHash = new SpatialHash();
+		TypeIndex typeIndex = new TypeIndex();
+		NameIndex nameIndex = new NameIndex();
+		AABBTree tree = new AABBTree();
+		for (Entity bullet : bullets) {
+			spatialHash.insert(bullet);
+			typeIndex.insert(bullet);
+			nameIndex.insert(bullet);
+			tree.insert(bullet);
+		}
+		System.gc();
+
+		long start = System.nanoTime();
+		for (Entity bullet : bullets) {
+			if (!removable.contains(bullet))
+				removable.add(bullet);
+		}
+		for (Entity bullet : removable) {
+			entities.remove(bullet);
+			below.remove(bullet);
+			above.remove(bullet);
+			spatialHash.remove(bullet);
+			typeIndex.remove(bullet);
+			nameIndex.remove(bullet);
+			tree.remove(bullet);
+			bullet.removedFromWorld();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static List<Entity> createBullets(int n) {
+		List<Entity> bullets = new ArrayList<Entity>(n);
+		for (int i = 0; i < n; i++)
+			bullets.add(new Bullet(i % 100 * 8, i / 100 * 8));
+		return bullets;
+	}
+
+	private static class Bullet extends Entity {
+		public Bullet(float x, float y) {
+			super(x, y);
+			setHitBox(0, 0, 4, 4);
+			addType("bullet");
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.entity.Entity;
+
+import java.util.List;
+
+/**
+ * Looks up the player among 20k named entities, like the demos do in every
+ * frame, once by scanning the entities of the world with equalsIgnoreCase
+ * like World.find used to and once with the name index. Reports the lookups
+ * per ms.
+ */
+public class NameLookupBenchmark {
+
+	private static final int ENTITIES = 20000;
+	private static final int LOOKUPS = 20000;
+
+	public static void main(String[] args) {
+		World world = new World(0);
+		ME.setWorld(world);
+		for (int i = 0; i < ENTITIES; i++)
+			world.add(new Named("bullet" + i % 100));
+		world.add(new Named(Entity.PLAYER));
+		try {
+			world.update(null, null, 16);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+
+		// warm up
+		scan(world, LOOKUPS / 10);
+		find(world, LOOKUPS / 10);
+
+		long start = System.nanoTime();
+		int scanned = scan(world, LOOKUPS);
+		long scanNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		int found = find(world, LOOKUPS);
+		long findNanos = System.nanoTime() - start;
+
+		System.out.println(ENTITIES + " entities, " + LOOKUPS + " lookups");
+		System.out.println("lookup     lookups/ms   found");
+		report("scan", scanNanos, scanned);
+		report("find", findNanos, found);
+		System.out.println("findAll(\"BULLET7\") "
+				+ world.findAll("BULLET7").size());
+	}
+
+	private static void report(String name, long nanos, int found) {
+		System.out.println(String.format("%-6s %14d %7d", name,
+				LOOKUPS * 1000000L / nanos, found));
+	}
+
+	private static int scan(World world, int lookups) {
+		int found = 0;
+		List<Entity> entities = world.getEntities();
+		for (int i = 0; i < lookups; i++) {
+			for (Entity entity : entities) {
+				if (entity.name != null
+						&& entity.name.equalsIgnoreCase("player")) {
+					found++;
+					break;
+				}
+			}
+		}
+		return found;
+	}
+
+	private static int find(World world, int lookups) {
+		int found = 0;
+		for (int i = 0; i < lookups; i++) {
+			if (world.find("player") != null)
+				found++;
+		}
+		return found;
+	}
+
+	private static class Named extends Entity {
+		public Named(String name) {
+			super(0, 0);
+			this.name = name;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.entity.CollisionTypes;
+import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.EntityConsumer;
+
+import java.util.List;
+import java.util.Random;
+
+import org.newdawn.slick.geom.Vector2f;
+
+/**
+ * Lets 1000 seekers look for the nearest of 20k targets and for the targets
+ * around them, once by scanning every entity of the world with getDistance
+ * and once with World.nearest, kNearest and withinRadius. Reports the queries
+ * per ms and a checksum of the answers, which must be the same for the scan
+ * and the index.
+ */
+public class NearestQueryBenchmark {
+
+	private static final int TARGETS = 20000;
+	private static final int SEEKERS = 1000;
+	private static final int SIZE = 8192;
+	private static final int RADIUS = 128;
+	private static final int ROUNDS = 5;
+	private static final String TARGET = "target";
+
+	private static final long TARGET_MASK = CollisionTypes.mask(TARGET);
+
+	public static void main(String[] args) {
+		World world = new World(0);
+		world.width = SIZE;
+		world.height = SIZE;
+		ME.setWorld(world);
+		Random random = new Random(31);
+		for (int i = 0; i < TARGETS; i++) {
+			Entity target = new Body(random.nextInt(SIZE),
+					random.nextInt(SIZE));
+			target.addType(TARGET);
+			world.add(target);
+		}
+		Entity[] seekers = new Entity[SEEKERS];
+		for (int i = 0; i < SEEKERS; i++) {
+			seekers[i] = new Body(random.nextInt(SIZE), random.nextInt(SIZE));
+			world.add(seekers[i]);
+		}
+		try {
+			world.update(null, null, 16);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+
+		// warm up
+		for (int i = 0; i < ROUNDS; i++) {
+			scanNearest(world, seekers);
+			indexNearest(world, seekers);
+			scanRadius(world, seekers);
+			indexRadius(world, seekers);
+		}
+
+		System.out.println(TARGETS + " targets, " + SEEKERS + " seekers");
+		System.out.println("query          queries/ms   checksum");
+		long start = System.nanoTime();
+		long sum = scanNearest(world, seekers);
+		report("scan nearest", System.nanoTime() - start, sum);
+		start = System.nanoTime();
+		sum = indexNearest(world, seekers);
+		report("nearest", System.nanoTime() - start, sum);
+		start = System.nanoTime();
+		sum = scanRadius(world, seekers);
+		report("scan radius", System.nanoTime() - start, sum);
+		start = System.nanoTime();
+		sum = indexRadius(world, seekers);
+		report("withinRadius", System.nanoTime() - start, sum);
+	}
+
+	private static void report(String name, long nanos, long checksum) {
+		System.out.println(String.format("%-12s %12d %10d", name,
+				(long) SEEKERS * ROUNDS * 1000000L / nanos, checksum));
+	}
+
+	/**
+	 * @return sum of the identities of the nearest targets
+	 */
+	private static long scanNearest(World world, Entity[] seekers) {
+		long sum = 0;
+		List<Entity> entities = world.getEntities();
+		for (int round = 0; round < ROUNDS; round++) {
+			for (Entity seeker : seekers) {
+				Entity nearest = null;
+				float best = Float.POSITIVE_INFINITY;
+				for (Entity entity : entities) {
+					if (!entity.isType(TARGET))
+						continue;
+					float distance = seeker.getDistance(new Vector2f(
+							entity.x, entity.y));
+					if (distance < best) {
+						best = distance;
+						nearest = entity;
+					}
+				}
+				sum += System.identityHashCode(nearest);
+			}
+		}
+		return sum;
+	}
+
+	private static long indexNearest(World world, Entity[] seekers) {
+		long sum = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			for (Entity seeker : seekers) {
+				// the hitboxes of the bodies are at their position
+				sum += System.identityHashCode(world.nearest(seeker.x,
+						seeker.y, TARGET_MASK, Float.POSITIVE_INFINITY));
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the number of targets found
+	 */
+	private static long scanRadius(World world, Entity[] seekers) {
+		long found = 0;
+		List<Entity> entities = world.getEntities();
+		for (int round = 0; round < ROUNDS; round++) {
+			for (Entity seeker : seekers) {
+				for (Entity entity : entities) {
+					if (entity.isType(TARGET)
+							&& seeker.getDistance(new Vector2f(entity.x,
+									entity.y)) <= RADIUS)
+						found++;
+				}
+			}
+		}
+		return found;
+	}
+
+	private static long indexRadius(World world, Entity[] seekers) {
+		Counter counter = new Counter();
+		for (int round = 0; round < ROUNDS; round++) {
+			for (Entity seeker : seekers)
+				world.withinRadius(seeker.x, seeker.y, RADIUS, TARGET_MASK,
+						counter);
+		}
+		return counter.found;
+	}
+
+	private static class Counter implements EntityConsumer {
+		long found;
+
+		@Override
+		public void accept(Entity entity) {
+			found++;
+		}
+	}
+
+	/** a point, the hitbox has no size so its center is the position */
+	private static class Body extends Entity {
+		public Body(float x, float y) {
+			super(x, y);
+			setHitBox(0, 0, 0, 0);
+		}
+	}
+}
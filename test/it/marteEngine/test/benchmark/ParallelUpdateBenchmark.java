@@ -0,0 +1,156 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.HeadlessRunner;
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.actor.StaticActor;
+import it.marteEngine.entity.Entity;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Updates a single world with 20k thread safe agents between static walls,
+ * once serially and once in parallel for 1 thread up to one thread per core.
+ * Every agent thinks, moves, bounces off walls and is replaced by a new agent
+ * at the end of its life. Reports the updates per second and checks that
+ * every run ends with exactly the same agents at the same positions.
+ */
+public class ParallelUpdateBenchmark {
+
+	private static final int AGENTS = 20000;
+	private static final int WALLS = 400;
+	private static final int TICKS = 300;
+	private static final int LIFETIME = 250;
+	private static final int THINK_STEPS = 24;
+	private static final int SIZE = 4000;
+
+	/**
+	 * @param args
+	 *            optional maximum number of threads, defaults to the number
+	 *            of cores
+	 */
+	public static void main(String[] args) throws SlickException {
+		int cores = Runtime.getRuntime().availableProcessors();
+		if (args.length > 0)
+			cores = Integer.parseInt(args[0]);
+		// warm up
+		run(null, TICKS / 3);
+		run(new ForkJoinPool(cores), TICKS / 3);
+
+		System.out.println(AGENTS + " agents, " + WALLS + " walls, " + TICKS
+				+ " updates");
+		System.out.println("threads    updates/s   speedup   checksum");
+		long[] serial = run(null, TICKS);
+		report("serial", serial, serial);
+		boolean deterministic = true;
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			long[] parallel = run(pool, TICKS);
+			pool.shutdown();
+			report(String.valueOf(threads), parallel, serial);
+			deterministic &= parallel[1] == serial[1];
+			if (threads < cores && threads * 2 > cores)
+				threads = cores / 2;
+		}
+		if (!deterministic)
+			throw new IllegalStateException(
+					"parallel updates ended in another state than the serial update");
+	}
+
+	/**
+	 * @return time in ns and a checksum of the entities after the run
+	 */
+	private static long[] run(ForkJoinPool pool, int ticks)
+			throws SlickException {
+		World world = new World(0);
+		HeadlessRunner runner = new HeadlessRunner(world, SIZE, SIZE);
+		runner.init();
+		ME.setWorld(world);
+		world.setParallelUpdate(pool);
+		Random random = new Random(42);
+		for (int i = 0; i < WALLS; i++) {
+			world.add(new StaticActor(random.nextInt(SIZE), random
+					.nextInt(SIZE), 32, 32, (String) null));
+		}
+		for (int i = 0; i < AGENTS; i++) {
+			world.add(new Agent(random.nextInt(SIZE), random.nextInt(SIZE),
+					random.nextInt(), random.nextInt(LIFETIME)));
+		}
+		runner.tick();
+		runner.resetStatistics();
+		runner.run(ticks);
+
+		long checksum = 0;
+		for (Entity entity : world.getEntities()) {
+			checksum = checksum * 31 + Float.floatToIntBits(entity.x);
+			checksum = checksum * 31 + Float.floatToIntBits(entity.y);
+		}
+		world.clear();
+		return new long[]{runner.getNanos() / ticks, checksum};
+	}
+
+	private static void report(String name, long[] result, long[] serial) {
+		System.out.println(String.format("%-8s %11.0f %8.2fx   %016x", name,
+				1e9 / result[0], (double) serial[0] / result[0], result[1]));
+	}
+
+	private static class Agent extends Entity {
+		private int seed;
+		private int age;
+		private float heading;
+
+		public Agent(float x, float y, int seed, int age) {
+			super(x, y);
+			this.seed = seed;
+			this.age = age;
+			width = 4;
+			height = 4;
+			setHitBox(0, 0, 4, 4);
+			addType("agent");
+			wrapHorizontal = true;
+			wrapVertical = true;
+			threadSafe = true;
+		}
+
+		@Override
+		public void update(GameContainer container, int delta)
+				throws SlickException {
+			// think: wander a bit in the direction of the best of a few
+			// random headings
+			float best = heading;
+			float bestScore = Float.NEGATIVE_INFINITY;
+			for (int i = 0; i < THINK_STEPS; i++) {
+				seed = seed * 1103515245 + 12345;
+				float candidate = heading + ((seed >>> 16) & 63) / 64f - 0.5f;
+				float score = (float) (Math.cos(candidate - heading) - Math
+						.abs(Math.sin(candidate * 3)) * 0.1);
+				if (score > bestScore) {
+					bestScore = score;
+					best = candidate;
+				}
+			}
+			heading = best;
+			speed.set((float) Math.cos(heading) * 2,
+					(float) Math.sin(heading) * 2);
+
+			if (collide(SOLID, x + speed.x, y + speed.y) == null) {
+				x += speed.x;
+				y += speed.y;
+			}
+
+			if (++age == LIFETIME) {
+				world.remove(this);
+				world.add(new Agent(startx, starty, seed, 0));
+			}
+		}
+
+		@Override
+		public void collisionResponse(Entity other) {
+			heading += (float) Math.PI;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.EngineContext;
+import it.marteEngine.HeadlessRunner;
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Updates many independent worlds, each with its own EngineContext, on a
+ * thread pool. Reports the total number of world updates per second for 1
+ * thread up to one thread per core. Every entity checks that ME gives it its
+ * own world while it is updated.
+ */
+public class ParallelWorldsBenchmark {
+
+	private static final int WORLDS = 256;
+	private static final int ENTITIES = 200;
+	private static final int TICKS = 200;
+
+	/** entities that saw another world through ME */
+	private static final AtomicInteger wrongWorld = new AtomicInteger();
+
+	/**
+	 * @param args
+	 *            optional maximum number of threads, defaults to the number
+	 *            of cores
+	 */
+	public static void main(String[] args) throws Exception {
+		int cores = Runtime.getRuntime().availableProcessors();
+		if (args.length > 0)
+			cores = Integer.parseInt(args[0]);
+		// warm up
+		run(cores);
+
+		System.out.println(WORLDS + " worlds, " + ENTITIES + " entities each");
+		System.out.println("threads   updates/s   speedup");
+		double single = 0;
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			double updates = run(threads);
+			if (threads == 1)
+				single = updates;
+			System.out.println(String.format("%7d %11.0f %8.2fx", threads,
+					updates, updates / single));
+			if (threads < cores && threads * 2 > cores)
+				threads = cores / 2;
+		}
+		if (wrongWorld.get() != 0)
+			throw new IllegalStateException(wrongWorld.get()
+					+ " updates saw the wrong world");
+	}
+
+	/**
+	 * @return world updates per second
+	 */
+	private static double run(int threads) throws Exception {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < WORLDS; i++) {
+			final HeadlessRunner runner = createWorld(i);
+			tasks.add(new Callable<Void>() {
+				public Void call() throws SlickException {
+					runner.run(TICKS);
+					return null;
+				}
+			});
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		try {
+			for (Future<Void> future : pool.invokeAll(tasks))
+				future.get();
+		} finally {
+			pool.shutdown();
+		}
+		long time = System.nanoTime() - start;
+		return (double) WORLDS * TICKS * 1e9 / time;
+	}
+
+	private static HeadlessRunner createWorld(int seed) throws SlickException {
+		World world = new World(seed, new EngineContext());
+		HeadlessRunner runner = new HeadlessRunner(world, 800, 600);
+		runner.init();
+		Random random = new Random(seed);
+		for (int i = 0; i < ENTITIES; i++) {
+			world.add(new Ball(random.nextInt(780), random.nextInt(580), random
+					.nextInt(5) - 2, random.nextInt(5) - 2));
+		}
+		return runner;
+	}
+
+	private static class Ball extends Entity {
+		public Ball(float x, float y, float dx, float dy) {
+			super(x, y);
+			setHitBox(0, 0, 8, 8);
+			addType("ball");
+			speed.set(dx, dy);
+		}
+
+		@Override
+		public void update(GameContainer container, int delta)
+				throws SlickException {
+			if (ME.getWorld() != world)
+				wrongWorld.incrementAndGet();
+			super.update(container, delta);
+			if (x < 0 || x > world.width - 8)
+				speed.x = -speed.x;
+			if (y < 0 || y > world.height - 8)
+				speed.y = -speed.y;
+			collide("ball", x, y);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.entity.Entity;
+
+import java.util.Random;
+
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Moves 5k long thin entities around, half of them turning every update,
+ * and lets each of them look for a collision once per update. Runs once
+ * with axis aligned hitboxes and once with hitboxes that turn with the
+ * entities. Reports the updates per second and the collisions per update,
+ * the axis aligned hitboxes of turned entities report collisions their
+ * shapes do not have.
+ */
+public class RotatedHitboxBenchmark {
+
+	private static final int ENTITIES = 5000;
+	private static final int TICKS = 300;
+	private static final int SIZE = 3000;
+
+	public static void main(String[] args) throws SlickException {
+		// warm up
+		run(false, TICKS / 3);
+		run(true, TICKS / 3);
+
+		System.out.println(ENTITIES + " entities, " + TICKS + " updates");
+		System.out.println("hitbox      updates/s   collisions/update");
+		report("aligned", run(false, TICKS));
+		report("oriented", run(true, TICKS));
+	}
+
+	private static void report(String name, long[] result) {
+		System.out.println(String.format("%-8s %12d %19d", name, result[0],
+				result[1]));
+	}
+
+	/**
+	 * @return updates per second and collisions per update
+	 */
+	private static long[] run(boolean oriented, int ticks)
+			throws SlickException {
+		World world = new World(0);
+		world.width = SIZE;
+		world.height = SIZE;
+		ME.setWorld(world);
+		Random random = new Random(17);
+		for (int i = 0; i < ENTITIES; i++)
+			world.add(new Stick(random.nextInt(SIZE), random.nextInt(SIZE),
+					random.nextInt(360), i % 2 == 0, oriented));
+		world.update(null, null, 16);
+
+		Stick.collisions = 0;
+		long start = System.nanoTime();
+		for (int tick = 0; tick < ticks; tick++)
+			world.update(null, null, 16);
+		long nanos = System.nanoTime() - start;
+		world.clear();
+		return new long[]{ticks * 1000000000L / nanos,
+				Stick.collisions / ticks};
+	}
+
+	/** a 40x6 stick turning around its center */
+	private static class Stick extends Entity {
+		static long collisions;
+		private final boolean turning;
+
+		public Stick(float x, float y, int angle, boolean turning,
+				boolean oriented) {
+			super(x, y);
+			this.angle = angle;
+			this.turning = turning;
+			width = 40;
+			height = 40;
+			if (oriented)
+				setOrientedHitBox(-20, -3, 40, 6);
+			else
+				setHitBox(-20, -20, 40, 40);
+			addType(SOLID);
+		}
+
+		@Override
+		public void update(GameContainer container, int delta)
+				throws SlickException {
+			if (turning)
+				angle = (angle + 3) % 360;
+			x += (float) Math.cos(Math.toRadians(angle));
+			y += (float) Math.sin(Math.toRadians(angle));
+			collide(SOLID, x, y);
+		}
+
+		@Override
+		public void collisionResponse(Entity other) {
+			collisions++;
+		}
+	}
+}
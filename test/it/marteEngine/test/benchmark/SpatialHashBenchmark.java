@@ -0,0 +1,97 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.SpatialHash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares a linear scan over all entities with a query on the SpatialHash
+ * for growing numbers of entities. The density of entities stays the same, so
+ * the grid query should take about the same time for every world size while
+ * the linear scan grows with the number of entities.
+ */
+public class SpatialHashBenchmark {
+
+	private static final int[] SIZES = {100, 1000, 10000, 50000};
+	private static final int QUERIES = 20000;
+	private static final int TILE = 32;
+
+	public static void main(String[] args) {
+		System.out.println("entities   linear ns/query   grid ns/query");
+		for (int n : SIZES) {
+			List<Entity> entities = createEntities(n);
+			SpatialHash grid = new SpatialHash();
+			for (Entity e : entities)
+				grid.insert(e);
+
+			// warm up both code paths before measuring
+			run(entities, grid, false);
+			run(entities, grid, true);
+
+			long linear = run(entities, grid, false);
+			long hashed = run(entities, grid, true);
+			System.out.println(String.format("%8d %17d %15d", n, linear
+					/ QUERIES, hashed / QUERIES));
+		}
+	}
+
+	private static List<Entity> createEntities(int n) {
+		// keep the same density: on average one entity per 4 tiles
+		int side = (int) Math.ceil(Math.sqrt(n * 4.0)) * TILE;
+		Random random = new Random(42);
+		List<Entity> entities = new ArrayList<Entity>(n);
+		for (int i = 0; i < n; i++) {
+			Entity e = new Block(random.nextInt(side), random.nextInt(side));
+			entities.add(e);
+		}
+		return entities;
+	}
+
+	private static long run(List<Entity> entities, SpatialHash grid,
+			boolean useGrid) {
+		Random random = new Random(7);
+		int hits = 0;
+		long start = System.nanoTime();
+		for (int q = 0; q < QUERIES; q++) {
+			Entity probe = entities.get(random.nextInt(entities.size()));
+			float left = probe.x;
+			float top = probe.y;
+			float right = left + TILE;
+			float bottom = top + TILE;
+			if (useGrid) {
+				List<Entity> candidates = grid.query(left, top, right, bottom);
+				for (int i = 0; i < candidates.size(); i++) {
+					if (overlaps(candidates.get(i), left, top, right, bottom))
+						hits++;
+				}
+				grid.free(candidates);
+			} else {
+				for (int i = 0; i < entities.size(); i++) {
+					if (overlaps(entities.get(i), left, top, right, bottom))
+						hits++;
+				}
+			}
+		}
+		long time = System.nanoTime() - start;
+		if (hits == 0)
+			throw new IllegalStateException("no hits, benchmark is broken");
+		return time;
+	}
+
+	private static boolean overlaps(Entity e, float left, float top,
+			float right, float bottom) {
+		return e.x + e.hitboxWidth > left && e.y + e.hitboxHeight > top
+				&& e.x < right && e.y < bottom;
+	}
+
+	private static class Block extends Entity {
+		public Block(float x, float y) {
+			super(x, y);
+			setHitBox(0, 0, TILE, TILE);
+			addType(SOLID);
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.actor.StaticActor;
+import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.PhysicsEntity;
+import it.marteEngine.entity.Sweep;
+
+import java.util.Random;
+
+import org.newdawn.slick.GameContainer;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Runs 500 fast PhysicsEntities through a level of platforms, walls and
+ * stairs, once moving pixel by pixel as PhysicsEntity used to and once with
+ * the swept motion. Reports the updates per second, the collide and sweep
+ * calls per update and checks that both end with the runners at the same
+ * positions.
+ */
+public class SweptMotionBenchmark {
+
+	private static final int RUNNERS = 500;
+	private static final int TICKS = 600;
+	private static final int SIZE = 3200;
+
+	public static void main(String[] args) throws SlickException {
+		// warm up
+		run(true, TICKS / 3);
+		run(false, TICKS / 3);
+
+		System.out.println(RUNNERS + " runners, " + TICKS + " updates");
+		System.out.println("motion    updates/s   queries/update   checksum");
+		long[] pixel = run(true, TICKS);
+		report("pixel", pixel);
+		long[] swept = run(false, TICKS);
+		report("swept", swept);
+		if (pixel[2] != swept[2])
+			throw new IllegalStateException(
+					"Swept motion ended at other positions");
+	}
+
+	private static void report(String name, long[] result) {
+		System.out.println(String.format("%-6s %12d %16d   %08x", name,
+				result[0], result[1], (int) result[2]));
+	}
+
+	/**
+	 * @return updates per second, queries per update and a checksum
+	 *         of the positions
+	 */
+	private static long[] run(boolean pixel, int ticks) throws SlickException {
+		World world = new World(0);
+		world.width = SIZE;
+		world.height = SIZE;
+		ME.setWorld(world);
+		Random random = new Random(5);
+		for (int row = 1; row <= 20; row++) {
+			// platforms with gaps and a wall or a staircase on every one
+			int y = row * 150;
+			for (int x = 0; x < SIZE; x += 64) {
+				if (random.nextInt(8) > 0)
+					world.add(new StaticActor(x, y, 64, 16, (String) null));
+			}
+			for (int i = 0; i < 6; i++) {
+				int x = random.nextInt(SIZE - 64);
+				if (random.nextBoolean()) {
+					world.add(new StaticActor(x, y - 48, 16, 48,
+							(String) null));
+				} else {
+					for (int step = 0; step < 8; step++)
+						world.add(new StaticActor(x + step * 2, y - step - 1,
+								2, step + 1, (String) null));
+				}
+			}
+		}
+		Runner[] runners = new Runner[RUNNERS];
+		for (int i = 0; i < RUNNERS; i++) {
+			runners[i] = pixel ? new PixelRunner(random.nextInt(SIZE - 16),
+					random.nextInt(SIZE - 200)) : new Runner(
+					random.nextInt(SIZE - 16), random.nextInt(SIZE - 200));
+			world.add(runners[i]);
+		}
+		world.update(null, null, 16);
+
+		Runner.queries = 0;
+		long start = System.nanoTime();
+		for (int tick = 0; tick < ticks; tick++)
+			world.update(null, null, 16);
+		long nanos = System.nanoTime() - start;
+		int checksum = 0;
+		for (Runner runner : runners)
+			checksum = checksum * 31 + Float.floatToIntBits(runner.x) * 7
+					+ Float.floatToIntBits(runner.y);
+		world.clear();
+		return new long[]{ticks * 1000000000L / nanos,
+				Runner.queries / ticks, checksum};
+	}
+
+	/** runs left and right at high speed and jumps now and then */
+	private static class Runner extends PhysicsEntity {
+		static long queries;
+		private int tick;
+
+		public Runner(float x, float y) {
+			super(x, y);
+			width = 16;
+			height = 24;
+			setHitBox(0, 0, 16, 24);
+			maxSpeed.set(12, 16);
+			speed.x = (x % 2 == 0) ? 12 : -12;
+		}
+
+		@Override
+		public void update(GameContainer container, int delta)
+				throws SlickException {
+			tick++;
+			if (speed.x == 0)
+				speed.x = (tick % 2 == 0) ? 12 : -12;
+			if (tick % 90 == 0 && collide(SOLID, x, y + 1) != null)
+				speed.y = -10;
+			motion(true, true);
+			gravity(delta);
+			maxspeed(true, true);
+			if (y > SIZE)
+				y = 0;
+			if (x < 0 || x > SIZE - width)
+				speed.x = -speed.x;
+		}
+
+		@Override
+		public Entity collide(String type, float x, float y) {
+			queries++;
+			return super.collide(type, x, y);
+		}
+
+		@Override
+		public Sweep sweep(long typeMask, float x, float y, int dx, int dy,
+				Sweep result) {
+			queries++;
+			return super.sweep(typeMask, x, y, dx, dy, result);
+		}
+	}
+
+	/** moves pixel by pixel, as PhysicsEntity did before the swept motion */
+	private static class PixelRunner extends Runner {
+
+		public PixelRunner(float x, float y) {
+			super(x, y);
+		}
+
+		@Override
+		public boolean motionx(Entity e, float spdx) {
+			// check each pixel before moving it
+			for (int i = 0; i < Math.abs(spdx); i++) {
+				// if we've moved
+				boolean moved = false;
+				boolean below = true;
+
+				if (e.collide(SOLID, e.x, e.y + 1) == null) {
+					below = false;
+				}
+
+				// run through how high a slope we can move up
+				for (int s = 0; s <= slopeHeight; s++) {
+					// if we don't hit a solid in the direction we're moving,
+					// move....
+					if (e.collide(SOLID, e.x + Math.signum(spdx), e.y - s) == null) {
+						// increase/decrease positions
+						// if the player is in the way, simply don't move (but don't
+						// count it as stopping)
+						if (e.collide(PLAYER, e.x + Math.signum(spdx), e.y - s) == null) {
+							e.x += Math.signum(spdx);
+						}
+
+						// move up the slope
+						e.y -= s;
+
+						// we've moved
+						moved = true;
+
+						// stop checking for slope (so we don't fly up into the
+						// air....)
+						break;
+					}
+
+				}
+
+				// if we are now in the air, but just above a platform, move us
+				// down.
+				if (below && e.collide(SOLID, e.x, e.y + 1) == null) {
+					e.y += 1;
+				}
+
+				// if we haven't moved, set our speed to 0
+				if (!moved) {
+					return false;
+				}
+			}
+
+			// hit nothing!
+			return true;
+		}
+
+		@Override
+		public boolean motiony(Entity e, float spdy) {
+			// for each pixel that we will move...
+			for (int i = 0; i < Math.abs(spdy); i++) {
+				// if we DON'T collide with solid
+				if (e.collide(SOLID, e.x, e.y + Math.signum(spdy)) == null) {
+					// if we don't run into a player, them move us
+					if (e.collide(PLAYER, e.x, e.y + Math.signum(spdy)) == null) {
+						e.y += Math.signum(spdy);
+					}
+					// but note that we wont stop our movement if we hit a player.
+				} else {
+					// stop movement if we hit a solid
+					return false;
+				}
+			}
+
+			// hit nothing!
+			return true;
+		}
+	}
+}
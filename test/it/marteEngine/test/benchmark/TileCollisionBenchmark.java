@@ -0,0 +1,87 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.ME;
+import it.marteEngine.World;
+import it.marteEngine.actor.StaticActor;
+import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.TileCollisionLayer;
+
+import java.util.Random;
+
+import org.newdawn.slick.SlickException;
+
+/**
+ * Checks a 24x24 hitbox for collisions with the walls of a level of 256x256
+ * tiles, once with a StaticActor per solid tile and once with the tiles in a
+ * {@link TileCollisionLayer}. Reports the collide calls per second and how
+ * many of them hit a wall.
+ */
+public class TileCollisionBenchmark {
+
+	private static final int TILES = 256;
+	private static final int TILE_SIZE = 32;
+	private static final int CHECKS = 2000000;
+
+	public static void main(String[] args) throws SlickException {
+		boolean[][] solid = new boolean[TILES][TILES];
+		Random random = new Random(7);
+		for (int x = 0; x < TILES; x++) {
+			for (int y = 0; y < TILES; y++)
+				solid[x][y] = x % 16 == 0 || y % 16 == 0
+						|| random.nextInt(20) == 0;
+		}
+		// warm up
+		run(solid, false);
+		run(solid, true);
+
+		System.out.println("level    checks/ms   hits");
+		report("tiles", run(solid, false));
+		report("bitset", run(solid, true));
+	}
+
+	private static void report(String name, long[] result) {
+		System.out.println(String.format("%-6s %11d %6d", name, result[0],
+				result[1]));
+	}
+
+	/**
+	 * @return collide calls per ms and the number of hits
+	 */
+	private static long[] run(boolean[][] solid, boolean bitset)
+			throws SlickException {
+		World world = new World(0);
+		world.width = TILES * TILE_SIZE;
+		world.height = TILES * TILE_SIZE;
+		ME.setWorld(world);
+		if (bitset) {
+			world.setTileCollisionLayer(new TileCollisionLayer(0, 0, solid,
+					TILE_SIZE, TILE_SIZE));
+		} else {
+			for (int x = 0; x < TILES; x++) {
+				for (int y = 0; y < TILES; y++) {
+					if (solid[x][y])
+						world.add(new StaticActor(x * TILE_SIZE, y * TILE_SIZE,
+								TILE_SIZE, TILE_SIZE, (String) null));
+				}
+			}
+		}
+		Entity probe = new Entity(0, 0) {
+		};
+		probe.setHitBox(0, 0, 24, 24);
+		world.add(probe);
+		world.update(null, null, 16);
+
+		Random random = new Random(3);
+		long hits = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < CHECKS; i++) {
+			float x = random.nextInt(world.width);
+			float y = random.nextInt(world.height);
+			if (probe.collide(Entity.SOLID, x, y) != null)
+				hits++;
+		}
+		long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+		world.clear();
+		return new long[]{CHECKS / millis, hits};
+	}
+}
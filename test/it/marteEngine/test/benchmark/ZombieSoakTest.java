@@ -0,0 +1,64 @@
+package it.marteEngine.test.benchmark;
+
+import it.marteEngine.HeadlessRunner;
+import it.marteEngine.ResourceManager;
+import it.marteEngine.entity.Entity;
+import it.marteEngine.test.zombieEscape.Player;
+import it.marteEngine.test.zombieEscape.Zombie;
+import it.marteEngine.test.zombieEscape.ZombieWorld;
+
+import org.newdawn.slick.Input;
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.util.Log;
+
+/**
+ * Runs the zombie demo without a display. The player walks into the radar of
+ * the zombie and away again, so the zombie goes through all of its states.
+ * The images of the demo are replaced by placeholders of the same size.
+ */
+public class ZombieSoakTest {
+
+	private static final int TICKS = 500000;
+	private static final int WALK_TICKS = 400;
+
+	public static void main(String[] args) throws SlickException {
+		// the zombie states log every state change
+		Log.setVerbose(false);
+		for (String image : new String[]{"zombie", "player", "alert", "move",
+				"wait"}) {
+			ResourceManager.addImage(image, HeadlessRunner.placeholder(32, 32));
+		}
+
+		ZombieWorld world = new ZombieWorld(0);
+		HeadlessRunner runner = new HeadlessRunner(world, 800, 600);
+		runner.init();
+		// the first update adds the entities created by init
+		runner.tick();
+		Entity player = world.find(Player.PLAYER);
+		Entity zombie = world.getEntities(Zombie.ZOMBIE).get(0);
+		Object state = zombie.stateManager.currentState();
+		int stateChanges = 0;
+		float minX = player.x;
+
+		for (int tick = 0; tick < TICKS; tick++) {
+			int phase = tick % (2 * WALK_TICKS);
+			if (phase == 0) {
+				runner.getInput().release(Input.KEY_RIGHT);
+				runner.getInput().press(Input.KEY_LEFT);
+			} else if (phase == WALK_TICKS) {
+				runner.getInput().release(Input.KEY_LEFT);
+				runner.getInput().press(Input.KEY_RIGHT);
+			}
+			runner.tick();
+			if (zombie.stateManager.currentState() != state) {
+				state = zombie.stateManager.currentState();
+				stateChanges++;
+			}
+			minX = Math.min(minX, player.x);
+		}
+		System.out.println(runner);
+		System.out.println("player walked between x " + minX + " and "
+				+ player.x + ", zombie changed state " + stateChanges
+				+ " times");
+	}
+}
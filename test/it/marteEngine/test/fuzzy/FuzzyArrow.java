@@ -46,7 +46,7 @@ public class FuzzyArrow extends Entity {
 				FuzzyPlayer fp = (FuzzyPlayer) ent;
 				fp.damage(-1);
 			}
-			ME.world.remove(this);
+			ME.getWorld().remove(this);
 			return;
 		}
 		x = tx;
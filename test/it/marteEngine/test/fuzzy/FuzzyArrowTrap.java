@@ -88,7 +88,7 @@ public class FuzzyArrowTrap extends Entity {
 			if (!FuzzyGameWorld.killSound.playing()) {
 				FuzzyGameWorld.killSound.play();
 			}
-			ME.world.remove(this);
+			ME.getWorld().remove(this);
 		}
 	}
 
@@ -119,7 +119,7 @@ public class FuzzyArrowTrap extends Entity {
 			for (Entity entity : ent) {
 				if (entity.isType(FuzzyPlayer.PLAYER)) {
 					Log.info("player here!!");
-					ME.world.add(new FuzzyArrow(sx - 20, sy - 5, faceRight),
+					ME.getWorld().add(new FuzzyArrow(sx - 20, sy - 5, faceRight),
 							World.GAME);
 					if (!fireSnd.playing()) {
 						fireSnd.play();
@@ -27,10 +27,8 @@ public class FuzzyBat extends Entity {
 
 	public FuzzyBat(float x, float y) throws SlickException {
 		super(x, y);
-		addAnimation(ResourceManager.getSpriteSheet("batLeft"), "moveLeft",
-				true, 0, 0, 1, 2);
-		addAnimation(ResourceManager.getSpriteSheet("batRight"), "moveRight",
-				true, 0, 0, 1, 2);
+		addAnimation("moveLeft", ResourceManager.getClip("batLeft"));
+		addAnimation("moveRight", ResourceManager.getClip("batRight"));
 		addType(BAT, SOLID);
 		setHitBox(0, 0, 32, 32);
 		speed.x = moveSpeed;
@@ -76,7 +74,7 @@ public class FuzzyBat extends Entity {
 			if (!FuzzyGameWorld.killSound.playing()) {
 				FuzzyGameWorld.killSound.play();
 			}
-			ME.world.remove(this);
+			ME.getWorld().remove(this);
 		}
 	}
 
@@ -94,7 +92,7 @@ public class FuzzyBat extends Entity {
 
 	private boolean damagePlayer(Entity player) {
 		if (player != null) {
-			FuzzyPlayer pl = (FuzzyPlayer) ME.world.find(PLAYER);
+			FuzzyPlayer pl = (FuzzyPlayer) ME.getWorld().find(PLAYER);
 			pl.damage(-1);
 			// change direction
 			if (faceRight) {
@@ -34,18 +34,18 @@ public class FuzzyBlock extends Entity {
 				((FuzzyPlayer) player).y = y + height + 1;
 				fade = true;
 				if (Math.random() > 0.5) {
-					ME.world.add(new Star(x, y), World.GAME);
+					ME.getWorld().add(new Star(x, y), World.GAME);
 					FuzzyGameWorld.stars++;
 					FuzzyGameWorld.total++;
 				} else {
-					ME.world.add(new Heart(x, y), World.GAME);
+					ME.getWorld().add(new Heart(x, y), World.GAME);
 				}
 			}
 		} else {
 			fadeTween.update(delta);
 			setAlpha(fadeTween.getValue());
 			if (getAlpha() == 0) {
-				ME.world.remove(this);
+				ME.getWorld().remove(this);
 
 			}
 		}
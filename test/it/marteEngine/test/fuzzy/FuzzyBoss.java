@@ -74,7 +74,7 @@ public class FuzzyBoss extends Entity {
 				((FuzzyPlayer) player).damage(30);
 			}
 
-			if (ME.world.getNrOfEntities(TargetBlock.TARGET_BLOCK) == 0) {
+			if (ME.getWorld().getNrOfEntities(TargetBlock.TARGET_BLOCK) == 0) {
 				toRemove = true;
 			}
 		}
@@ -83,11 +83,11 @@ public class FuzzyBoss extends Entity {
 			tweener.update(delta);
 		}
 		if (getAlpha() == 0f) {
-			ME.world.remove(this);
-			List<Entity> ent = ME.world
+			ME.getWorld().remove(this);
+			List<Entity> ent = ME.getWorld()
 					.findEntityWithType(FuzzyDestroyableBlock.TAPPO);
 			if (ent != null && !ent.isEmpty()) {
-				ME.world.remove(ent.get(0));
+				ME.getWorld().remove(ent.get(0));
 			}
 		}
 	}
@@ -100,9 +100,12 @@ public class FuzzyBoss extends Entity {
 				motion = new LinearMotion(x, y, path.get(index).x,
 						path.get(index).y, 30, Ease.QUAD_IN);
 
-				Vector2f pos = ((FuzzyGameWorld) ME.world).getPlayerCenter();
-				pos.y += 32;
-				ME.world.add(new FuzzyBubble(x, y, pos));
+				Vector2f pos = ((FuzzyGameWorld) ME.getWorld())
+						.getPlayerCenter(x, y);
+				if (pos != null) {
+					pos.y += 32;
+					ME.getWorld().add(new FuzzyBubble(x, y, pos));
+				}
 
 			} else {
 				index = -1;
@@ -35,8 +35,8 @@ public class FuzzyBubble extends Entity {
 
 		Entity ent = collide(TargetBlock.TARGET_BLOCK, x, y);
 		if (ent != null) {
-			ME.world.remove(this);
-			ME.world.remove(ent);
+			ME.getWorld().remove(this);
+			ME.getWorld().remove(ent);
 			return;
 		}
 
@@ -48,7 +48,7 @@ public class FuzzyBubble extends Entity {
 		if (motion != null) {
 			setPosition(motion.getPosition());
 			if (motion.isFinished()) {
-				ME.world.remove(this);
+				ME.getWorld().remove(this);
 			}
 		}
 	}
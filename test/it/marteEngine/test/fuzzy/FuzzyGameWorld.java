@@ -6,8 +6,10 @@ import it.marteEngine.ResourceManager;
 import it.marteEngine.World;
 import it.marteEngine.actor.StaticActor;
 import it.marteEngine.entity.Alarm;
+import it.marteEngine.entity.CollisionTypes;
 import it.marteEngine.entity.Entity;
 import it.marteEngine.entity.PlatformerEntity;
+import it.marteEngine.entity.TileCollisionLayer;
 import it.marteEngine.game.starcleaner.Background;
 
 import java.io.IOException;
@@ -36,8 +38,6 @@ import org.newdawn.slick.util.Log;
 public class FuzzyGameWorld extends World {
 
 	private static final int TILESIZE = 32;
-	public static final int NO_SOLID = -1;
-	private static final int SOLID = 1;
 	public static int stars;
 	public static int total = -1;
 	private boolean levelEnd = false;
@@ -49,6 +49,8 @@ public class FuzzyGameWorld extends World {
 	// prefix for map names
 	private static final String LEVEL_PREFIX = "level";
 	private static final String FADE_TUTORIAL = "fadeTutorial";
+	private static final long PLAYER_MASK = CollisionTypes
+			.mask(FuzzyPlayer.PLAYER);
 
 	private boolean gameEnd = false;
 	private boolean showTutorialPanel = true;
@@ -56,7 +58,8 @@ public class FuzzyGameWorld extends World {
 	private Rectangle volumeControl = new Rectangle(600, 5, 32, 34);
 	private int widthInTiles;
 	private int heightInTiles;
-	private int[][] blocked;
+	/** the blocks of the entity layer, used by the enemies to find ground */
+	private TileCollisionLayer blocked;
 
 	private long time = 0;
 	private SimpleDateFormat sdf = new SimpleDateFormat("mm:ss");
@@ -78,9 +81,9 @@ public class FuzzyGameWorld extends World {
 		super(id);
 
 		try {
-			ME.ps = ParticleIO
-					.loadConfiguredSystem("data/fuzzy/invulnerableEmitter.xml");
-			ME.renderParticle = false;
+			ME.setParticleSystem(ParticleIO
+					.loadConfiguredSystem("data/fuzzy/invulnerableEmitter.xml"));
+			ME.setRenderParticle(false);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -118,7 +121,8 @@ public class FuzzyGameWorld extends World {
 		Log.info("Load map" + levelIndex);
 		// make the world a bit bigger than the screen to force camera scrolling
 		computeWorldSize(map);
-		blocked = new int[widthInTiles][heightInTiles];
+		blocked = new TileCollisionLayer(0, 0, widthInTiles, heightInTiles,
+				TILESIZE, TILESIZE);
 
 		loadEntityFromMap(map, Arrays.asList("entity", "background", "star",
 				"enemies", "spikes"));
@@ -206,8 +210,6 @@ public class FuzzyGameWorld extends World {
 					for (int h = 0; h < map.getHeight(); h++) {
 						int tid = map.getTileId(w, h, layerIndex);
 						Image img = map.getTileImage(w, h, layerIndex);
-						if (type.equals("entity"))
-							blocked[w][h] = NO_SOLID;
 						if (img != null) {
 							if (type.equalsIgnoreCase("background")) {
 								// background
@@ -284,7 +286,7 @@ public class FuzzyGameWorld extends World {
 											* img.getHeight(), img.getWidth(),
 											img.getHeight(), img);
 									if (type.equals("entity")) {
-										blocked[w][h] = SOLID;
+										blocked.set(w, h, true);
 									}
 									add(te);
 								}
@@ -390,7 +392,7 @@ public class FuzzyGameWorld extends World {
 	public void update(GameContainer container, StateBasedGame game, int delta)
 			throws SlickException {
 		ME.muteMusic();
-		ME.renderParticle = true;
+		ME.setRenderParticle(true);
 
 		if (gameEnd) {
 			if (container.getInput().isKeyPressed(Input.KEY_SPACE)) {
@@ -500,14 +502,7 @@ public class FuzzyGameWorld extends World {
 	}
 
 	public boolean blocked(float x, float y) {
-		int tx = (int) x / TILESIZE;
-		int ty = (int) y / TILESIZE;
-
-		if (tx < 0 || tx >= widthInTiles)
-			return false;
-		if (ty < 0 || ty >= heightInTiles)
-			return false;
-		return blocked[tx][ty] != NO_SOLID;
+		return blocked.isSolidAt(x, y);
 	}
 
 	private void switchLayer() {
@@ -527,8 +522,12 @@ public class FuzzyGameWorld extends World {
 		FuzzyGameWorld.points += 100;
 	}
 
-	public Vector2f getPlayerCenter() {
-		Entity ent = find(FuzzyPlayer.PLAYER);
+	/**
+	 * @return the center of the player nearest to the point, null if there is
+	 *         no player
+	 */
+	public Vector2f getPlayerCenter(float x, float y) {
+		Entity ent = nearest(x, y, PLAYER_MASK, Float.POSITIVE_INFINITY);
 		if (ent != null) {
 			return new Vector2f(ent.x + ent.width / 2, ent.y + ent.height / 2);
 		}
@@ -28,8 +28,7 @@ public class FuzzyGreenSlime extends PhysicsEntity {
 
 	public FuzzyGreenSlime(float x, float y) throws SlickException {
 		super(x, y);
-		addAnimation(ResourceManager.getSpriteSheet("slime"), "move", true, 0,
-				0, 1, 2, 3);
+		addAnimation("move", ResourceManager.getClip("slimeMove"));
 		addType(SLIME);
 		setHitBox(0, 0, 40, 20);
 		// make Slime sloow
@@ -67,7 +66,7 @@ public class FuzzyGreenSlime extends PhysicsEntity {
 			if (!FuzzyGameWorld.killSound.playing()) {
 				FuzzyGameWorld.killSound.play();
 			}
-			ME.world.remove(this);
+			ME.getWorld().remove(this);
 		}
 	}
 
@@ -115,7 +114,7 @@ public class FuzzyGreenSlime extends PhysicsEntity {
 
 	private boolean damagePlayer(Entity player) {
 		if (player != null) {
-			FuzzyPlayer pl = (FuzzyPlayer) ME.world.find(PLAYER);
+			FuzzyPlayer pl = (FuzzyPlayer) ME.getWorld().find(PLAYER);
 			pl.damage(-1);
 			// change direction
 			if (faceRight) {
@@ -45,7 +45,7 @@ public class FuzzyMenuWorld extends World {
 			music.play();
 			music.setVolume(0.5f);
 		}
-		ME.renderParticle = false;
+		ME.setRenderParticle(false);
 	}
 
 	@Override
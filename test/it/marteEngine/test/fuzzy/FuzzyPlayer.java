@@ -63,8 +63,8 @@ public class FuzzyPlayer extends PlatformerEntity {
 		if (jumpEffect != null) {
 			jumpEffect.render();
 		}
-		if (ME.ps != null && invulnerable) {
-			ME.ps.render(x + width / 2, y + height);
+		if (ME.getParticleSystem() != null && invulnerable) {
+			ME.getParticleSystem().render(x + width / 2, y + height);
 		}
 	}
 
@@ -103,7 +103,7 @@ public class FuzzyPlayer extends PlatformerEntity {
 	}
 
 	private void removePlayer() {
-		ME.world.remove(this);
+		ME.getWorld().remove(this);
 		FuzzyGameWorld.playerDead = true;
 	}
 
@@ -37,7 +37,7 @@ public class FuzzySelectLevellWorld extends World {
 			throws SlickException {
 		super.enter(container, game);
 
-		ME.renderParticle = false;
+		ME.setRenderParticle(false);
 		checkLevelAndCompletition();
 		FuzzyMain.gotoLevel = -1;
 
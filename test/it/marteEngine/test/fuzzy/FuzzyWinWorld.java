@@ -34,7 +34,7 @@ public class FuzzyWinWorld extends World {
 			throws SlickException {
 		super.enter(container, game);
 		gotoMenu = false;
-		ME.renderParticle = false;
+		ME.setRenderParticle(false);
 	}
 
 	@Override
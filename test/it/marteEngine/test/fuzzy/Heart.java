@@ -51,7 +51,7 @@ public class Heart extends Entity {
 			tweener.update(delta);
 		}
 		if (getAlpha() == 0f) {
-			ME.world.remove(this);
+			ME.getWorld().remove(this);
 		}
 	}
 
@@ -51,7 +51,7 @@ public class Star extends Entity {
 			tweener.update(delta);
 		}
 		if (getAlpha() == 0f) {
-			ME.world.remove(this);
+			ME.getWorld().remove(this);
 		}
 	}
 
@@ -64,18 +64,18 @@ public class Star extends Entity {
 			if (tweener.getTween(FuzzyFactory.FADE) != null) {
 				setAlpha(tweener.getTween(FuzzyFactory.FADE).getValue());
 			} else {
-				ME.world.remove(this);
+				ME.getWorld().remove(this);
 
 			}
 			if (tweener.getTween(FuzzyFactory.MOVEX) != null) {
 				x = tweener.getTween(FuzzyFactory.MOVEX).getValue();
 			} else {
-				ME.world.remove(this);
+				ME.getWorld().remove(this);
 			}
 			if (tweener.getTween(FuzzyFactory.MOVEY) != null) {
 				y = tweener.getTween(FuzzyFactory.MOVEY).getValue();
 			} else {
-				ME.world.remove(this);
+				ME.getWorld().remove(this);
 
 			}
 		}
@@ -47,12 +47,12 @@ public class BallActor extends Entity {
 
 		// check ball ends
 		if (x < 0) {
-			int score = (Integer) ME.attributes.get("score2");
-			ME.attributes.put("score2", ++score);
+			int score = (Integer) ME.getAttributes().get("score2");
+			ME.getAttributes().put("score2", ++score);
 			ME.remove(this);
 		} else if (x > this.world.container.getWidth()) {
-			int score = (Integer) ME.attributes.get("score1");
-			ME.attributes.put("score1", ++score);
+			int score = (Integer) ME.getAttributes().get("score1");
+			ME.getAttributes().put("score1", ++score);
 			ME.remove(this);
 		}
 	}
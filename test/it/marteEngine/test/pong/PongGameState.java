@@ -55,8 +55,8 @@ public class PongGameState extends World {
 		super.render(container, game, g);
 
 		if (victory) {
-			int score1 = (Integer) ME.attributes.get("score1");
-			int score2 = (Integer) ME.attributes.get("score2");
+			int score1 = (Integer) ME.getAttributes().get("score1");
+			int score2 = (Integer) ME.getAttributes().get("score2");
 
 			if (score1 >= VICTORY) {
 				g.drawString("PLAYER 1 WINS!!", 150, 300);
@@ -68,8 +68,8 @@ public class PongGameState extends World {
 			return;
 		}
 
-		g.drawString("SCORE : " + ME.attributes.get("score1"), 50, 20);
-		g.drawString("SCORE : " + ME.attributes.get("score2"),
+		g.drawString("SCORE : " + ME.getAttributes().get("score1"), 50, 20);
+		g.drawString("SCORE : " + ME.getAttributes().get("score2"),
 				container.getWidth() - 150, 20);
 
 	}
@@ -91,8 +91,8 @@ public class PongGameState extends World {
 		}
 
 		// game victory stop check
-		int score1 = (Integer) ME.attributes.get("score1");
-		int score2 = (Integer) ME.attributes.get("score2");
+		int score1 = (Integer) ME.getAttributes().get("score1");
+		int score2 = (Integer) ME.getAttributes().get("score2");
 		if (score1 >= VICTORY || score2 >= VICTORY) {
 			victory = true;
 		}
@@ -117,8 +117,8 @@ public class PongGameState extends World {
 	}
 
 	private void resetScore() {
-		ME.attributes.put("score1", 0);
-		ME.attributes.put("score2", 0);
+		ME.getAttributes().put("score1", 0);
+		ME.getAttributes().put("score2", 0);
 	}
 
 	private void addNewBall(GameContainer container) {
@@ -11,6 +11,8 @@ public class Bullet extends Entity {
 
 	public float fireSpeed = 0.5f;
 	public static final String NAME = "BULLET";
+	/** reused every update */
+	private final Vector2f vectorSpeed = new Vector2f();
 
 	public Bullet(float x, float y, String ref, int angle)
 			throws SlickException {
@@ -27,7 +29,7 @@ public class Bullet extends Entity {
 			throws SlickException {
 		float dx = 0;
 		float dy = 0;
-		Vector2f vectorSpeed = calculateVector(angle, 8);
+		calculateVector(angle, 8, vectorSpeed);
 		dx += vectorSpeed.x;
 		dy += vectorSpeed.y;
 		x += dx;
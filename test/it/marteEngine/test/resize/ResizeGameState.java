@@ -41,14 +41,14 @@ public class ResizeGameState extends World {
 	// // Bullet b = new Bullet(rs.x, rs.y, "data/bullet.png",
 	// // calculateDirection(x, y, container.getInput()
 	// // .getMouseX(), container.getInput().getMouseY()));
-	// // ME.world.add(b);
+	// // ME.getWorld().add(b);
 	// // }
 	// }
 
 	// public Vector2f calculateDirection(float x, float y, int mousex, int
 	// mousey) {
 	// float rotation = ((ResizeSquare)
-	// ME.world.find(ResizeSquare.NAME)).rotation;
+	// ME.getWorld().find(ResizeSquare.NAME)).rotation;
 	// float xForce = 10f * (float) Math.sin(Math.toRadians(rotation));
 	// float yForce = 10f * (float) Math.cos(Math.toRadians(rotation));
 	// return new Vector2f(-xForce, yForce);
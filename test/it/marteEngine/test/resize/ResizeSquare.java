@@ -107,7 +107,7 @@ public class ResizeSquare extends Entity {
 		// if (check(ATTACK1)) {
 		// Bullet b = new Bullet(x, y, "data/bullet.png", angle);
 		// b.setCentered(true);
-		// ME.world.add(b);
+		// ME.getWorld().add(b);
 		// }
 
 		super.update(container, delta);
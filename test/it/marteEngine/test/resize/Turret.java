@@ -44,7 +44,7 @@ public class Turret extends Entity {
 		if (pressed(FIRE)) {
 			Bullet b = new Bullet(x, y, "data/bullet.png", angle);
 			b.setCentered(true);
-			ME.world.add(b);
+			ME.getWorld().add(b);
 		}
 
 		super.update(container, delta);
@@ -3,25 +3,48 @@ package it.marteEngine.test.tank;
 import it.marteEngine.ME;
 import it.marteEngine.ResourceManager;
 import it.marteEngine.entity.Entity;
+import it.marteEngine.entity.EntityPool;
 
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.SlickException;
 import org.newdawn.slick.geom.Vector2f;
 
 /**
- * Little missile Tank can fire
+ * Little missile Tank can fire. Missiles are recycled by a pool, removed
+ * missiles are handed out again by {@link #fire(float, float, int)}.
  * 
  * @author Gornova
  */
 public class Missile extends Entity {
 
-	public Missile(float x, float y, int angle) {
-		super(x, y);
-		this.angle = angle;
+	private static final EntityPool<Missile> POOL = new EntityPool<Missile>() {
+		protected Missile create() {
+			return new Missile();
+		}
+	};
+
+	/** reused every update */
+	private final Vector2f vectorSpeed = new Vector2f();
+
+	private Missile() {
+		super(0, 0);
 		setGraphic(ResourceManager.getImage("missile"));
 
 		addType(SOLID);
-		setHitBox(0, 0, 8, 8);
+		// turns with the missile, around its center
+		setOrientedHitBox(-4, -4, 8, 8);
+		// drawn around x,y like its hitbox, as TankTurret used to center
+		// every missile it fired
+		setCentered(true);
+	}
+
+	/**
+	 * @return a missile at x,y flying in the direction of angle
+	 */
+	public static Missile fire(float x, float y, int angle) {
+		Missile missile = POOL.obtain(x, y);
+		missile.angle = angle;
+		return missile;
 	}
 
 	@Override
@@ -29,7 +52,7 @@ public class Missile extends Entity {
 			throws SlickException {
 		float dx = 0;
 		float dy = 0;
-		Vector2f vectorSpeed = calculateVector(angle, 8);
+		calculateVector(angle, 8, vectorSpeed);
 		dx += vectorSpeed.x;
 		dy += vectorSpeed.y;
 		x += dx;
@@ -42,6 +65,11 @@ public class Missile extends Entity {
 
 	@Override
 	public void collisionResponse(Entity other) {
-		ME.world.remove(this);
+		ME.getWorld().remove(this);
+	}
+
+	@Override
+	public void leftWorldBoundaries() {
+		ME.getWorld().remove(this);
 	}
 }
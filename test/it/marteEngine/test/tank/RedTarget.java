@@ -21,7 +21,7 @@ public class RedTarget extends Entity {
 
 	@Override
 	public void collisionResponse(Entity other) {
-		ME.world.remove(this);
+		ME.getWorld().remove(this);
 	}
 
 }
@@ -23,6 +23,8 @@ public class Tank extends Entity {
 
 	// main turret of this tank
 	public TankTurret turret;
+	// reused by every move
+	private final Vector2f velocity = new Vector2f();
 
 	public Tank(float x, float y) {
 		super(x, y);
@@ -72,9 +74,9 @@ public class Tank extends Entity {
 	private void move(int angle, boolean forward) {
 		float dx = 0;
 		float dy = 0;
-		Vector2f speed = calculateVector(angle, 2 * (forward ? 1 : -1));
-		dx += speed.x;
-		dy += speed.y;
+		calculateVector(angle, 2 * (forward ? 1 : -1), velocity);
+		dx += velocity.x;
+		dy += velocity.y;
 		x += dx;
 		y += dy;
 	}
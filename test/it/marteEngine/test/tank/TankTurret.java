@@ -47,9 +47,7 @@ public class TankTurret extends Entity {
 
 		// add new Missile when player fire
 		if (pressed(FIRE)) {
-			Missile m = new Missile(x, y, angle);
-			m.setCentered(true);
-			ME.world.add(m);
+			ME.getWorld().add(Missile.fire(x, y, angle));
 		}
 
 		super.update(container, delta);
@@ -40,7 +40,7 @@ public class ZombieMain extends StateBasedGame {
 		world.setWidth(2000);
 		world.setHeight(2000);
 
-		ME.world = world;
+		ME.setWorld(world);
 
 		addState(world);
 
@@ -33,7 +33,7 @@ public class ZombieWorld extends World {
 	public void enter(GameContainer container, StateBasedGame game)
 			throws SlickException {
 		super.enter(container, game);
-		ME.world = this;
+		ME.setWorld(this);
 	}
 
 	@Override
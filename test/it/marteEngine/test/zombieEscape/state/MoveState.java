@@ -3,9 +3,9 @@ package it.marteEngine.test.zombieEscape.state;
 import it.marteEngine.ME;
 import it.marteEngine.ResourceManager;
 import it.marteEngine.State;
+import it.marteEngine.entity.CollisionTypes;
 import it.marteEngine.entity.Entity;
 import it.marteEngine.test.zombieEscape.Player;
-import it.marteEngine.test.zombieEscape.Ray;
 
 import java.util.List;
 
@@ -13,17 +13,20 @@ import org.newdawn.slick.Color;
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.geom.Circle;
-import org.newdawn.slick.geom.Vector2f;
 import org.newdawn.slick.util.Log;
 
 public class MoveState implements State {
 
+	/** entities that block the sight of a zombie */
+	private static final long BLOCKING = CollisionTypes.mask(Entity.SOLID);
+
 	private Entity e;
 
 	private int radar = 300;
 	private Circle radarCircle;
 
-	private Ray ray;
+	/** the player while the zombie sees it, null otherwise */
+	private Entity target;
 
 	private int timer;
 
@@ -39,20 +42,18 @@ public class MoveState implements State {
 	public void update(GameContainer container, int delta) {
 		radarCircle = new Circle(e.x + e.width / 2, e.y + e.height / 2, radar);
 
-		Entity p = ME.world.find(Player.PLAYER);
-		if (ray == null) {
-			ray = new Ray(e, p);
-		}
-
-		if (ray != null) {
-			Entity pl = ME.world.find(Player.PLAYER);
-			ray.update(e, pl);
-			Vector2f point = ray.line.getEnd();
-			Vector2f cur = new Vector2f(e.x, e.y);
-			cur = cur.sub(point);
-			cur = cur.normalise();
-			e.x -= cur.x;
-			e.y -= cur.y;
+		Entity player = ME.getWorld().find(Player.PLAYER);
+		target = null;
+		if (player != null && ME.getWorld().lineOfSight(e, player, BLOCKING)) {
+			// walk straight to the center of the player while it is in sight
+			target = player;
+			float dx = player.x + player.width / 2 - e.x;
+			float dy = player.y + player.height / 2 - e.y;
+			float length = (float) Math.sqrt(dx * dx + dy * dy);
+			if (length > 0) {
+				e.x += dx / length;
+				e.y += dy / length;
+			}
 		}
 
 		timer += delta;
@@ -74,8 +75,9 @@ public class MoveState implements State {
 		if (ME.debugEnabled) {
 			g.draw(radarCircle);
 			g.setColor(Color.red);
-			if (ray != null)
-				ray.render(g);
+			if (target != null)
+				g.drawLine(e.x + e.width / 2, e.y + e.height / 2, target.x
+						+ target.width / 2, target.y + target.height / 2);
 			g.resetTransform();
 		}
 